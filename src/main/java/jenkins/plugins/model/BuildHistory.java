@@ -0,0 +1,136 @@
+package jenkins.plugins.model;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A build history held column by column in primitive arrays, 25 bytes a build, so a long
+ * history takes a fraction of the memory of a list of {@link BuildMessage}s and the metrics can
+ * run over it in tight loops. Results are kept as {@link ResultCode}s.
+ */
+public final class BuildHistory {
+    private static final int DEFAULT_CAPACITY = 16;
+
+    private int size;
+    private long[] buildNumbers;
+    private long[] startTimes;
+    private long[] durations;
+    private byte[] results;
+
+    public BuildHistory() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public BuildHistory(int capacity) {
+        buildNumbers = new long[capacity];
+        startTimes = new long[capacity];
+        durations = new long[capacity];
+        results = new byte[capacity];
+    }
+
+    public static BuildHistory of(List<BuildMessage> builds) {
+        BuildHistory history = new BuildHistory(builds.size());
+        for (BuildMessage build : builds) {
+            history.add(build);
+        }
+        return history;
+    }
+
+    public void add(BuildMessage build) {
+        add(build.getBuildNumber(), build.getStartTime(), build.getDuration(), ResultCode.encode(build.getResult()));
+    }
+
+    public void add(long buildNumber, long startTime, long duration, byte result) {
+        if (size == buildNumbers.length) {
+            grow();
+        }
+        buildNumbers[size] = buildNumber;
+        startTimes[size] = startTime;
+        durations[size] = duration;
+        results[size] = result;
+        size++;
+    }
+
+    private void grow() {
+        int capacity = Math.max(DEFAULT_CAPACITY, buildNumbers.length + (buildNumbers.length >> 1));
+        buildNumbers = Arrays.copyOf(buildNumbers, capacity);
+        startTimes = Arrays.copyOf(startTimes, capacity);
+        durations = Arrays.copyOf(durations, capacity);
+        results = Arrays.copyOf(results, capacity);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long getBuildNumber(int index) {
+        return buildNumbers[index];
+    }
+
+    public long getStartTime(int index) {
+        return startTimes[index];
+    }
+
+    public long getDuration(int index) {
+        return durations[index];
+    }
+
+    public byte getResult(int index) {
+        return results[index];
+    }
+
+    public BuildMessage get(int index) {
+        return new BuildMessage(buildNumbers[index], startTimes[index], durations[index],
+                ResultCode.decode(results[index]));
+    }
+
+    public boolean isSortedByBuildNumber() {
+        for (int i = 1; i < size; i++) {
+            if (buildNumbers[i] < buildNumbers[i - 1]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Stable, so of builds with the same number the one added first stays first. Build numbers
+     * have to fit in an int, as they do in the stored history.
+     */
+    public void sortByBuildNumber() {
+        if (isSortedByBuildNumber()) {
+            return;
+        }
+        // the build number in the high half and the position in the low half sort as one long
+        long[] keys = new long[size];
+        for (int i = 0; i < size; i++) {
+            keys[i] = Math.toIntExact(buildNumbers[i]) * (1L << 32) | i;
+        }
+        Arrays.sort(keys);
+
+        long[] sortedStartTimes = new long[buildNumbers.length];
+        long[] sortedDurations = new long[buildNumbers.length];
+        byte[] sortedResults = new byte[buildNumbers.length];
+        for (int i = 0; i < size; i++) {
+            int from = (int) keys[i];
+            buildNumbers[i] = keys[i] >> 32;
+            sortedStartTimes[i] = startTimes[from];
+            sortedDurations[i] = durations[from];
+            sortedResults[i] = results[from];
+        }
+        startTimes = sortedStartTimes;
+        durations = sortedDurations;
+        results = sortedResults;
+    }
+
+    /**
+     * @return the all time accumulators over the builds, which have to be in build number order
+     */
+    public MetricAccumulator toAccumulator() {
+        MetricAccumulator accumulator = new MetricAccumulator();
+        for (int i = 0; i < size; i++) {
+            accumulator.add(results[i], startTimes[i], durations[i]);
+        }
+        return accumulator;
+    }
+}
@@ -0,0 +1,385 @@
+package jenkins.plugins.model;
+
+import com.google.common.base.Preconditions;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Everything needed to bring a job's metrics up to date when one more build completes,
+ * without going back to the build history: the all time accumulators, a
+ * {@link SlidingWindow} for each of the windows the metrics are shown for, and the
+ * {@link DailyDurationSketches} the windows' percentiles are merged from.
+ *
+ * <p>Each build goes through every window in the one pass that adds it, so a window costs a
+ * push and an eviction per build, however many there are.
+ *
+ * <p>Builds of a job can complete out of order, so the last {@link #REORDER_BUILDS} builds added
+ * are held back, in build number order, and stored along with the state. A build that completes
+ * after a later one goes in among them, and only the oldest is folded in once there are more. The
+ * metrics read from the state add the builds held back to copies, so they stay held back.
+ */
+public class BuildMetricState {
+    public static final int[] DEFAULT_WINDOW_DAYS = {7, 30};
+
+    public static final int REORDER_BUILDS = 16;
+
+    private static final int FORMAT_VERSION = 6;
+
+    private long lastBuildNumber;
+    private final MetricAccumulator allBuilds;
+    private final int[] windowDays;
+    // shortest first
+    private final SlidingWindow[] windows;
+    private final DailyDurationSketches dailyDurations;
+    private long evictedAt = Long.MIN_VALUE;
+    // added but not folded in yet, by build number
+    private final List<BuildMessage> held = new ArrayList<BuildMessage>();
+
+    public BuildMetricState() {
+        this(DEFAULT_WINDOW_DAYS);
+    }
+
+    /**
+     * @param windowDays the days of the windows, shortest first
+     */
+    public BuildMetricState(int[] windowDays) {
+        this(0, new MetricAccumulator(), windowDays);
+    }
+
+    private BuildMetricState(long lastBuildNumber, MetricAccumulator allBuilds, int[] windowDays) {
+        Preconditions.checkArgument(windowDays.length > 0, "No windows");
+        for (int i = 0; i < windowDays.length; i++) {
+            Preconditions.checkArgument(windowDays[i] > 0 && (i == 0 || windowDays[i] > windowDays[i - 1]),
+                    "Window days have to be positive and ascending");
+        }
+        this.lastBuildNumber = lastBuildNumber;
+        this.allBuilds = allBuilds;
+        this.windowDays = windowDays.clone();
+        this.windows = new SlidingWindow[windowDays.length];
+        for (int i = 0; i < windowDays.length; i++) {
+            windows[i] = new SlidingWindow(TimeUnit.DAYS.toMillis(windowDays[i]));
+        }
+        this.dailyDurations = new DailyDurationSketches(windows[windows.length - 1].getLength());
+    }
+
+    /**
+     * Builds that repeat an earlier build number are skipped.
+     */
+    public static BuildMetricState fromHistory(List<BuildMessage> sortedBuilds, long now) {
+        return fromHistory(sortedBuilds, DEFAULT_WINDOW_DAYS, now);
+    }
+
+    /**
+     * Same as {@link #fromHistory(List, long)}, with windows of the given days, shortest first.
+     */
+    public static BuildMetricState fromHistory(List<BuildMessage> sortedBuilds, int[] windowDays, long now) {
+        BuildMetricState state = new BuildMetricState(windowDays);
+        for (BuildMessage build : sortedBuilds) {
+            state.addIfAfterLast(build.getBuildNumber(), build.getStartTime(), build.getDuration(),
+                    build.getResult(), now);
+        }
+        return state;
+    }
+
+    /**
+     * Same as {@link #fromHistory(List, long)}, straight from the columns.
+     */
+    public static BuildMetricState fromHistory(BuildHistory sortedHistory, long now) {
+        return fromHistory(new HistorySummary(), sortedHistory, DEFAULT_WINDOW_DAYS, now);
+    }
+
+    /**
+     * Starts the all time metrics from the builds compacted into {@code summary}, then adds the
+     * builds of the history that come after them. The windows, of the given days shortest first,
+     * only see the builds of the history.
+     */
+    public static BuildMetricState fromHistory(HistorySummary summary, BuildHistory sortedHistory, int[] windowDays,
+                                               long now) {
+        MetricAccumulator allBuilds = new MetricAccumulator();
+        allBuilds.merge(summary.getBuilds());
+        BuildMetricState state = new BuildMetricState(summary.getLastBuildNumber(), allBuilds, windowDays);
+        for (int i = 0; i < sortedHistory.size(); i++) {
+            long buildNumber = sortedHistory.getBuildNumber(i);
+            if (buildNumber <= state.lastBuildNumber) {
+                continue;
+            }
+            byte result = sortedHistory.getResult(i);
+            state.lastBuildNumber = buildNumber;
+            state.allBuilds.add(result, sortedHistory.getStartTime(i), sortedHistory.getDuration(i));
+            state.evict(now);
+            state.push(buildNumber, sortedHistory.getStartTime(i), sortedHistory.getDuration(i),
+                    ResultCode.decode(result), now);
+        }
+        return state;
+    }
+
+    /**
+     * Builds have to be folded in in build number order for the streaks to be right. One that
+     * completes after a later one can still be added while that is held back; one older than the
+     * builds folded in has to go through {@link #fromHistory} instead.
+     */
+    public boolean canAdd(BuildMessage build) {
+        return build.getBuildNumber() > lastBuildNumber;
+    }
+
+    /**
+     * Holds the build back with the last ones, and folds in the oldest of them if there are more
+     * than {@link #REORDER_BUILDS}. A build that repeats a held back build number is skipped.
+     */
+    public void add(BuildMessage build, long now) {
+        if (!canAdd(build)) {
+            throw new IllegalArgumentException("Build " + build.getBuildNumber()
+                    + " is not after the last folded in build " + lastBuildNumber);
+        }
+        evict(now);
+        int index = held.size();
+        while (index > 0 && held.get(index - 1).getBuildNumber() >= build.getBuildNumber()) {
+            if (held.get(--index).getBuildNumber() == build.getBuildNumber()) {
+                return;
+            }
+        }
+        held.add(index, build);
+        if (held.size() > REORDER_BUILDS) {
+            BuildMessage oldest = held.remove(0);
+            fold(oldest.getBuildNumber(), oldest.getStartTime(), oldest.getDuration(), oldest.getResult(), now);
+        }
+    }
+
+    /**
+     * Same as {@link #add(BuildMessage, long)}, for callers walking stored records in build number
+     * order, which are folded in straight away.
+     *
+     * @return false if the build was skipped because it is not after the last added build
+     */
+    public boolean addIfAfterLast(long buildNumber, long startTime, long duration, String result, long now) {
+        foldHeld(now);
+        if (buildNumber <= lastBuildNumber) {
+            return false;
+        }
+        fold(buildNumber, startTime, duration, result, now);
+        return true;
+    }
+
+    private void foldHeld(long now) {
+        for (BuildMessage build : held) {
+            fold(build.getBuildNumber(), build.getStartTime(), build.getDuration(), build.getResult(), now);
+        }
+        held.clear();
+    }
+
+    private void fold(long buildNumber, long startTime, long duration, String result, long now) {
+        lastBuildNumber = buildNumber;
+        allBuilds.add(result, startTime, duration);
+
+        evict(now);
+        push(buildNumber, startTime, duration, result, now);
+    }
+
+    private void push(long buildNumber, long startTime, long duration, String result, long now) {
+        dailyDurations.add(startTime, duration, now);
+        // builds that have already left a window are never pushed on it, and a build that is
+        // in a window is in every longer one
+        BuildMessage build = null;
+        for (int i = windows.length - 1; i >= 0 && startTime > now - windows[i].getLength(); i--) {
+            if (build == null) {
+                build = new BuildMessage(buildNumber, startTime, duration, result);
+            }
+            windows[i].push(build);
+        }
+    }
+
+    private void evict(long now) {
+        if (now == evictedAt) {
+            return;
+        }
+        for (SlidingWindow window : windows) {
+            window.evict(now);
+        }
+        dailyDurations.evict(now);
+        evictedAt = now;
+    }
+
+    public long getLastBuildNumber() {
+        return held.isEmpty() ? lastBuildNumber : held.get(held.size() - 1).getBuildNumber();
+    }
+
+    /**
+     * @return the days of the windows, shortest first
+     */
+    public int[] getWindowDays() {
+        return windowDays.clone();
+    }
+
+    /**
+     * @return the time the windows were last brought up to, so the windows can be read as they
+     *         were stored with {@link #getLastDays} without moving them on
+     */
+    public long getEvictedAt() {
+        return evictedAt;
+    }
+
+    /**
+     * @return a copy of the all time totals with the builds held back added, which later builds
+     *         don't change
+     */
+    public MetricAccumulator getAllBuilds() {
+        MetricAccumulator totals = new MetricAccumulator();
+        totals.merge(allBuilds);
+        for (BuildMessage build : held) {
+            totals.add(build);
+        }
+        return totals;
+    }
+
+    /**
+     * @return the builds started less than {@code days} days before {@code now}
+     * @throws IllegalArgumentException if there is no window of that many days
+     */
+    public SlidingWindow getLastDays(int days, long now) {
+        evict(now);
+        SlidingWindow window = getWindow(days);
+        if (held.isEmpty()) {
+            return window;
+        }
+        SlidingWindow withHeld = window.copy();
+        for (BuildMessage build : held) {
+            if (build.getStartTime() > now - window.getLength()) {
+                withHeld.push(build);
+            }
+        }
+        return withHeld;
+    }
+
+    private SlidingWindow getWindow(int days) {
+        for (SlidingWindow window : windows) {
+            if (window.getLength() == TimeUnit.DAYS.toMillis(days)) {
+                return window;
+            }
+        }
+        throw new IllegalArgumentException("No window of " + days + " days");
+    }
+
+    /**
+     * @return the durations of the builds started on the last {@code days} days before {@code now},
+     *         counting the day the window starts in as a whole
+     * @throws IllegalArgumentException if there is no window of that many days
+     */
+    public DurationSketch getDurationsLastDays(int days, long now) {
+        evict(now);
+        long length = getWindow(days).getLength();
+        DurationSketch durations = dailyDurations.getLast(length, now);
+        for (BuildMessage build : held) {
+            if (build.getStartTime() > now - length) {
+                durations.add(build.getDuration());
+            }
+        }
+        return durations;
+    }
+
+    /**
+     * @return the totals of every window, shortest first, then of all builds. The durations of the
+     *         windows are merged in one pass over the days. The totals are copies, which later
+     *         builds don't change
+     */
+    public MetricAccumulator[] getWindowTotals(long now) {
+        evict(now);
+        long[] lengths = new long[windows.length];
+        for (int i = 0; i < windows.length; i++) {
+            lengths[i] = windows[i].getLength();
+        }
+        DurationSketch[] durations = dailyDurations.getLast(lengths, now);
+        MetricAccumulator[] totals = new MetricAccumulator[windows.length + 1];
+        for (int i = 0; i < windows.length; i++) {
+            totals[i] = windows[i].toAccumulator(durations[i]);
+            if (!held.isEmpty()) {
+                // the builds held back come after every build of the window
+                MetricAccumulator heldTotals = new MetricAccumulator();
+                for (BuildMessage build : held) {
+                    if (build.getStartTime() > now - windows[i].getLength()) {
+                        heldTotals.add(build);
+                    }
+                }
+                totals[i].merge(heldTotals);
+            }
+        }
+        totals[windows.length] = getAllBuilds();
+        return totals;
+    }
+
+    /**
+     * Only the builds of the longest window are written, the shorter windows are filled from them
+     * when the state is read back. The builds held back are written after them.
+     */
+    public void writeTo(DataOutput out) throws IOException {
+        out.writeInt(FORMAT_VERSION);
+        out.writeLong(lastBuildNumber);
+        allBuilds.writeTo(out);
+        out.writeInt(windowDays.length);
+        for (int days : windowDays) {
+            out.writeInt(days);
+        }
+        out.writeLong(evictedAt);
+        SlidingWindow longest = windows[windows.length - 1];
+        out.writeInt(Math.toIntExact(longest.getCount()));
+        for (BuildMessage build : longest.getBuilds()) {
+            writeBuild(out, build);
+        }
+        dailyDurations.writeTo(out);
+        out.writeInt(held.size());
+        for (BuildMessage build : held) {
+            writeBuild(out, build);
+        }
+    }
+
+    private static void writeBuild(DataOutput out, BuildMessage build) throws IOException {
+        out.writeLong(build.getBuildNumber());
+        out.writeLong(build.getStartTime());
+        out.writeLong(build.getDuration());
+        out.writeByte(ResultCode.encode(build.getResult()));
+    }
+
+    private static BuildMessage readBuild(DataInput in) throws IOException {
+        return new BuildMessage(in.readLong(), in.readLong(), in.readLong(), ResultCode.decode(in.readByte()));
+    }
+
+    public static BuildMetricState readFrom(DataInput in) throws IOException {
+        int version = in.readInt();
+        if (version != FORMAT_VERSION) {
+            throw new IOException("Unsupported metric state version " + version);
+        }
+        long lastBuildNumber = in.readLong();
+        MetricAccumulator allBuilds = MetricAccumulator.readFrom(in);
+        int[] windowDays = new int[in.readInt()];
+        for (int i = 0; i < windowDays.length; i++) {
+            windowDays[i] = in.readInt();
+        }
+        BuildMetricState state;
+        try {
+            state = new BuildMetricState(lastBuildNumber, allBuilds, windowDays);
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Corrupt metric state windows", e);
+        }
+        long evictedAt = in.readLong();
+        int buildCount = in.readInt();
+        for (int i = 0; i < buildCount; i++) {
+            BuildMessage build = readBuild(in);
+            for (SlidingWindow window : state.windows) {
+                if (build.getStartTime() > evictedAt - window.getLength()) {
+                    window.push(build);
+                }
+            }
+        }
+        state.dailyDurations.readFrom(in);
+        state.evictedAt = evictedAt;
+        int heldCount = in.readInt();
+        for (int i = 0; i < heldCount; i++) {
+            state.held.add(readBuild(in));
+        }
+        return state;
+    }
+}
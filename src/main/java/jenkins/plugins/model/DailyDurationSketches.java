@@ -0,0 +1,108 @@
+package jenkins.plugins.model;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A {@link DurationSketch} for each day, by build start time in UTC, so the durations of a
+ * window are a merge of at most one sketch per day of it. A window is taken in whole days: it
+ * includes all of the day it starts in.
+ */
+public final class DailyDurationSketches {
+
+    private static final long DAY = TimeUnit.DAYS.toMillis(1);
+
+    private final long length;
+    private final TreeMap<Long, DurationSketch> days = new TreeMap<Long, DurationSketch>();
+
+    /**
+     * @param length of the longest window that will be asked for
+     */
+    public DailyDurationSketches(long length) {
+        this.length = length;
+    }
+
+    /**
+     * Builds of days that have already been evicted are skipped.
+     */
+    public void add(long startTime, long duration, long now) {
+        long day = Math.floorDiv(startTime, DAY);
+        if (day < firstDay(length, now)) {
+            return;
+        }
+        DurationSketch sketch = days.get(day);
+        if (sketch == null) {
+            sketch = new DurationSketch();
+            days.put(day, sketch);
+        }
+        sketch.add(duration);
+    }
+
+    /**
+     * Drops the days that ended {@link #length} or longer before {@code now}.
+     */
+    public void evict(long now) {
+        days.headMap(firstDay(length, now)).clear();
+    }
+
+    /**
+     * @return the durations of the builds started on the days of the last {@code windowLength}
+     */
+    public DurationSketch getLast(long windowLength, long now) {
+        DurationSketch merged = new DurationSketch();
+        for (DurationSketch sketch : days.tailMap(firstDay(windowLength, now)).values()) {
+            merged.merge(sketch);
+        }
+        return merged;
+    }
+
+    /**
+     * Same as {@link #getLast(long, long)} for several windows at once, in one pass over the days
+     * from the newest: each window starts from the durations of the one before it and only merges
+     * the days the shorter window doesn't have.
+     *
+     * @param windowLengths shortest first
+     * @return the durations of each window, in the same order
+     */
+    public DurationSketch[] getLast(long[] windowLengths, long now) {
+        DurationSketch[] merged = new DurationSketch[windowLengths.length];
+        Iterator<Map.Entry<Long, DurationSketch>> newestFirst = days.descendingMap().entrySet().iterator();
+        Map.Entry<Long, DurationSketch> day = newestFirst.hasNext() ? newestFirst.next() : null;
+        for (int i = 0; i < windowLengths.length; i++) {
+            merged[i] = new DurationSketch();
+            if (i > 0) {
+                merged[i].merge(merged[i - 1]);
+            }
+            long firstDay = firstDay(windowLengths[i], now);
+            while (day != null && day.getKey() >= firstDay) {
+                merged[i].merge(day.getValue());
+                day = newestFirst.hasNext() ? newestFirst.next() : null;
+            }
+        }
+        return merged;
+    }
+
+    private static long firstDay(long windowLength, long now) {
+        return Math.floorDiv(now - windowLength, DAY);
+    }
+
+    void writeTo(DataOutput out) throws IOException {
+        out.writeInt(days.size());
+        for (Map.Entry<Long, DurationSketch> day : days.entrySet()) {
+            out.writeLong(day.getKey());
+            day.getValue().writeTo(out);
+        }
+    }
+
+    void readFrom(DataInput in) throws IOException {
+        int dayCount = in.readInt();
+        for (int i = 0; i < dayCount; i++) {
+            days.put(in.readLong(), DurationSketch.readFrom(in));
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package jenkins.plugins.model;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Build durations counted in buckets whose bounds grow by a fixed ratio, so a quantile read from
+ * the sketch is within {@link #RELATIVE_ACCURACY} of the duration at that rank. Only buckets that
+ * have durations are kept, so a sketch of a few builds is a few entries however long they took.
+ * Sketches are merged bucket by bucket, which gives the same sketch as adding all the durations
+ * to one.
+ */
+public final class DurationSketch {
+
+    public static final double RELATIVE_ACCURACY = 0.01;
+
+    private static final double GAMMA = (1 + RELATIVE_ACCURACY) / (1 - RELATIVE_ACCURACY);
+    private static final double LOG_GAMMA = Math.log(GAMMA);
+    private static final int[] NONE = new int[0];
+
+    // durations under a millisecond
+    private int zeroCount;
+    // bucket i holds the durations in (GAMMA^(i-1), GAMMA^i], ascending by bucket
+    private int[] buckets = NONE;
+    private int[] counts = NONE;
+    private int size;
+    private long count;
+
+    public void add(long duration) {
+        count++;
+        if (duration < 1) {
+            zeroCount++;
+            return;
+        }
+        int bucket = (int) Math.ceil(Math.log(duration) / LOG_GAMMA);
+        int i = Arrays.binarySearch(buckets, 0, size, bucket);
+        if (i >= 0) {
+            counts[i]++;
+            return;
+        }
+        i = -i - 1;
+        if (size == buckets.length) {
+            int capacity = Math.max(4, size * 2);
+            buckets = Arrays.copyOf(buckets, capacity);
+            counts = Arrays.copyOf(counts, capacity);
+        }
+        System.arraycopy(buckets, i, buckets, i + 1, size - i);
+        System.arraycopy(counts, i, counts, i + 1, size - i);
+        buckets[i] = bucket;
+        counts[i] = 1;
+        size++;
+    }
+
+    public void merge(DurationSketch other) {
+        if (other.size > 0) {
+            int[] mergedBuckets = new int[size + other.size];
+            int[] mergedCounts = new int[size + other.size];
+            int i = 0;
+            int j = 0;
+            int n = 0;
+            while (i < size || j < other.size) {
+                if (j == other.size || (i < size && buckets[i] < other.buckets[j])) {
+                    mergedBuckets[n] = buckets[i];
+                    mergedCounts[n++] = counts[i++];
+                } else if (i == size || other.buckets[j] < buckets[i]) {
+                    mergedBuckets[n] = other.buckets[j];
+                    mergedCounts[n++] = other.counts[j++];
+                } else {
+                    mergedBuckets[n] = buckets[i];
+                    mergedCounts[n++] = counts[i++] + other.counts[j++];
+                }
+            }
+            buckets = mergedBuckets;
+            counts = mergedCounts;
+            size = n;
+        }
+        zeroCount += other.zeroCount;
+        count += other.count;
+    }
+
+    /**
+     * Takes out the durations of {@code other}, which must all have been added or merged into this
+     * sketch. Buckets left empty are dropped.
+     */
+    public void subtract(DurationSketch other) {
+        int n = 0;
+        for (int i = 0, j = 0; i < size; i++) {
+            int remaining = counts[i];
+            if (j < other.size && other.buckets[j] == buckets[i]) {
+                remaining -= other.counts[j++];
+            }
+            if (remaining > 0) {
+                buckets[n] = buckets[i];
+                counts[n++] = remaining;
+            }
+        }
+        size = n;
+        zeroCount -= other.zeroCount;
+        count -= other.count;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * @param quantile between 0 and 1
+     * @return the duration at that rank, by nearest rank, or 0 if there are no durations
+     */
+    public long getQuantile(double quantile) {
+        if (count == 0) {
+            return 0L;
+        }
+        long rank = Math.max(0L, (long) Math.ceil(quantile * count) - 1);
+        long seen = zeroCount;
+        if (rank < seen) {
+            return 0L;
+        }
+        for (int i = 0; i < size; i++) {
+            seen += counts[i];
+            if (rank < seen) {
+                // the middle of the bucket, relative to its bounds
+                return Math.round(2 * Math.pow(GAMMA, buckets[i]) / (GAMMA + 1));
+            }
+        }
+        return Math.round(2 * Math.pow(GAMMA, buckets[size - 1]) / (GAMMA + 1));
+    }
+
+    void writeTo(DataOutput out) throws IOException {
+        out.writeInt(zeroCount);
+        out.writeInt(size);
+        for (int i = 0; i < size; i++) {
+            out.writeShort(buckets[i]);
+            out.writeInt(counts[i]);
+        }
+    }
+
+    static DurationSketch readFrom(DataInput in) throws IOException {
+        DurationSketch sketch = new DurationSketch();
+        sketch.zeroCount = in.readInt();
+        sketch.count = sketch.zeroCount;
+        sketch.size = in.readInt();
+        sketch.buckets = new int[sketch.size];
+        sketch.counts = new int[sketch.size];
+        for (int i = 0; i < sketch.size; i++) {
+            sketch.buckets[i] = in.readShort();
+            sketch.counts[i] = in.readInt();
+            sketch.count += sketch.counts[i];
+        }
+        return sketch;
+    }
+}
@@ -0,0 +1,65 @@
+package jenkins.plugins.model;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * The all time accumulators of the builds that were compacted out of a job's history, so the
+ * all time metrics stay right once their rows are gone. It covers every build up to
+ * {@link #getLastBuildNumber()}; builds of the history up to that number are already in it.
+ */
+public final class HistorySummary {
+    private static final int FORMAT_VERSION = 2;
+
+    private long lastBuildNumber;
+    private final MetricAccumulator builds;
+
+    public HistorySummary() {
+        this(0, new MetricAccumulator());
+    }
+
+    private HistorySummary(long lastBuildNumber, MetricAccumulator builds) {
+        this.lastBuildNumber = lastBuildNumber;
+        this.builds = builds;
+    }
+
+    public long getLastBuildNumber() {
+        return lastBuildNumber;
+    }
+
+    public MetricAccumulator getBuilds() {
+        return builds;
+    }
+
+    /**
+     * Adds the first {@code count} builds of the history, skipping the ones already in the summary.
+     *
+     * @param sortedHistory in build number order
+     */
+    public void fold(BuildHistory sortedHistory, int count) {
+        for (int i = 0; i < count; i++) {
+            long buildNumber = sortedHistory.getBuildNumber(i);
+            if (buildNumber <= lastBuildNumber) {
+                continue;
+            }
+            builds.add(sortedHistory.getResult(i), sortedHistory.getStartTime(i), sortedHistory.getDuration(i));
+            lastBuildNumber = buildNumber;
+        }
+    }
+
+    public void writeTo(DataOutput out) throws IOException {
+        out.writeInt(FORMAT_VERSION);
+        out.writeLong(lastBuildNumber);
+        builds.writeTo(out);
+    }
+
+    public static HistorySummary readFrom(DataInput in) throws IOException {
+        int version = in.readInt();
+        if (version != FORMAT_VERSION && version != 1) {
+            throw new IOException("Unsupported history summary version " + version);
+        }
+        // the first version had no durations, the percentiles leave out the builds it covers
+        return new HistorySummary(in.readLong(), MetricAccumulator.readFrom(in, version > 1));
+    }
+}
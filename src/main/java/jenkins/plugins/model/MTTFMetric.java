@@ -13,32 +13,36 @@ public class MTTFMetric implements AggregateBuildMetric {
 
     public MTTFMetric(String metricName, List<BuildMessage> builds) {
         this.metricName = metricName;
-        initialize(Ordering.natural().sortedCopy(builds));
+        // the histories are read in build number order, so a copy is only needed for other lists
+        initialize(Ordering.natural().isOrdered(builds) ? builds : Ordering.natural().sortedCopy(builds));
     }
 
-    private void initialize(List<BuildMessage> builds) {
-        long successBuildDate = 0;
-        long totalSuccessTime = 0;
-        for (BuildMessage build : builds) {
-            String result = build.getResult();
-            if (result == null) continue;
-
-            if (!result.equals(Result.FAILURE.toString())) {
-                if (successBuildDate != 0) continue;
-
-                successBuildDate = build.getStartTime();
-                continue;
-            }
-
-            if (successBuildDate == 0) continue;
+    /**
+     * @param history in build number order
+     */
+    public MTTFMetric(String metricName, BuildHistory history) {
+        this.metricName = metricName;
+        StreakAccumulator failures = new StreakAccumulator(Result.FAILURE.toString());
+        for (int i = 0; i < history.size(); i++) {
+            failures.add(history.getResult(i), history.getStartTime(i));
+        }
+        metricValue = failures.getMean();
+        occurences = failures.getOccurences();
+    }
 
-            long successLastTime = build.getStartTime() - successBuildDate;
-            totalSuccessTime += successLastTime;
-            occurences++;
+    MTTFMetric(String metricName, StreakAccumulator failures) {
+        this.metricName = metricName;
+        this.metricValue = failures.getMean();
+        this.occurences = failures.getOccurences();
+    }
 
-            successBuildDate = 0;
+    private void initialize(List<BuildMessage> builds) {
+        StreakAccumulator failures = new StreakAccumulator(Result.FAILURE.toString());
+        for (BuildMessage build : builds) {
+            failures.add(build.getResult(), build.getStartTime());
         }
-        metricValue = occurences>0?totalSuccessTime/occurences:0;
+        metricValue = failures.getMean();
+        occurences = failures.getOccurences();
     }
 
     @Override
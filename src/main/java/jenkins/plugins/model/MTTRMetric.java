@@ -15,7 +15,21 @@ public class MTTRMetric implements AggregateBuildMetric {
 
     public MTTRMetric(String name, List<BuildMessage> builds) {
         this.name = name;
-        initialize(Ordering.natural().sortedCopy(builds));
+        // the histories are read in build number order, so a copy is only needed for other lists
+        initialize(Ordering.natural().isOrdered(builds) ? builds : Ordering.natural().sortedCopy(builds));
+    }
+
+    /**
+     * @param history in build number order
+     */
+    public MTTRMetric(String name, BuildHistory history) {
+        this.name = name;
+        StreakAccumulator recoveries = new StreakAccumulator(Result.SUCCESS.toString());
+        for (int i = 0; i < history.size(); i++) {
+            recoveries.add(history.getResult(i), history.getStartTime(i));
+        }
+        totalFailedTime = recoveries.getTotalTime();
+        buildCount = recoveries.getOccurences();
     }
 
     @Override
@@ -23,27 +37,19 @@ public class MTTRMetric implements AggregateBuildMetric {
         return buildCount;
     }
 
+    MTTRMetric(String name, StreakAccumulator recoveries) {
+        this.name = name;
+        this.totalFailedTime = recoveries.getTotalTime();
+        this.buildCount = recoveries.getOccurences();
+    }
+
     private void initialize(List<BuildMessage> builds) {
-        long failedBuildDate = 0;
+        StreakAccumulator recoveries = new StreakAccumulator(Result.SUCCESS.toString());
         for (BuildMessage build : builds) {
-            String result = build.getResult();
-            if (result == null) continue;
-
-            if (!result.equals(Result.SUCCESS.toString())) {
-                if (failedBuildDate != 0) continue;
-
-                failedBuildDate = build.getStartTime();
-                continue;
-            }
-
-            if (failedBuildDate == 0) continue;
-
-            long failedLastTime = build.getStartTime() - failedBuildDate;
-            totalFailedTime += failedLastTime;
-            buildCount++;
-
-            failedBuildDate = 0;
+            recoveries.add(build.getResult(), build.getStartTime());
         }
+        totalFailedTime = recoveries.getTotalTime();
+        buildCount = recoveries.getOccurences();
     }
 
     @Override
@@ -0,0 +1,202 @@
+package jenkins.plugins.model;
+
+import hudson.model.Result;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Incremental form of the MTTR, MTTF, build time standard deviation and percentile metrics. Builds are
+ * added one at a time, in build number order, and each addition costs the same no matter how
+ * many builds came before it. Accumulators for consecutive runs of builds can be merged.
+ */
+public class MetricAccumulator {
+    private final StreakAccumulator recoveries;
+    private final StreakAccumulator failures;
+
+    // Welford's running mean and sum of squared deviations, same arithmetic as SummaryStatistics
+    private long count;
+    private double mean;
+    private double m2;
+    private final DurationSketch durations;
+
+    public MetricAccumulator() {
+        this(new StreakAccumulator(Result.SUCCESS.toString()),
+                new StreakAccumulator(Result.FAILURE.toString()), 0, 0d, 0d, new DurationSketch());
+    }
+
+    MetricAccumulator(StreakAccumulator recoveries, StreakAccumulator failures, long count, double mean, double m2,
+                      DurationSketch durations) {
+        this.recoveries = recoveries;
+        this.failures = failures;
+        this.count = count;
+        this.mean = mean;
+        this.m2 = m2;
+        this.durations = durations;
+    }
+
+    public void add(BuildMessage message) {
+        add(message.getResult(), message.getStartTime(), message.getDuration());
+    }
+
+    public void add(String result, long startTime, long duration) {
+        recoveries.add(result, startTime);
+        failures.add(result, startTime);
+        addDuration(duration);
+    }
+
+    public void add(byte resultCode, long startTime, long duration) {
+        recoveries.add(resultCode, startTime);
+        failures.add(resultCode, startTime);
+        addDuration(duration);
+    }
+
+    private void addDuration(long duration) {
+        durations.add(duration);
+        long previousCount = count++;
+        double deviation = duration - mean;
+        double scaledDeviation = deviation / count;
+        mean += scaledDeviation;
+        m2 += previousCount * deviation * scaledDeviation;
+    }
+
+    /**
+     * Adds the builds seen by {@code next}, which all come after the builds seen by this one.
+     */
+    public void merge(MetricAccumulator next) {
+        recoveries.merge(next.recoveries);
+        failures.merge(next.failures);
+        mergeDurations(next);
+    }
+
+    /**
+     * Adds the builds of another job, which ran alongside the builds seen by this one rather
+     * than after them. Streaks of different jobs have nothing to do with each other, so only
+     * their totals are added: the result can't be {@link #merge merged} with later builds.
+     */
+    public void combine(MetricAccumulator other) {
+        recoveries.addTotals(other.recoveries);
+        failures.addTotals(other.failures);
+        mergeDurations(other);
+    }
+
+    /**
+     * Takes out the builds of a job that was {@link #combine combined} into this one, so a running
+     * total over many jobs can replace one job's builds without adding up all the others again.
+     */
+    public void subtract(MetricAccumulator other) {
+        recoveries.subtractTotals(other.recoveries);
+        failures.subtractTotals(other.failures);
+        durations.subtract(other.durations);
+
+        long remainingCount = count - other.count;
+        if (remainingCount <= 0) {
+            count = 0;
+            mean = 0d;
+            m2 = 0d;
+            return;
+        }
+        // the merge of mergeDurations, solved for what was there before
+        double remainingMean = (count * mean - other.count * other.mean) / remainingCount;
+        double delta = other.mean - remainingMean;
+        m2 = Math.max(0d, m2 - other.m2 - delta * delta * remainingCount * other.count / count);
+        mean = remainingMean;
+        count = remainingCount;
+    }
+
+    private void mergeDurations(MetricAccumulator next) {
+        durations.merge(next.durations);
+
+        long mergedCount = count + next.count;
+        if (mergedCount == 0) return;
+        double delta = next.mean - mean;
+        mean += delta * next.count / mergedCount;
+        m2 += next.m2 + delta * delta * count * next.count / mergedCount;
+        count = mergedCount;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public double getMean() {
+        return mean;
+    }
+
+    public double getM2() {
+        return m2;
+    }
+
+    public DurationSketch getDurations() {
+        return durations;
+    }
+
+    public StreakAccumulator getRecoveries() {
+        return recoveries;
+    }
+
+    public StreakAccumulator getFailures() {
+        return failures;
+    }
+
+    public long getStandardDeviation() {
+        return count > 1 ? (long) Math.sqrt(m2 / (count - 1d)) : 0L;
+    }
+
+    public MTTRMetric toMTTRMetric(String name) {
+        return new MTTRMetric(name, recoveries);
+    }
+
+    public MTTFMetric toMTTFMetric(String name) {
+        return new MTTFMetric(name, failures);
+    }
+
+    public StandardDeviationMetric toStandardDeviationMetric(String name) {
+        return new StandardDeviationMetric(name, getStandardDeviation(), Math.toIntExact(count));
+    }
+
+    public PercentileMetric toPercentileMetric(String name, double quantile) {
+        return new PercentileMetric(name, durations, quantile);
+    }
+
+    void writeTo(DataOutput out) throws IOException {
+        writeStreak(out, recoveries);
+        writeStreak(out, failures);
+        out.writeLong(count);
+        out.writeDouble(mean);
+        out.writeDouble(m2);
+        durations.writeTo(out);
+    }
+
+    static MetricAccumulator readFrom(DataInput in) throws IOException {
+        return readFrom(in, true);
+    }
+
+    /**
+     * @param withDurations false for formats written before the durations were kept, which then
+     *                      start out empty
+     */
+    static MetricAccumulator readFrom(DataInput in, boolean withDurations) throws IOException {
+        StreakAccumulator recoveries = readStreak(in, Result.SUCCESS.toString());
+        StreakAccumulator failures = readStreak(in, Result.FAILURE.toString());
+        long count = in.readLong();
+        double mean = in.readDouble();
+        double m2 = in.readDouble();
+        DurationSketch durations = withDurations ? DurationSketch.readFrom(in) : new DurationSketch();
+        return new MetricAccumulator(recoveries, failures, count, mean, m2, durations);
+    }
+
+    private static void writeStreak(DataOutput out, StreakAccumulator streak) throws IOException {
+        out.writeLong(streak.getOpenSince());
+        out.writeLong(streak.getTotalTime());
+        out.writeInt(streak.getOccurences());
+        out.writeLong(streak.getFirstCloseAt());
+        out.writeLong(streak.getLeadingOpenAt());
+    }
+
+    private static StreakAccumulator readStreak(DataInput in, String closingResult) throws IOException {
+        return new StreakAccumulator(closingResult, in.readLong(), in.readLong(), in.readInt(),
+                in.readLong(), in.readLong());
+    }
+}
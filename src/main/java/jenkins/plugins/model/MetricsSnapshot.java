@@ -0,0 +1,118 @@
+package jenkins.plugins.model;
+
+import com.google.common.collect.ImmutableMap;
+
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * The metric values of one job at one point in time, in milliseconds by metric name, along
+ * with how many occurrences each is the mean of and the number of the last build they include.
+ *
+ * <p>In the property files, the occurrences of a metric are under its name followed by
+ * {@link #OCCURENCES_SUFFIX}, and the last build number is under {@link #LAST_BUILD_NUMBER}.
+ */
+public final class MetricsSnapshot {
+    public static final String LAST_BUILD_NUMBER = "lastBuildNumber";
+    public static final String OCCURENCES_SUFFIX = ".occurences";
+
+    public static final MetricsSnapshot EMPTY = new MetricsSnapshot(0, ImmutableMap.<String, Long>of(),
+            ImmutableMap.<String, Integer>of());
+
+    private final long lastBuildNumber;
+    private final Map<String, Long> values;
+    private final Map<String, Integer> occurences;
+
+    private MetricsSnapshot(long lastBuildNumber, Map<String, Long> values, Map<String, Integer> occurences) {
+        this.lastBuildNumber = lastBuildNumber;
+        this.values = values;
+        this.occurences = occurences;
+    }
+
+    public static MetricsSnapshot of(long lastBuildNumber, AggregateBuildMetric... metrics) {
+        ImmutableMap.Builder<String, Long> values = ImmutableMap.builder();
+        for (AggregateBuildMetric metric : metrics) {
+            values.put(metric.getName(), metric.calculateMetric());
+        }
+        return new MetricsSnapshot(lastBuildNumber, values.buildKeepingLast(), getOccurences(metrics));
+    }
+
+    private static Map<String, Integer> getOccurences(AggregateBuildMetric... metrics) {
+        ImmutableMap.Builder<String, Integer> occurences = ImmutableMap.builder();
+        for (AggregateBuildMetric metric : metrics) {
+            occurences.put(metric.getName(), metric.getOccurences());
+        }
+        return occurences.buildKeepingLast();
+    }
+
+    /**
+     * Files written before the last build number was stored with the metrics read as 0 until the
+     * job's next update.
+     */
+    public static MetricsSnapshot fromProperties(Properties properties) {
+        long lastBuildNumber = 0;
+        try {
+            lastBuildNumber = Long.parseLong(properties.getProperty(LAST_BUILD_NUMBER, "0").trim());
+        } catch (NumberFormatException e) {
+            // treated as missing
+        }
+        return fromProperties(lastBuildNumber, properties);
+    }
+
+    /**
+     * Values that are not numbers are left out, so they read as 0 like missing ones, and so are
+     * occurrences, which files written before they were stored don't have.
+     */
+    public static MetricsSnapshot fromProperties(long lastBuildNumber, Properties properties) {
+        ImmutableMap.Builder<String, Long> values = ImmutableMap.builder();
+        ImmutableMap.Builder<String, Integer> occurences = ImmutableMap.builder();
+        for (String name : properties.stringPropertyNames()) {
+            if (name.equals(LAST_BUILD_NUMBER)) {
+                continue;
+            }
+            try {
+                String value = properties.getProperty(name).trim();
+                if (name.endsWith(OCCURENCES_SUFFIX)) {
+                    occurences.put(name.substring(0, name.length() - OCCURENCES_SUFFIX.length()), Integer.parseInt(value));
+                } else {
+                    values.put(name, Long.parseLong(value));
+                }
+            } catch (NumberFormatException e) {
+                // treated as missing
+            }
+        }
+        return new MetricsSnapshot(lastBuildNumber, values.buildKeepingLast(), occurences.buildKeepingLast());
+    }
+
+    /**
+     * @return the number of the last build in the metrics, or 0 if it isn't known
+     */
+    public long getLastBuildNumber() {
+        return lastBuildNumber;
+    }
+
+    public long getValue(String name) {
+        Long value = values.get(name);
+        return value == null ? 0L : value;
+    }
+
+    /**
+     * @return the number of occurrences the metric is the mean of, or 0 if it isn't known
+     */
+    public int getOccurences(String name) {
+        Integer count = occurences.get(name);
+        return count == null ? 0 : count;
+    }
+
+    public Map<String, Long> getValues() {
+        return values;
+    }
+
+    /**
+     * @return a tag that changes whenever the snapshot does, made of the last build number and
+     *         a hash of the metrics
+     */
+    public String getVersion() {
+        return lastBuildNumber + "-" + Integer.toHexString(31 * values.hashCode() + occurences.hashCode());
+    }
+}
@@ -0,0 +1,32 @@
+package jenkins.plugins.model;
+
+/**
+ * A percentile of the build time, read from a {@link DurationSketch} of the builds.
+ */
+public class PercentileMetric implements AggregateBuildMetric {
+
+    private final String name;
+    private final long metric;
+    private final int occurences;
+
+    public PercentileMetric(String name, DurationSketch durations, double quantile) {
+        this.name = name;
+        this.metric = durations.getQuantile(quantile);
+        this.occurences = Math.toIntExact(durations.getCount());
+    }
+
+    @Override
+    public int getOccurences() {
+        return occurences;
+    }
+
+    @Override
+    public long calculateMetric() {
+        return metric;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+}
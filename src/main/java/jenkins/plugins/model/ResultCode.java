@@ -0,0 +1,38 @@
+package jenkins.plugins.model;
+
+import hudson.model.Result;
+
+/**
+ * One byte codes for build results, used where results are stored as primitives.
+ * The codes are {@link Result#ordinal}, with {@link #UNKNOWN} for anything else,
+ * including builds that were recorded without a result.
+ */
+public final class ResultCode {
+    public static final byte UNKNOWN = -1;
+
+    private static final Result[] RESULTS = {
+            Result.SUCCESS, Result.UNSTABLE, Result.FAILURE, Result.NOT_BUILT, Result.ABORTED
+    };
+    private static final String UNKNOWN_RESULT = String.valueOf((Object) null);
+
+    private ResultCode() {
+    }
+
+    public static byte encode(String result) {
+        for (Result candidate : RESULTS) {
+            if (candidate.toString().equals(result)) {
+                return (byte) candidate.ordinal;
+            }
+        }
+        return UNKNOWN;
+    }
+
+    public static String decode(byte code) {
+        for (Result candidate : RESULTS) {
+            if (candidate.ordinal == code) {
+                return candidate.toString();
+            }
+        }
+        return UNKNOWN_RESULT;
+    }
+}
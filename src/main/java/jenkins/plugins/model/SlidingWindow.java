@@ -0,0 +1,205 @@
+package jenkins.plugins.model;
+
+import hudson.model.Result;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * The builds that started within a fixed period before now, with their MTTR, MTTF and build
+ * time standard deviation kept up to date as builds are pushed on the tail and expire from the
+ * head. Each push or eviction costs the same however many builds the window holds.
+ *
+ * <p>Builds are pushed in build number order. One that started earlier than a build before it
+ * leaves the window together with that build.
+ */
+public class SlidingWindow {
+
+    // rebuild the standard deviation from scratch after this many evictions at least, so
+    // rounding errors from removing durations can't add up
+    private static final int MIN_EVICTIONS_BEFORE_REBUILD = 64;
+
+    private final long length;
+    private final Deque<BuildMessage> builds = new ArrayDeque<BuildMessage>();
+    private final Streak recoveries = new Streak(Result.SUCCESS.toString());
+    private final Streak failures = new Streak(Result.FAILURE.toString());
+
+    private long count;
+    private double mean;
+    private double m2;
+    private long evictionsSinceRebuild;
+
+    public SlidingWindow(long length) {
+        this.length = length;
+    }
+
+    public long getLength() {
+        return length;
+    }
+
+    public void push(BuildMessage build) {
+        builds.addLast(build);
+        recoveries.push(build);
+        failures.push(build);
+
+        long previousCount = count++;
+        double deviation = build.getDuration() - mean;
+        double scaledDeviation = deviation / count;
+        mean += scaledDeviation;
+        m2 += previousCount * deviation * scaledDeviation;
+    }
+
+    /**
+     * Drops the builds that started {@link #getLength()} or longer before {@code now}.
+     */
+    public void evict(long now) {
+        long cutoff = now - length;
+        while (!builds.isEmpty() && builds.peekFirst().getStartTime() <= cutoff) {
+            BuildMessage build = builds.removeFirst();
+            recoveries.evict(build, builds);
+            failures.evict(build, builds);
+            removeDuration(build.getDuration());
+        }
+    }
+
+    private void removeDuration(long duration) {
+        if (--count == 0) {
+            mean = 0d;
+            m2 = 0d;
+            evictionsSinceRebuild = 0;
+            return;
+        }
+        double deviation = duration - mean;
+        mean -= deviation / count;
+        m2 = Math.max(0d, m2 - deviation * (duration - mean));
+
+        if (++evictionsSinceRebuild >= Math.max(MIN_EVICTIONS_BEFORE_REBUILD, count)) {
+            count = 0;
+            mean = 0d;
+            m2 = 0d;
+            for (BuildMessage build : builds) {
+                long previousCount = count++;
+                double buildDeviation = build.getDuration() - mean;
+                double scaledDeviation = buildDeviation / count;
+                mean += scaledDeviation;
+                m2 += previousCount * buildDeviation * scaledDeviation;
+            }
+            evictionsSinceRebuild = 0;
+        }
+    }
+
+    /**
+     * @return a window of the same builds, which more builds can be pushed on without changing this one
+     */
+    SlidingWindow copy() {
+        SlidingWindow copy = new SlidingWindow(length);
+        for (BuildMessage build : builds) {
+            copy.push(build);
+        }
+        return copy;
+    }
+
+    /**
+     * @return the builds in the window, oldest first
+     */
+    public Iterable<BuildMessage> getBuilds() {
+        return builds;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getStandardDeviation() {
+        return count > 1 ? (long) Math.sqrt(m2 / (count - 1d)) : 0L;
+    }
+
+    public MTTRMetric toMTTRMetric(String name) {
+        return new MTTRMetric(name, recoveries.toAccumulator());
+    }
+
+    public MTTFMetric toMTTFMetric(String name) {
+        return new MTTFMetric(name, failures.toAccumulator());
+    }
+
+    public StandardDeviationMetric toStandardDeviationMetric(String name) {
+        return new StandardDeviationMetric(name, getStandardDeviation(), Math.toIntExact(count));
+    }
+
+    /**
+     * @return the totals of the builds in the window, with {@code durations} as their build times
+     */
+    public MetricAccumulator toAccumulator(DurationSketch durations) {
+        return new MetricAccumulator(recoveries.toAccumulator(), failures.toAccumulator(), count, mean, m2, durations);
+    }
+
+    /**
+     * The streaks ending in {@code closingResult} among the builds of the window. The first
+     * streak always opens at the first build of the window that has a result other than the
+     * closing one, so when that build leaves the streak opens at the next build instead, or
+     * goes away if the next build closes it.
+     */
+    private static final class Streak {
+        private final String closingResult;
+        private long openSince = StreakAccumulator.NONE;
+        private long totalTime;
+        private int occurences;
+        private int closingBuilds;
+
+        private Streak(String closingResult) {
+            this.closingResult = closingResult;
+        }
+
+        void push(BuildMessage build) {
+            String result = build.getResult();
+            if (result == null) return;
+
+            if (!result.equals(closingResult)) {
+                if (openSince == StreakAccumulator.NONE) openSince = build.getStartTime();
+                return;
+            }
+
+            closingBuilds++;
+            if (openSince == StreakAccumulator.NONE) return;
+
+            totalTime += build.getStartTime() - openSince;
+            occurences++;
+            openSince = StreakAccumulator.NONE;
+        }
+
+        void evict(BuildMessage build, Deque<BuildMessage> remaining) {
+            String result = build.getResult();
+            if (result == null) return;
+
+            if (result.equals(closingResult)) {
+                closingBuilds--;
+                return;
+            }
+
+            BuildMessage next = firstWithResult(remaining);
+            if (closingBuilds == 0) {
+                // the build opened the streak still running at the tail
+                openSince = next == null ? StreakAccumulator.NONE : next.getStartTime();
+                return;
+            }
+            totalTime -= next.getStartTime() - build.getStartTime();
+            if (next.getResult().equals(closingResult)) {
+                occurences--;
+            }
+        }
+
+        private static BuildMessage firstWithResult(Deque<BuildMessage> builds) {
+            for (BuildMessage build : builds) {
+                if (build.getResult() != null) {
+                    return build;
+                }
+            }
+            return null;
+        }
+
+        StreakAccumulator toAccumulator() {
+            return new StreakAccumulator(closingResult, openSince, totalTime, occurences,
+                    StreakAccumulator.NONE, StreakAccumulator.NONE);
+        }
+    }
+}
@@ -21,7 +21,18 @@ public class StandardDeviationMetric implements AggregateBuildMetric {
         metric = (long) statistics.getStandardDeviation();
     }
 
-    private StandardDeviationMetric(String name, long metric, int occurences) {
+    public StandardDeviationMetric(String name, BuildHistory history) {
+        this.name = name;
+        this.occurences = history.size();
+
+        SummaryStatistics statistics = new SummaryStatistics();
+        for (int i = 0; i < history.size(); i++) {
+            statistics.addValue(history.getDuration(i));
+        }
+        metric = (long) statistics.getStandardDeviation();
+    }
+
+    StandardDeviationMetric(String name, long metric, int occurences) {
         this.name = name;
         this.metric = metric;
         this.occurences = occurences;
@@ -0,0 +1,133 @@
+package jenkins.plugins.model;
+
+/**
+ * Running totals behind {@link MTTRMetric} and {@link MTTFMetric}. A streak is opened by the
+ * first build whose result is not the closing result and is closed by the next build that has
+ * it; the time between the two start times is one occurrence.
+ *
+ * <p>Besides the totals it remembers where the first streak of the builds it has seen starts
+ * and ends, so two accumulators for consecutive runs of builds can be {@link #merge merged}
+ * into the accumulator for all of them.
+ */
+public class StreakAccumulator {
+    static final long NONE = Long.MIN_VALUE;
+
+    private final String closingResult;
+    private final byte closingCode;
+    private long openSince = NONE;
+    private long totalTime;
+    private int occurences;
+
+    // start of the first closing build, and of the first opening build if it comes before that
+    private long firstCloseAt = NONE;
+    private long leadingOpenAt = NONE;
+
+    public StreakAccumulator(String closingResult) {
+        this.closingResult = closingResult;
+        this.closingCode = ResultCode.encode(closingResult);
+    }
+
+    StreakAccumulator(String closingResult, long openSince, long totalTime, int occurences,
+                      long firstCloseAt, long leadingOpenAt) {
+        this.closingResult = closingResult;
+        this.closingCode = ResultCode.encode(closingResult);
+        this.openSince = openSince;
+        this.totalTime = totalTime;
+        this.occurences = occurences;
+        this.firstCloseAt = firstCloseAt;
+        this.leadingOpenAt = leadingOpenAt;
+    }
+
+    public void add(String result, long startTime) {
+        if (result == null) return;
+        add(result.equals(closingResult), startTime);
+    }
+
+    /**
+     * Same as {@link #add(String, long)} with the result as a {@link ResultCode}. An unknown
+     * result opens a streak, like any result other than the closing one.
+     */
+    public void add(byte resultCode, long startTime) {
+        add(resultCode == closingCode, startTime);
+    }
+
+    private void add(boolean closes, long startTime) {
+        if (!closes) {
+            if (openSince == NONE) openSince = startTime;
+            if (firstCloseAt == NONE && leadingOpenAt == NONE) leadingOpenAt = startTime;
+            return;
+        }
+
+        if (firstCloseAt == NONE) firstCloseAt = startTime;
+        if (openSince == NONE) return;
+
+        totalTime += startTime - openSince;
+        occurences++;
+        openSince = NONE;
+    }
+
+    /**
+     * Adds the builds seen by {@code next}, which all come after the builds seen by this one.
+     */
+    public void merge(StreakAccumulator next) {
+        if (openSince != NONE && next.firstCloseAt != NONE) {
+            if (next.leadingOpenAt != NONE) {
+                // next already counted its first streak, but it really started here
+                totalTime += next.leadingOpenAt - openSince;
+            } else {
+                totalTime += next.firstCloseAt - openSince;
+                occurences++;
+            }
+        }
+        if (openSince == NONE || next.firstCloseAt != NONE) {
+            openSince = next.openSince;
+        }
+        if (firstCloseAt == NONE) {
+            if (leadingOpenAt == NONE) leadingOpenAt = next.leadingOpenAt;
+            firstCloseAt = next.firstCloseAt;
+        }
+        totalTime += next.totalTime;
+        occurences += next.occurences;
+    }
+
+    /**
+     * Adds the time and occurrences of the streaks of {@code other}, without joining any of them
+     * up with the streaks of this one.
+     */
+    public void addTotals(StreakAccumulator other) {
+        totalTime += other.totalTime;
+        occurences += other.occurences;
+    }
+
+    /**
+     * Takes out the time and occurrences added from {@code other} by {@link #addTotals}.
+     */
+    public void subtractTotals(StreakAccumulator other) {
+        totalTime -= other.totalTime;
+        occurences -= other.occurences;
+    }
+
+    public long getOpenSince() {
+        return openSince;
+    }
+
+    public long getTotalTime() {
+        return totalTime;
+    }
+
+    public int getOccurences() {
+        return occurences;
+    }
+
+    public long getFirstCloseAt() {
+        return firstCloseAt;
+    }
+
+    public long getLeadingOpenAt() {
+        return leadingOpenAt;
+    }
+
+    public long getMean() {
+        return occurences == 0 ? 0L : totalTime / occurences;
+    }
+}
@@ -4,7 +4,6 @@ import hudson.Extension;
 import hudson.model.Job;
 import hudson.views.ListViewColumn;
 import hudson.views.ListViewColumnDescriptor;
-import jenkins.plugins.util.ReadUtil;
 import org.kohsuke.stapler.DataBoundConstructor;
 
 import java.io.IOException;
@@ -17,7 +16,7 @@ public class BuildMetric30DaysResultColumn extends ListViewColumn implements Res
 
     @Override
     public String getResult(Job job) throws IOException {
-        return ReadUtil.getColumnResult(job, MetricsAction.MTTR_LAST_30_DAYS);
+        return new BuildMetricWindowResultColumn(30).getResult(job);
     }
 
     @Override
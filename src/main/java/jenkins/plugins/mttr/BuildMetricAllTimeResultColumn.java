@@ -1,10 +1,10 @@
 package jenkins.plugins.mttr;
 
 import hudson.Extension;
+import hudson.Util;
 import hudson.model.Job;
 import hudson.views.ListViewColumn;
 import hudson.views.ListViewColumnDescriptor;
-import jenkins.plugins.util.ReadUtil;
 import org.kohsuke.stapler.DataBoundConstructor;
 
 import java.io.IOException;
@@ -17,7 +17,7 @@ public class BuildMetricAllTimeResultColumn extends ListViewColumn  implements R
 
     @Override
     public String getResult(Job job) throws IOException {
-        return ReadUtil.getColumnResult(job, MetricsAction.MTTR_ALL_BUILDS);
+        return Util.getPastTimeString(MetricsSnapshotCache.get(job).getValue(MetricsAction.MTTR_ALL_BUILDS));
     }
 
     @Override
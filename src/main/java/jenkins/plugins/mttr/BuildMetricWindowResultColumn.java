@@ -0,0 +1,86 @@
+package jenkins.plugins.mttr;
+
+import hudson.Extension;
+import hudson.Util;
+import hudson.model.Job;
+import hudson.util.ListBoxModel;
+import hudson.views.ListViewColumn;
+import hudson.views.ListViewColumnDescriptor;
+import org.kohsuke.stapler.DataBoundConstructor;
+
+import java.io.IOException;
+
+/**
+ * MTTR of one of the configured {@link MetricWindow}s, for windows other than the 7 days, 30 days
+ * and all builds of the older columns.
+ */
+public class BuildMetricWindowResultColumn extends ListViewColumn implements ResultColumn {
+
+    private final int days;
+
+    /**
+     * @param days the days of the window, or 0 for all builds
+     */
+    @DataBoundConstructor
+    public BuildMetricWindowResultColumn(int days) {
+        this.days = days;
+    }
+
+    public int getDays() {
+        return days;
+    }
+
+    /**
+     * @return the window, or null if it is no longer configured
+     */
+    public MetricWindow getWindow() {
+        for (MetricWindow window : MetricWindow.all()) {
+            if (window.getDays() == days) {
+                return window;
+            }
+        }
+        return null;
+    }
+
+    public String getHeader() {
+        MetricWindow window = getWindow();
+        return Messages.windowBuildsColumnHeader(window == null ? days : window.getDisplayName());
+    }
+
+    @Override
+    public String getResult(Job job) throws IOException {
+        MetricWindow window = getWindow();
+        if (window == null) {
+            return Messages.canNotGetResult();
+        }
+        return Util.getPastTimeString(MetricsSnapshotCache.get(job).getValue(window.getName(MetricsAction.MTTR)));
+    }
+
+    @Override
+    public String getGraph(Job job) throws IOException {
+        return null;
+    }
+
+    @Extension
+    public static class DescriptorImpl extends ListViewColumnDescriptor {
+        public DescriptorImpl() {
+        }
+
+        public String getDisplayName() {
+            return Messages.windowBuildsColumnTitle();
+        }
+
+        @Override
+        public boolean shownByDefault() {
+            return false;
+        }
+
+        public ListBoxModel doFillDaysItems() {
+            ListBoxModel items = new ListBoxModel();
+            for (MetricWindow window : MetricWindow.all()) {
+                items.add(window.getDisplayName(), String.valueOf(window.getDays()));
+            }
+            return items;
+        }
+    }
+}
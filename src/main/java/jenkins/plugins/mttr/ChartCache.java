@@ -0,0 +1,122 @@
+package jenkins.plugins.mttr;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import hudson.model.Job;
+import jenkins.plugins.model.BuildMessage;
+import jenkins.plugins.util.BuildHistoryUtil;
+import jenkins.plugins.util.GraphUtil;
+import jenkins.util.SystemProperties;
+import org.jfree.chart.ChartUtils;
+import org.jfree.chart.JFreeChart;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Charts of the build history, drawn the first time somebody asks for them and kept until the
+ * job's history changes. Jobs nobody looks at never have a chart drawn.
+ */
+public final class ChartCache {
+
+    static final int MAXIMUM_SIZE = SystemProperties.getInteger(ChartCache.class.getName() + ".maximumSize", 200);
+    static final int WIDTH = 500;
+    static final int HEIGHT = 500;
+
+    private static final Cache<File, Chart> CHARTS = CacheBuilder.newBuilder()
+            .maximumSize(MAXIMUM_SIZE)
+            .build();
+
+    private ChartCache() {
+    }
+
+    /**
+     * A rendered PNG and the version of the history it was drawn from.
+     */
+    public static final class Chart {
+        private final String version;
+        private final long lastModified;
+        private final byte[] image;
+
+        Chart(String version, long lastModified, byte[] image) {
+            this.version = version;
+            this.lastModified = lastModified;
+            this.image = image;
+        }
+
+        public String getVersion() {
+            return version;
+        }
+
+        public long getLastModified() {
+            return lastModified;
+        }
+
+        public byte[] getImage() {
+            return image;
+        }
+    }
+
+    /**
+     * The version is the last build in the job's metrics together with the size of its history,
+     * which also changes when older builds are merged in.
+     */
+    public static String getVersion(Job job) {
+        File storeFile = getStoreFile(job);
+        return MetricsSnapshotCache.get(job).getLastBuildNumber() + "-" + storeFile.length();
+    }
+
+    /**
+     * Only returns a chart of the job's current version. Another request may put a chart of an
+     * older or newer version under the job between the check and the load, so the loaded chart is
+     * checked again and replaced until it is of this version.
+     */
+    public static Chart getStdDevChart(final Job job) throws IOException {
+        final String version = getVersion(job);
+        File key = job.getRootDir();
+        Chart chart = CHARTS.getIfPresent(key);
+        if (chart != null && chart.getVersion().equals(version)) {
+            PluginStats.CHART_HITS.increment();
+            return chart;
+        }
+        Callable<Chart> loader = new Callable<Chart>() {
+            @Override
+            public Chart call() throws IOException {
+                return renderStdDevChart(job, version);
+            }
+        };
+        while (chart == null || !chart.getVersion().equals(version)) {
+            if (chart != null) {
+                CHARTS.asMap().remove(key, chart);
+            }
+            try {
+                chart = CHARTS.get(key, loader);
+            } catch (ExecutionException e) {
+                throw new IOException("render chart error for " + job.getFullName(), e.getCause());
+            }
+        }
+        return chart;
+    }
+
+    private static Chart renderStdDevChart(Job job, String version) throws IOException {
+        PluginStats.CHART_MISSES.increment();
+        long start = System.nanoTime();
+        File storeFile = getStoreFile(job);
+        long lastModified = storeFile.lastModified();
+        List<BuildMessage> builds = BuildHistoryUtil.getBuildMessages(storeFile);
+        JFreeChart chart = GraphUtil.generateStdDevGraph("Standard Deviation of Build Time", builds);
+
+        ByteArrayOutputStream image = new ByteArrayOutputStream();
+        ChartUtils.writeChartAsPNG(image, chart, WIDTH, HEIGHT);
+        PluginStats.CHART_RENDER.record(System.nanoTime() - start);
+        return new Chart(version, lastModified, image.toByteArray());
+    }
+
+    private static File getStoreFile(Job job) {
+        return new File(job.getRootDir().getAbsolutePath() + File.separator + MetricsAction.BUILD_HISTORY_FILE_NAME);
+    }
+}
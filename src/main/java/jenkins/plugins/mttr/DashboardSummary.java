@@ -0,0 +1,145 @@
+package jenkins.plugins.mttr;
+
+import com.google.common.collect.MinMaxPriorityQueue;
+import com.google.common.collect.Ordering;
+import hudson.Util;
+import hudson.model.Job;
+import jenkins.plugins.model.MetricsSnapshot;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The metrics of many jobs at once: for each metric its average over the jobs that have a value
+ * for it, and the jobs that are worst at one of them. The longest MTTR or standard deviation is
+ * worst, and the shortest MTTF. Summaries of disjoint sets of jobs can be merged.
+ */
+public final class DashboardSummary {
+
+    static final List<String> METRICS = MetricsAction.METRIC_NAMES;
+
+    private final String sortKey;
+    private final Ordering<JobMetrics> worstFirst;
+    private final MinMaxPriorityQueue<JobMetrics> worstJobs;
+    private final long[] totals = new long[METRICS.size()];
+    private final int[] counts = new int[METRICS.size()];
+    private int jobCount;
+    private int pendingCount;
+
+    DashboardSummary(String sortKey, int top) {
+        this.sortKey = sortKey;
+        this.worstFirst = worstFirst(sortKey);
+        this.worstJobs = MinMaxPriorityQueue.orderedBy(worstFirst).maximumSize(top).create();
+    }
+
+    /**
+     * @param snapshot null if the job's metrics haven't been loaded yet
+     */
+    void add(Job job, MetricsSnapshot snapshot) {
+        jobCount++;
+        if (snapshot == null) {
+            pendingCount++;
+            return;
+        }
+        for (int i = 0; i < totals.length; i++) {
+            long value = snapshot.getValue(METRICS.get(i));
+            if (value > 0) {
+                totals[i] += value;
+                counts[i]++;
+            }
+        }
+        if (snapshot.getValue(sortKey) > 0) {
+            worstJobs.add(new JobMetrics(job, snapshot));
+        }
+    }
+
+    void merge(DashboardSummary other) {
+        for (int i = 0; i < totals.length; i++) {
+            totals[i] += other.totals[i];
+            counts[i] += other.counts[i];
+        }
+        jobCount += other.jobCount;
+        pendingCount += other.pendingCount;
+        worstJobs.addAll(other.worstJobs);
+    }
+
+    public String getSortKey() {
+        return sortKey;
+    }
+
+    public List<String> getMetrics() {
+        return METRICS;
+    }
+
+    public int getJobCount() {
+        return jobCount;
+    }
+
+    /**
+     * @return the number of jobs left out because their metrics are still being loaded
+     */
+    public int getPendingCount() {
+        return pendingCount;
+    }
+
+    public long getAverage(String metric) {
+        int i = METRICS.indexOf(metric);
+        return counts[i] == 0 ? 0L : totals[i] / counts[i];
+    }
+
+    public String getAverageString(String metric) {
+        return Util.getPastTimeString(getAverage(metric));
+    }
+
+    /**
+     * @return the jobs that are worst at the sort metric, worst first
+     */
+    public List<JobMetrics> getWorstJobs() {
+        List<JobMetrics> jobs = new ArrayList<JobMetrics>(worstJobs);
+        Collections.sort(jobs, worstFirst);
+        return jobs;
+    }
+
+    private static Ordering<JobMetrics> worstFirst(final String metric) {
+        Ordering<JobMetrics> byValue = new Ordering<JobMetrics>() {
+            @Override
+            public int compare(JobMetrics left, JobMetrics right) {
+                return Long.compare(left.getValue(metric), right.getValue(metric));
+            }
+        };
+        Ordering<JobMetrics> byName = new Ordering<JobMetrics>() {
+            @Override
+            public int compare(JobMetrics left, JobMetrics right) {
+                return left.getJob().getFullName().compareTo(right.getJob().getFullName());
+            }
+        };
+        return (isLongerBetter(metric) ? byValue : byValue.reverse()).compound(byName);
+    }
+
+    static boolean isLongerBetter(String metric) {
+        return metric.startsWith("mttf");
+    }
+
+    public static final class JobMetrics {
+        private final Job job;
+        private final MetricsSnapshot snapshot;
+
+        JobMetrics(Job job, MetricsSnapshot snapshot) {
+            this.job = job;
+            this.snapshot = snapshot;
+        }
+
+        public Job getJob() {
+            return job;
+        }
+
+        public long getValue(String metric) {
+            return snapshot.getValue(metric);
+        }
+
+        public String getValueString(String metric) {
+            return Util.getPastTimeString(snapshot.getValue(metric));
+        }
+    }
+}
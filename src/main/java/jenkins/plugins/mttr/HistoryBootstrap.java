@@ -0,0 +1,135 @@
+package jenkins.plugins.mttr;
+
+import com.google.common.util.concurrent.RateLimiter;
+import hudson.model.Job;
+import jenkins.plugins.model.BuildHistory;
+import jenkins.plugins.model.BuildMessage;
+import jenkins.plugins.model.BuildMetricState;
+import jenkins.plugins.util.BuildDirectoryUtil;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Reads the builds of a job that has no history yet from its build directories, newest first,
+ * so the recent windows are right early on. Only the fields the metrics need are kept; the
+ * {@code Run} objects are never loaded, and the builds are held in a {@link BuildHistory}.
+ *
+ * <p>Every {@link #PUBLISH_EVERY} builds the {@link MetricsUpdater} works out a state over the
+ * builds read so far on this thread. Updates of the job go on from that state until the next one,
+ * adding only their own builds. Once this is done the updater merges the builds into the history.
+ */
+final class HistoryBootstrap implements Runnable {
+
+    private static final Logger LOGGER = Logger.getLogger(HistoryBootstrap.class.getName());
+
+    static final int PUBLISH_EVERY = 1000;
+
+    private final Job job;
+    private final MetricsUpdater updater;
+    private final RateLimiter rateLimiter;
+
+    // newest first
+    private final BuildHistory builds = new BuildHistory();
+    // guarded by the job's lock in the updater
+    private BuildMetricState state;
+    private volatile int total = -1;
+    private volatile int read;
+    private volatile boolean done;
+
+    HistoryBootstrap(Job job, MetricsUpdater updater, RateLimiter rateLimiter) {
+        this.job = job;
+        this.updater = updater;
+        this.rateLimiter = rateLimiter;
+    }
+
+    @Override
+    public void run() {
+        try {
+            File buildsDir = job.getBuildDir();
+            int[] numbers = BuildDirectoryUtil.getBuildNumbers(buildsDir);
+            total = numbers.length;
+            LOGGER.info(String.format("reading build history of %s from %d builds", job.getFullName(), total));
+
+            for (int i = numbers.length - 1; i >= 0; i--) {
+                if (rateLimiter != null) {
+                    rateLimiter.acquire();
+                }
+                BuildMessage build = BuildDirectoryUtil.readBuildMessage(
+                        new File(buildsDir, String.valueOf(numbers[i])), numbers[i]);
+                if (build != null) {
+                    synchronized (this) {
+                        builds.add(build);
+                    }
+                }
+                read++;
+                if (read % PUBLISH_EVERY == 0) {
+                    updater.publish(job, this);
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            LOGGER.log(Level.WARNING, "read build history error for " + job.getFullName(), e);
+        } finally {
+            done = true;
+            updater.refresh(job);
+        }
+    }
+
+    /**
+     * Merges the builds read so far into the stored ones, the stored one winning where both have
+     * a build.
+     *
+     * @param storedHistory sorted by build number
+     * @return the merged builds, sorted by build number
+     */
+    synchronized BuildHistory mergeInto(BuildHistory storedHistory) {
+        BuildHistory merged = new BuildHistory(storedHistory.size() + builds.size());
+        int stored = 0;
+        int read = builds.size() - 1;
+        while (stored < storedHistory.size() || read >= 0) {
+            if (read < 0 || stored < storedHistory.size()
+                    && storedHistory.getBuildNumber(stored) <= builds.getBuildNumber(read)) {
+                if (read >= 0 && storedHistory.getBuildNumber(stored) == builds.getBuildNumber(read)) {
+                    read--;
+                }
+                add(merged, storedHistory, stored++);
+            } else {
+                add(merged, builds, read--);
+            }
+        }
+        return merged;
+    }
+
+    private static void add(BuildHistory to, BuildHistory from, int index) {
+        to.add(from.getBuildNumber(index), from.getStartTime(index), from.getDuration(index), from.getResult(index));
+    }
+
+    /**
+     * @return the state over the builds read up to the last publish and those the updates added
+     *         since, or null if there is none yet; only to be used holding the job's lock
+     */
+    BuildMetricState getState() {
+        return state;
+    }
+
+    void setState(BuildMetricState state) {
+        this.state = state;
+    }
+
+    /**
+     * @return the number of build directories, or -1 if they haven't been listed yet
+     */
+    int getTotal() {
+        return total;
+    }
+
+    int getRead() {
+        return read;
+    }
+
+    boolean isDone() {
+        return done;
+    }
+}
@@ -0,0 +1,97 @@
+package jenkins.plugins.mttr;
+
+import hudson.model.Job;
+import hudson.tasks.LogRotator;
+import jenkins.model.BuildDiscarder;
+import jenkins.plugins.model.BuildHistory;
+import jenkins.plugins.util.BuildHistoryUtil;
+import jenkins.util.SystemProperties;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * How much of a job's history is kept as rows: the last {@code buildsToKeep} builds and the
+ * builds of the last {@code daysToKeep} days, whichever is less, 0 meaning no limit. Builds
+ * outside of it are compacted into the history summary, so the all time metrics still count
+ * them. The day windows only see the rows, so keeping fewer days of builds than a window
+ * shortens it too.
+ *
+ * <p>Both limits are off unless set with system properties. With {@code mirrorBuildDiscarder}
+ * a job that discards old builds with a {@link LogRotator} keeps the history of the builds it
+ * keeps instead.
+ */
+final class HistoryRetention {
+
+    static final int BUILDS_TO_KEEP = SystemProperties.getInteger(HistoryRetention.class.getName() + ".buildsToKeep", 0);
+    static final int DAYS_TO_KEEP = SystemProperties.getInteger(HistoryRetention.class.getName() + ".daysToKeep", 0);
+    static final boolean MIRROR_BUILD_DISCARDER = SystemProperties.getBoolean(HistoryRetention.class.getName() + ".mirrorBuildDiscarder", false);
+
+    // rows are only compacted once there are at least this many to go, so a job at its limit
+    // doesn't rewrite its history for every build
+    private static final int MIN_BUILDS_TO_COMPACT = 100;
+
+    private static final HistoryRetention UNLIMITED = new HistoryRetention(0, 0);
+
+    private final int buildsToKeep;
+    private final int daysToKeep;
+
+    HistoryRetention(int buildsToKeep, int daysToKeep) {
+        this.buildsToKeep = Math.max(0, buildsToKeep);
+        this.daysToKeep = Math.max(0, daysToKeep);
+    }
+
+    static HistoryRetention forJob(Job job) {
+        if (MIRROR_BUILD_DISCARDER) {
+            BuildDiscarder discarder = job.getBuildDiscarder();
+            if (discarder instanceof LogRotator) {
+                LogRotator rotator = (LogRotator) discarder;
+                return new HistoryRetention(rotator.getNumToKeep(), rotator.getDaysToKeep());
+            }
+        }
+        if (BUILDS_TO_KEEP <= 0 && DAYS_TO_KEEP <= 0) {
+            return UNLIMITED;
+        }
+        return new HistoryRetention(BUILDS_TO_KEEP, DAYS_TO_KEEP);
+    }
+
+    boolean isUnlimited() {
+        return buildsToKeep == 0 && daysToKeep == 0;
+    }
+
+    /**
+     * Tells from the size of the history and its first record whether there is enough to compact,
+     * without reading the rest.
+     */
+    boolean shouldCompact(File storeFile, long now) throws IOException {
+        if (isUnlimited() || !storeFile.exists()) {
+            return false;
+        }
+        int slack = Math.max(MIN_BUILDS_TO_COMPACT, buildsToKeep / 10);
+        if (buildsToKeep > 0 && BuildHistoryUtil.getRecordCount(storeFile) - buildsToKeep >= slack) {
+            return true;
+        }
+        return daysToKeep > 0
+                && BuildHistoryUtil.getFirstStartTime(storeFile) < getCutoff(now) - TimeUnit.DAYS.toMillis(1);
+    }
+
+    /**
+     * @param sortedHistory in build number order
+     * @return how many builds at the start of the history are outside of the retention
+     */
+    int getBuildsToCompact(BuildHistory sortedHistory, long now) {
+        int count = buildsToKeep > 0 ? Math.max(0, sortedHistory.size() - buildsToKeep) : 0;
+        if (daysToKeep > 0) {
+            long cutoff = getCutoff(now);
+            while (count < sortedHistory.size() && sortedHistory.getStartTime(count) < cutoff) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private long getCutoff(long now) {
+        return now - TimeUnit.DAYS.toMillis(daysToKeep);
+    }
+}
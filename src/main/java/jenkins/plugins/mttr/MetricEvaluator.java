@@ -0,0 +1,73 @@
+package jenkins.plugins.mttr;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import jenkins.plugins.model.AggregateBuildMetric;
+import jenkins.plugins.model.BuildMetricState;
+import jenkins.plugins.model.MetricAccumulator;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Works out every metric for every window of a {@link BuildMetricState} from the totals the
+ * state keeps for its windows, which are read once per evaluation. A metric only reads the totals
+ * of a window, so another metric is one more entry here rather than another pass over the builds.
+ */
+final class MetricEvaluator {
+
+    /**
+     * One metric, named for the window whose totals it is worked out from.
+     */
+    interface Metric {
+        AggregateBuildMetric evaluate(MetricAccumulator builds, String name);
+    }
+
+    static final MetricEvaluator DEFAULT = new MetricEvaluator(defaultMetrics());
+
+    // by the key the metric is named after, in the order they are evaluated
+    private final ImmutableMap<String, Metric> metrics;
+
+    MetricEvaluator(ImmutableMap<String, Metric> metrics) {
+        this.metrics = metrics;
+    }
+
+    private static ImmutableMap<String, Metric> defaultMetrics() {
+        ImmutableMap.Builder<String, Metric> metrics = ImmutableMap.builder();
+        metrics.put(MetricsAction.MTTR, MetricAccumulator::toMTTRMetric);
+        metrics.put(MetricsAction.MTTF, MetricAccumulator::toMTTFMetric);
+        metrics.put(MetricsAction.STDDEV, MetricAccumulator::toStandardDeviationMetric);
+        for (int p = 0; p < MetricsAction.PERCENTILES.length; p++) {
+            double quantile = MetricsAction.QUANTILES[p];
+            metrics.put(MetricsAction.PERCENTILES[p], (builds, name) -> builds.toPercentileMetric(name, quantile));
+        }
+        return metrics.build();
+    }
+
+    List<String> getKeys() {
+        return ImmutableList.copyOf(metrics.keySet());
+    }
+
+    /**
+     * @return each metric for the state's windows and then all builds, metric by metric in the
+     *         order of {@link #getKeys()}
+     */
+    AggregateBuildMetric[] evaluate(BuildMetricState state, long now) {
+        return evaluate(MetricWindow.of(state.getWindowDays()), state.getWindowTotals(now));
+    }
+
+    /**
+     * @param totals the totals of each of the windows, in the same order
+     * @return each metric for the windows, metric by metric in the order of {@link #getKeys()}
+     */
+    AggregateBuildMetric[] evaluate(List<MetricWindow> windows, MetricAccumulator[] totals) {
+        AggregateBuildMetric[] result = new AggregateBuildMetric[metrics.size() * totals.length];
+        int i = 0;
+        for (Map.Entry<String, Metric> metric : metrics.entrySet()) {
+            for (int window = 0; window < totals.length; window++) {
+                result[i++] = metric.getValue().evaluate(totals[window], windows.get(window).getName(metric.getKey()));
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,130 @@
+package jenkins.plugins.mttr;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.primitives.Ints;
+import jenkins.util.SystemProperties;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.logging.Logger;
+
+/**
+ * A period the metrics are shown for: the builds of the last so many days, or all builds. The
+ * day windows are set for the whole controller with the {@code jenkins.plugins.mttr.MetricWindow.days}
+ * system property, a comma separated list of days that defaults to {@code 7,30}; all builds are
+ * always shown.
+ *
+ * <p>A metric of a window is named after both, {@code mttrLast7days} or {@code mttrAllBuilds}, so
+ * the names of the default windows are the ones the property files have always had.
+ */
+public final class MetricWindow {
+
+    private static final Logger LOGGER = Logger.getLogger(MetricWindow.class.getName());
+
+    static final String DAYS_PROPERTY = MetricWindow.class.getName() + ".days";
+    static final int[] DEFAULT_DAYS = {7, 30};
+
+    public static final MetricWindow ALL_BUILDS = new MetricWindow(0);
+
+    private static final int[] DAYS = parseDays(SystemProperties.getString(DAYS_PROPERTY, null));
+    private static final List<MetricWindow> WINDOWS = of(DAYS);
+
+    private final int days;
+
+    private MetricWindow(int days) {
+        this.days = days;
+    }
+
+    /**
+     * @return the configured day windows, shortest first, then {@link #ALL_BUILDS}
+     */
+    public static List<MetricWindow> all() {
+        return WINDOWS;
+    }
+
+    /**
+     * @return the configured day windows, shortest first
+     */
+    public static int[] getConfiguredDays() {
+        return DAYS.clone();
+    }
+
+    /**
+     * @param days day windows, shortest first
+     * @return the windows of those days, then {@link #ALL_BUILDS}
+     */
+    static List<MetricWindow> of(int[] days) {
+        ImmutableList.Builder<MetricWindow> windows = ImmutableList.builder();
+        for (int day : days) {
+            windows.add(new MetricWindow(day));
+        }
+        return windows.add(ALL_BUILDS).build();
+    }
+
+    /**
+     * Days that aren't positive numbers are left out, and so are repeats. If nothing is left,
+     * the default windows are used.
+     */
+    static int[] parseDays(String value) {
+        if (value == null || value.trim().isEmpty()) {
+            return DEFAULT_DAYS.clone();
+        }
+        TreeSet<Integer> days = new TreeSet<Integer>();
+        for (String part : value.split(",")) {
+            Integer day = Ints.tryParse(part.trim());
+            if (day == null || day <= 0) {
+                LOGGER.warning(String.format("ignoring metric window '%s' of %s", part.trim(), DAYS_PROPERTY));
+                continue;
+            }
+            days.add(day);
+        }
+        return days.isEmpty() ? DEFAULT_DAYS.clone() : Ints.toArray(days);
+    }
+
+    /**
+     * @return the names of the metrics for every window, metric by metric
+     */
+    static List<String> getNames(List<MetricWindow> windows, String... metrics) {
+        List<String> names = new ArrayList<String>(metrics.length * windows.size());
+        for (String metric : metrics) {
+            for (MetricWindow window : windows) {
+                names.add(window.getName(metric));
+            }
+        }
+        return names;
+    }
+
+    /**
+     * @return the number of days, or 0 for all builds
+     */
+    public int getDays() {
+        return days;
+    }
+
+    public boolean isAllBuilds() {
+        return days == 0;
+    }
+
+    public String getName(String metric) {
+        return isAllBuilds() ? metric + "AllBuilds" : metric + "Last" + days + "days";
+    }
+
+    public String getDisplayName() {
+        return isAllBuilds() ? Messages.metricWindowAllBuilds() : Messages.metricWindowLastDays(days);
+    }
+
+    /**
+     * @return the class of the window's rows on the job page
+     */
+    public String getStyleClass() {
+        return isAllBuilds() ? "all-time" : days + "day";
+    }
+
+    /**
+     * @return the value of the window label of the OpenMetrics gauges
+     */
+    public String getLabel() {
+        return isAllBuilds() ? "all" : days + "d";
+    }
+}
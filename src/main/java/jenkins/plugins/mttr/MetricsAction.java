@@ -1,20 +1,24 @@
 package jenkins.plugins.mttr;
 
-import com.google.common.collect.Lists;
+import com.google.common.collect.ImmutableMap;
 import hudson.Extension;
 import hudson.Util;
 import hudson.model.*;
 import hudson.model.listeners.RunListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletResponse;
+import jenkins.model.TransientActionFactory;
 import jenkins.plugins.model.*;
-import jenkins.plugins.util.GraphUtil;
-import jenkins.plugins.util.ReadUtil;
-import jenkins.plugins.util.StoreUtil;
-import org.jfree.chart.JFreeChart;
-import java.io.File;
+import org.kohsuke.stapler.StaplerRequest2;
+import org.kohsuke.stapler.StaplerResponse2;
+import org.kohsuke.stapler.export.Exported;
+import org.kohsuke.stapler.export.ExportedBean;
+
 import java.io.IOException;
 import java.util.*;
 import java.util.logging.Logger;
 
+@ExportedBean
 public class MetricsAction implements Action {
 
     private static final Logger LOGGER = Logger.getLogger(MetricsAction.class.getName());
@@ -30,13 +34,55 @@ public class MetricsAction implements Action {
     public static final String STDDEV_LAST_7_DAYS = "stddevLast7days";
     public static final String STDDEV_LAST_30_DAYS = "stddevLast30days";
     public static final String STDDEV_ALL_BUILDS = "stddevAllBuilds";
-    
-    public static final String ALL_BUILDS_FILE_NAME = "all_builds.mr";
 
-    private AbstractProject project;
+    public static final String P50_LAST_7_DAYS = "p50Last7days";
+    public static final String P50_LAST_30_DAYS = "p50Last30days";
+    public static final String P50_ALL_BUILDS = "p50AllBuilds";
+
+    public static final String P90_LAST_7_DAYS = "p90Last7days";
+    public static final String P90_LAST_30_DAYS = "p90Last30days";
+    public static final String P90_ALL_BUILDS = "p90AllBuilds";
 
-    public MetricsAction(AbstractProject project) {
-        this.project = project;
+    public static final String P99_LAST_7_DAYS = "p99Last7days";
+    public static final String P99_LAST_30_DAYS = "p99Last30days";
+    public static final String P99_ALL_BUILDS = "p99AllBuilds";
+    
+    public static final String ALL_BUILDS_FILE_NAME = "all_builds.mr";
+    public static final String BUILD_HISTORY_FILE_NAME = "all_builds.bin";
+
+    public static final String URL_NAME = "buildMetrics";
+
+    // metrics named for each MetricWindow
+    static final String MTTR = "mttr";
+    static final String MTTF = "mttf";
+    static final String STDDEV = "stddev";
+    static final String[] PERCENTILES = {"p50", "p90", "p99"};
+    static final double[] QUANTILES = {0.5, 0.9, 0.99};
+
+    /**
+     * MTTR, MTTF and build time standard deviation, each for the configured windows and all builds.
+     */
+    static final List<String> METRIC_NAMES = Collections.unmodifiableList(
+            MetricWindow.getNames(MetricWindow.all(), MTTR, MTTF, STDDEV));
+
+    static final List<String> PERCENTILE_NAMES = Collections.unmodifiableList(
+            MetricWindow.getNames(MetricWindow.all(), PERCENTILES));
+
+    static final Map<String, String> METRIC_LABELS = ImmutableMap.of(
+            MTTR, "MTTR",
+            MTTF, "MTTF",
+            STDDEV, "Standard Deviation",
+            PERCENTILES[0], "Median Build Time",
+            PERCENTILES[1], "90th Percentile Build Time",
+            PERCENTILES[2], "99th Percentile Build Time");
+
+    private final Job job;
+
+    /**
+     * Only keeps the job: the metrics are read when the page or the API asks for them.
+     */
+    public MetricsAction(Job job) {
+        this.job = job;
     }
 
     @Override
@@ -50,103 +96,189 @@ public class MetricsAction implements Action {
     }
 
     public String getUrlName() {
-        return null;
+        return URL_NAME;
     }
 
     public Map<String, String> getMetricMap() throws IOException {
         Map<String, String> result = new HashMap<String, String>();
 
-        Properties properties = new Properties();
-        properties.putAll(ReadUtil.getJobProperties(MTTRMetric.class, project));
-        properties.putAll(ReadUtil.getJobProperties(MTTFMetric.class, project));
-        properties.putAll(ReadUtil.getJobProperties(StandardDeviationMetric.class, project));
+        MetricsSnapshot snapshot = MetricsSnapshotCache.get(job);
 
-        result.put(MetricsAction.MTTR_LAST_7_DAYS, getPropertyOrDefault(properties, MetricsAction.MTTR_LAST_7_DAYS, "0"));
-        result.put(MetricsAction.MTTR_LAST_30_DAYS, getPropertyOrDefault(properties, MetricsAction.MTTR_LAST_30_DAYS, "0"));
-        result.put(MetricsAction.MTTR_ALL_BUILDS, getPropertyOrDefault(properties, MetricsAction.MTTR_ALL_BUILDS, "0"));
-
-        result.put(MetricsAction.MTTF_LAST_7_DAYS, getPropertyOrDefault(properties, MetricsAction.MTTF_LAST_7_DAYS, "0"));
-        result.put(MetricsAction.MTTF_LAST_30_DAYS, getPropertyOrDefault(properties, MetricsAction.MTTF_LAST_30_DAYS, "0"));
-        result.put(MetricsAction.MTTF_ALL_BUILDS, getPropertyOrDefault(properties, MetricsAction.MTTF_ALL_BUILDS, "0"));
-
-        result.put(MetricsAction.STDDEV_LAST_7_DAYS, getPropertyOrDefault(properties, MetricsAction.STDDEV_LAST_7_DAYS, "0"));
-        result.put(MetricsAction.STDDEV_LAST_30_DAYS, getPropertyOrDefault(properties, MetricsAction.STDDEV_LAST_30_DAYS, "0"));
-        result.put(MetricsAction.STDDEV_ALL_BUILDS, getPropertyOrDefault(properties, MetricsAction.STDDEV_ALL_BUILDS, "0"));
+        for (String name : METRIC_NAMES) {
+            result.put(name, getPastTimeString(snapshot, name));
+        }
+        for (String name : PERCENTILE_NAMES) {
+            result.put(name, getPastTimeString(snapshot, name));
+        }
 
         return result;
     }
 
-    private String getPropertyOrDefault(Properties properties, String key, String defaultValue) {
-        String duration = properties.containsKey(key)?
-                properties.getProperty(key):defaultValue;
+    /**
+     * @return the windows the metrics are shown for, the day windows shortest first, then all builds
+     */
+    public List<MetricWindow> getWindows() {
+        return MetricWindow.all();
+    }
 
-        return Util.getPastTimeString(Long.parseLong(duration));
+    /**
+     * @return the row labels of the job page by metric, in the order they are shown
+     */
+    public Map<String, String> getMetricLabels() {
+        return METRIC_LABELS;
     }
 
-    @Extension
-    public static final class ProjectActionFactory extends TransientProjectActionFactory {
+    /**
+     * Serves {@code api/json} with an ETag made from the job's metrics snapshot, so clients
+     * polling with {@code If-None-Match} get a 304 from memory until the metrics change.
+     */
+    public Api getApi() {
+        return new Api(this) {
+            @Override
+            public void doJson(StaplerRequest2 req, StaplerResponse2 rsp) throws IOException, ServletException {
+                job.checkPermission(Item.READ);
+
+                String etag = "\"" + MetricsSnapshotCache.get(job).getVersion() + "\"";
+                rsp.setHeader("ETag", etag);
+                rsp.setHeader("Cache-Control", "private, no-cache");
+                if (etag.equals(req.getHeader("If-None-Match"))) {
+                    rsp.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+                    return;
+                }
+                super.doJson(req, rsp);
+            }
+        };
+    }
 
-        @Override
-        public Collection<? extends Action> createFor(AbstractProject target) {
-            return Collections.singleton(new MetricsAction(target));
-        }
+    /**
+     * @return the number of the last build in the metrics, or 0 if it isn't known
+     */
+    @Exported
+    public long getLastBuildNumber() {
+        return MetricsSnapshotCache.get(job).getLastBuildNumber();
     }
 
-    @Extension
-    public static class RunListenerImpl extends RunListener<Run> {
+    /**
+     * @return the metrics in milliseconds, MTTR, MTTF, build time standard deviation and the 50th,
+     *         90th and 99th percentile of the build time, each for the configured windows and all
+     *         builds
+     */
+    @Exported(inline = true)
+    public List<Metric> getMetrics() {
+        MetricsSnapshot snapshot = MetricsSnapshotCache.get(job);
+        List<Metric> metrics = new ArrayList<Metric>(METRIC_NAMES.size() + PERCENTILE_NAMES.size());
+        for (String name : METRIC_NAMES) {
+            metrics.add(new Metric(name, snapshot.getValue(name), snapshot.getOccurences(name)));
+        }
+        for (String name : PERCENTILE_NAMES) {
+            metrics.add(new Metric(name, snapshot.getValue(name), snapshot.getOccurences(name)));
+        }
+        return metrics;
+    }
 
-        public RunListenerImpl() {}
+    /**
+     * @return a note saying how much of the build history has been read, or null once it all has
+     */
+    public String getHistoryProgress() {
+        return MetricsUpdater.get().getBootstrapProgress(job);
+    }
 
-        public void onCompleted(Run run, TaskListener listener) {
-            File storeFile = new File(run.getParent().getRootDir().getAbsolutePath()
-                    + File.separator + ALL_BUILDS_FILE_NAME);
+    /**
+     * Serves the standard deviation chart as a PNG, drawn on the first request after the history
+     * changed. Browsers revalidate it with {@code If-None-Match} or {@code If-Modified-Since}.
+     */
+    public void doStddevGraph(StaplerRequest2 req, StaplerResponse2 rsp) throws IOException {
+        job.checkPermission(Item.READ);
+
+        String etag = "\"" + ChartCache.getVersion(job) + "\"";
+        rsp.setHeader("Cache-Control", "private, no-cache");
+        if (etag.equals(req.getHeader("If-None-Match"))) {
+            rsp.setHeader("ETag", etag);
+            rsp.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
 
-            StoreUtil.storeBuildMessages(storeFile, run);
+        ChartCache.Chart chart = ChartCache.getStdDevChart(job);
+        long lastModified = chart.getLastModified() / 1000 * 1000;
+        rsp.setHeader("ETag", "\"" + chart.getVersion() + "\"");
+        rsp.setDateHeader("Last-Modified", lastModified);
+        if (req.getHeader("If-None-Match") == null && req.getDateHeader("If-Modified-Since") >= lastModified) {
+            rsp.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
 
-            List<BuildMessage> buildMessages = ReadUtil.getBuildMessageFrom(storeFile);
+        rsp.setContentType("image/png");
+        rsp.setContentLength(chart.getImage().length);
+        rsp.getOutputStream().write(chart.getImage());
+    }
 
-            AggregateBuildMetric mttrLast7DayInfo = new MTTRMetric(MTTR_LAST_7_DAYS, cutListByAgoDays(buildMessages, -7));
-            AggregateBuildMetric mttrLast30DayInfo = new MTTRMetric(MTTR_LAST_30_DAYS, cutListByAgoDays(buildMessages, -30));
-            AggregateBuildMetric mttrAllFailedInfo = new MTTRMetric(MTTR_ALL_BUILDS, buildMessages);
+    private String getPastTimeString(MetricsSnapshot snapshot, String key) {
+        return Util.getPastTimeString(snapshot.getValue(key));
+    }
 
-            StoreUtil.storeBuildMetric(MTTRMetric.class, run,
-                    mttrLast7DayInfo, mttrLast30DayInfo, mttrAllFailedInfo);
+    @ExportedBean(defaultVisibility = 2)
+    public static final class Metric {
+        private final String name;
+        private final long value;
+        private final int occurences;
 
-            AggregateBuildMetric mttfLast7DayInfo = new MTTFMetric(MTTF_LAST_7_DAYS, cutListByAgoDays(buildMessages, -7));
-            AggregateBuildMetric mttfLast30DayInfo = new MTTFMetric(MTTF_LAST_30_DAYS, cutListByAgoDays(buildMessages, -30));
-            AggregateBuildMetric mttfAllBuilds = new MTTFMetric(MTTF_ALL_BUILDS, buildMessages);
+        Metric(String name, long value, int occurences) {
+            this.name = name;
+            this.value = value;
+            this.occurences = occurences;
+        }
 
-            StoreUtil.storeBuildMetric(MTTFMetric.class, run,
-                    mttfLast7DayInfo, mttfLast30DayInfo, mttfAllBuilds);
+        @Exported
+        public String getName() {
+            return name;
+        }
 
-            AggregateBuildMetric stdDevLast7DayInfo = new StandardDeviationMetric(STDDEV_LAST_7_DAYS, cutListByAgoDays(buildMessages, -7));
-            AggregateBuildMetric stdDevLast30DayInfo = new StandardDeviationMetric(STDDEV_LAST_30_DAYS, cutListByAgoDays(buildMessages, -30));
-            AggregateBuildMetric stdDevAllFailedInfo = new StandardDeviationMetric(STDDEV_ALL_BUILDS, buildMessages);
+        @Exported
+        public long getValue() {
+            return value;
+        }
 
-            StoreUtil.storeBuildMetric(StandardDeviationMetric.class, run,
-                    stdDevLast7DayInfo, stdDevLast30DayInfo, stdDevAllFailedInfo);
+        /**
+         * @return the number of recoveries, failures or builds the value is taken from
+         */
+        @Exported(name = "occurrences")
+        public int getOccurences() {
+            return occurences;
+        }
+    }
 
-            JFreeChart stddevChart = GraphUtil.generateStdDevGraph("Standard Deviation of Build Time", buildMessages);
-            //JFreeChart mttfChart = GraphUtil.generateStdDevGraph("Mean time to Failure", buildMessages);
-            //JFreeChart mttrChart = GraphUtil.generateStdDevGraph("Mean time to Recovery", buildMessages);
+    /**
+     * Adds the action to every kind of job, Pipeline jobs included, since the listener records
+     * the builds of all of them.
+     */
+    @Extension
+    public static final class JobActionFactory extends TransientActionFactory<Job> {
 
-            StoreUtil.storeGraph(StandardDeviationMetric.class, run, stddevChart);
-            //StoreUtil.storeGraph(MTTFMetric.class, run, mttfChart);
-            //StoreUtil.storeGraph(MTTRMetric.class, run, mttrChart);
+        @Override
+        public Class<Job> type() {
+            return Job.class;
         }
 
-        private List<BuildMessage> cutListByAgoDays(List<BuildMessage> builds, int daysAgo) {
-            Calendar calendar = Calendar.getInstance();
-            calendar.add(Calendar.DATE, daysAgo);
+        @Override
+        public Class<MetricsAction> actionType() {
+            return MetricsAction.class;
+        }
 
-            List<BuildMessage> subList = Lists.newArrayList();
-            for (BuildMessage build : builds) {
-                if (build.getStartTime() > calendar.getTimeInMillis()) {
-                    subList.add(build);
-                }
-            }
-            return subList;
+        @Override
+        public Collection<? extends Action> createFor(Job target) {
+            return Collections.singleton(new MetricsAction(target));
         }
+    }
 
+    @Extension
+    public static class RunListenerImpl extends RunListener<Run> {
+
+        public RunListenerImpl() {}
+
+        public void onCompleted(Run run, TaskListener listener) {
+            long start = System.nanoTime();
+            MetricsUpdater.get().submit(run);
+            PluginStats.ON_COMPLETED.record(System.nanoTime() - start);
+        }
     }
 }
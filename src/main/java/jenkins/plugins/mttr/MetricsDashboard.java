@@ -0,0 +1,157 @@
+package jenkins.plugins.mttr;
+
+import com.google.common.primitives.Ints;
+import hudson.Extension;
+import hudson.model.Job;
+import hudson.model.ManagementLink;
+import hudson.security.Permission;
+import jenkins.model.Jenkins;
+import jenkins.plugins.model.MetricsSnapshot;
+import org.kohsuke.stapler.HttpResponse;
+import org.kohsuke.stapler.HttpResponses;
+import org.kohsuke.stapler.interceptor.RequirePOST;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Metrics of every job on the controller, under Manage Jenkins. The page is summarized from the
+ * {@link MetricsSnapshotCache} in parallel and never reads a job's files itself: jobs whose
+ * metrics aren't in memory yet are counted as pending and loaded in the background.
+ *
+ * <p>Administrators can start a {@link MetricsRebuild} of every job from here and follow it. What
+ * the plugin itself costs the controller is on the {@link PluginStats diagnostics} page.
+ */
+@Extension
+public class MetricsDashboard extends ManagementLink {
+
+    static final int DEFAULT_TOP = 20;
+    static final int MAXIMUM_TOP = 500;
+
+    // jobs summarized by one task before it stops splitting
+    private static final int JOBS_PER_TASK = 256;
+
+    @Override
+    public String getIconFileName() {
+        return "symbol-analytics";
+    }
+
+    @Override
+    public String getDisplayName() {
+        return Messages.metricsDashboardDisplayName();
+    }
+
+    @Override
+    public String getDescription() {
+        return Messages.metricsDashboardDescription();
+    }
+
+    @Override
+    public String getUrlName() {
+        return MetricsAction.URL_NAME;
+    }
+
+    @Override
+    public Permission getRequiredPermission() {
+        return Jenkins.SYSTEM_READ;
+    }
+
+    @Override
+    public Category getCategory() {
+        return Category.STATUS;
+    }
+
+    /**
+     * @return the windows the metrics are shown for, the day windows shortest first, then all builds
+     */
+    public List<MetricWindow> getWindows() {
+        return MetricWindow.all();
+    }
+
+    /**
+     * @param sort the metric to find the worst jobs by, MTTR of all builds if not given
+     * @param top how many of the worst jobs to list
+     */
+    public DashboardSummary getSummary(String sort, String top) {
+        Jenkins jenkins = Jenkins.get();
+        jenkins.checkPermission(Jenkins.SYSTEM_READ);
+
+        String sortKey = DashboardSummary.METRICS.contains(sort) ? sort : MetricsAction.MTTR_ALL_BUILDS;
+        Integer count = top == null ? null : Ints.tryParse(top);
+        int limit = count == null || count <= 0 ? DEFAULT_TOP : Math.min(count, MAXIMUM_TOP);
+        return summarize(jenkins.getAllItems(Job.class), sortKey, limit);
+    }
+
+    /**
+     * @return the last rebuild of every job's metrics, or null if there was none
+     */
+    public MetricsRebuild getRebuild() {
+        return MetricsUpdater.get().getRebuild();
+    }
+
+    /**
+     * @return the plugin's own timers and counters, at {@code diagnostics/}
+     */
+    public PluginStats getDiagnostics() {
+        Jenkins.get().checkPermission(Jenkins.SYSTEM_READ);
+        return PluginStats.INSTANCE;
+    }
+
+    @RequirePOST
+    public HttpResponse doRebuild() {
+        Jenkins jenkins = Jenkins.get();
+        jenkins.checkPermission(Jenkins.ADMINISTER);
+        MetricsUpdater.get().rebuildAll(jenkins.getAllItems(Job.class));
+        return HttpResponses.redirectToDot();
+    }
+
+    @RequirePOST
+    public HttpResponse doCancelRebuild() {
+        Jenkins.get().checkPermission(Jenkins.ADMINISTER);
+        MetricsRebuild rebuild = getRebuild();
+        if (rebuild != null) {
+            rebuild.cancel();
+        }
+        return HttpResponses.redirectToDot();
+    }
+
+    static DashboardSummary summarize(List<Job> jobs, String sortKey, int top) {
+        return ForkJoinPool.commonPool().invoke(new SummaryTask(jobs, 0, jobs.size(), sortKey, top));
+    }
+
+    private static final class SummaryTask extends RecursiveTask<DashboardSummary> {
+        private final List<Job> jobs;
+        private final int from;
+        private final int to;
+        private final String sortKey;
+        private final int top;
+
+        SummaryTask(List<Job> jobs, int from, int to, String sortKey, int top) {
+            this.jobs = jobs;
+            this.from = from;
+            this.to = to;
+            this.sortKey = sortKey;
+            this.top = top;
+        }
+
+        @Override
+        protected DashboardSummary compute() {
+            if (to - from <= JOBS_PER_TASK) {
+                DashboardSummary summary = new DashboardSummary(sortKey, top);
+                for (int i = from; i < to; i++) {
+                    Job job = jobs.get(i);
+                    MetricsSnapshot snapshot = MetricsSnapshotCache.getIfLoaded(job);
+                    summary.add(job, snapshot);
+                }
+                return summary;
+            }
+            int middle = (from + to) >>> 1;
+            SummaryTask left = new SummaryTask(jobs, from, middle, sortKey, top);
+            left.fork();
+            DashboardSummary summary = new SummaryTask(jobs, middle, to, sortKey, top).compute();
+            summary.merge(left.join());
+            return summary;
+        }
+    }
+}
@@ -0,0 +1,201 @@
+package jenkins.plugins.mttr;
+
+import hudson.Extension;
+import hudson.model.Job;
+import hudson.model.RootAction;
+import jenkins.model.Jenkins;
+import jenkins.plugins.model.MetricsSnapshot;
+import org.kohsuke.stapler.StaplerRequest2;
+import org.kohsuke.stapler.StaplerResponse2;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+
+/**
+ * Every job's metrics in the OpenMetrics text format, for Prometheus to scrape at
+ * {@code /buildMetricsExposition/}, or in the Prometheus text format for scrapers that don't ask
+ * for OpenMetrics. The MTTR, MTTF and standard deviation are gauges and the percentiles of the
+ * build duration a summary, with the number of builds as its count. They are labelled with the
+ * job's full name and the window, and their values are in seconds.
+ *
+ * <p>A scrape is written straight from the {@link MetricsSnapshotCache} and never reads a file.
+ * Jobs whose snapshot isn't in memory are left out, counted by a gauge of their own, and loaded
+ * in the background for the next scrape.
+ */
+@Extension
+public class MetricsExposition implements RootAction {
+
+    public static final String URL_NAME = "buildMetricsExposition";
+
+    static final String OPENMETRICS_CONTENT_TYPE = "application/openmetrics-text; version=1.0.0; charset=utf-8";
+    static final String TEXT_CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private static final String[] FAMILIES = {MetricsAction.MTTR, MetricsAction.MTTF, MetricsAction.STDDEV};
+    private static final String[] HELP = {
+            "Mean time to repair, from the first broken build to the next successful one.",
+            "Mean time to failure, from the first build that did not fail to the next failed one.",
+            "Standard deviation of the build duration."};
+    private static final String[] QUANTILES = {"0.5", "0.9", "0.99"};
+
+    private final List<MetricWindow> windows;
+
+    public MetricsExposition() {
+        this(MetricWindow.all());
+    }
+
+    MetricsExposition(List<MetricWindow> windows) {
+        this.windows = windows;
+    }
+
+    @Override
+    public String getIconFileName() {
+        return null;
+    }
+
+    @Override
+    public String getDisplayName() {
+        return null;
+    }
+
+    @Override
+    public String getUrlName() {
+        return URL_NAME;
+    }
+
+    public void doIndex(StaplerRequest2 req, StaplerResponse2 rsp) throws IOException {
+        Jenkins jenkins = Jenkins.get();
+        jenkins.checkPermission(Jenkins.READ);
+
+        String accept = req.getHeader("Accept");
+        boolean openMetrics = accept != null && accept.contains("application/openmetrics-text");
+        rsp.setContentType(openMetrics ? OPENMETRICS_CONTENT_TYPE : TEXT_CONTENT_TYPE);
+        rsp.setHeader("Cache-Control", "no-cache");
+        try (Writer out = rsp.getWriter()) {
+            write(out, jenkins.getAllItems(Job.class), openMetrics);
+        }
+    }
+
+    /**
+     * @param openMetrics whether to end with the {@code # EOF} that OpenMetrics has and the
+     *                    Prometheus text format doesn't
+     */
+    void write(Writer out, List<Job> jobs, boolean openMetrics) throws IOException {
+        MetricsSnapshot[] snapshots = new MetricsSnapshot[jobs.size()];
+        int pending = 0;
+        for (int i = 0; i < snapshots.length; i++) {
+            snapshots[i] = MetricsSnapshotCache.getIfLoaded(jobs.get(i));
+            if (snapshots[i] == null) {
+                pending++;
+            }
+        }
+
+        // the samples of a family have to be written together
+        for (int family = 0; family < FAMILIES.length; family++) {
+            String name = "jenkins_build_history_" + FAMILIES[family] + "_seconds";
+            writeHeader(out, name, "gauge", HELP[family]);
+            for (int i = 0; i < snapshots.length; i++) {
+                if (snapshots[i] == null) {
+                    continue;
+                }
+                String fullName = jobs.get(i).getFullName();
+                for (MetricWindow window : windows) {
+                    writeLabels(out, name, fullName, window, null);
+                    writeSeconds(out, snapshots[i].getValue(window.getName(FAMILIES[family])));
+                    out.write('\n');
+                }
+            }
+        }
+
+        String durationName = "jenkins_build_history_duration_seconds";
+        writeHeader(out, durationName, "summary", "Percentiles of the build duration.");
+        for (int i = 0; i < snapshots.length; i++) {
+            if (snapshots[i] == null) {
+                continue;
+            }
+            String fullName = jobs.get(i).getFullName();
+            // the quantiles and count of a window have to be written together; there is no sum
+            for (MetricWindow window : windows) {
+                for (int quantile = 0; quantile < QUANTILES.length; quantile++) {
+                    writeLabels(out, durationName, fullName, window, QUANTILES[quantile]);
+                    writeSeconds(out, snapshots[i].getValue(window.getName(MetricsAction.PERCENTILES[quantile])));
+                    out.write('\n');
+                }
+                writeLabels(out, durationName + "_count", fullName, window, null);
+                out.write(Integer.toString(snapshots[i].getOccurences(window.getName(MetricsAction.PERCENTILES[0]))));
+                out.write('\n');
+            }
+        }
+
+        out.write("# TYPE jenkins_build_history_pending_jobs gauge\n");
+        out.write("# HELP jenkins_build_history_pending_jobs Jobs left out because their metrics are still being loaded.\n");
+        out.write("jenkins_build_history_pending_jobs ");
+        out.write(Integer.toString(pending));
+        out.write('\n');
+        if (openMetrics) {
+            out.write("# EOF\n");
+        }
+    }
+
+    private static void writeHeader(Writer out, String name, String type, String help) throws IOException {
+        out.write("# TYPE ");
+        out.write(name);
+        out.write(' ');
+        out.write(type);
+        out.write("\n# HELP ");
+        out.write(name);
+        out.write(' ');
+        out.write(help);
+        out.write('\n');
+    }
+
+    /**
+     * Writes the name and labels of a sample, up to its value.
+     *
+     * @param quantile the quantile label, or null if the sample has none
+     */
+    private static void writeLabels(Writer out, String name, String fullName, MetricWindow window,
+                                    String quantile) throws IOException {
+        out.write(name);
+        out.write("{job=\"");
+        writeLabelValue(out, fullName);
+        out.write("\",window=\"");
+        out.write(window.getLabel());
+        if (quantile != null) {
+            out.write("\",quantile=\"");
+            out.write(quantile);
+        }
+        out.write("\"} ");
+    }
+
+    /**
+     * Writes the milliseconds as seconds with three decimals, without going through a double.
+     */
+    static void writeSeconds(Writer out, long millis) throws IOException {
+        if (millis < 0) {
+            out.write('-');
+            millis = -millis;
+        }
+        out.write(Long.toString(millis / 1000));
+        out.write('.');
+        long fraction = millis % 1000;
+        out.write((char) ('0' + fraction / 100));
+        out.write((char) ('0' + fraction / 10 % 10));
+        out.write((char) ('0' + fraction % 10));
+    }
+
+    private static void writeLabelValue(Writer out, String value) throws IOException {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '\\') {
+                out.write("\\\\");
+            } else if (c == '"') {
+                out.write("\\\"");
+            } else if (c == '\n') {
+                out.write("\\n");
+            } else {
+                out.write(c);
+            }
+        }
+    }
+}
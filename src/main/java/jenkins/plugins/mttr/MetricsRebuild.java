@@ -0,0 +1,214 @@
+package jenkins.plugins.mttr;
+
+import com.google.common.util.concurrent.RateLimiter;
+import hudson.model.Job;
+import jenkins.plugins.model.BuildHistory;
+import jenkins.plugins.model.BuildMessage;
+import jenkins.plugins.util.BuildDirectoryUtil;
+import jenkins.util.SystemProperties;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Reads the builds of many jobs from their build directories again and recomputes their metrics
+ * with {@link MetricsUpdater#rebuild}, for jobs that haven't built since the plugin was installed
+ * or whose files were lost. It is started from the dashboard or the
+ * {@link RebuildMetricsCommand rebuild-build-history-metrics} command.
+ *
+ * <p>{@code threads} jobs are rebuilt at a time, and together they read no more than
+ * {@code buildsPerSecond} build directories a second, so the builds running meanwhile keep most
+ * of the disk. A cancelled rebuild starts no more jobs and drops the ones it is reading; the jobs
+ * it has finished keep their rebuilt metrics.
+ */
+public final class MetricsRebuild implements Runnable {
+
+    private static final Logger LOGGER = Logger.getLogger(MetricsRebuild.class.getName());
+
+    static final int THREADS = SystemProperties.getInteger(MetricsRebuild.class.getName() + ".threads", 4);
+    static final int BUILDS_PER_SECOND = SystemProperties.getInteger(MetricsRebuild.class.getName() + ".buildsPerSecond", 1000);
+
+    private final MetricsUpdater updater;
+    private final List<Job> jobs;
+    private final RateLimiter rateLimiter;
+    private final int threads;
+
+    private final AtomicInteger next = new AtomicInteger();
+    private final AtomicInteger done = new AtomicInteger();
+    private final AtomicInteger failed = new AtomicInteger();
+    private final CountDownLatch finished;
+    private final ConcurrentMap<String, JobProgress> running = new ConcurrentHashMap<String, JobProgress>();
+    // a line for each job done, in the order they were done
+    private final List<String> results = Collections.synchronizedList(new ArrayList<String>());
+    private volatile boolean cancelled;
+
+    MetricsRebuild(MetricsUpdater updater, List<Job> jobs, RateLimiter rateLimiter, int threads) {
+        this.updater = updater;
+        this.jobs = jobs;
+        this.rateLimiter = rateLimiter;
+        this.threads = Math.max(1, threads);
+        this.finished = new CountDownLatch(this.threads);
+    }
+
+    /**
+     * Runs the rebuild on threads of {@code executor}, which is shut down so its threads go away
+     * when the rebuild is done.
+     */
+    void start(ExecutorService executor) {
+        for (int i = 0; i < threads; i++) {
+            executor.execute(this);
+        }
+        executor.shutdown();
+    }
+
+    @Override
+    public void run() {
+        try {
+            int i;
+            while (!cancelled && (i = next.getAndIncrement()) < jobs.size()) {
+                if (rebuild(jobs.get(i))) {
+                    done.incrementAndGet();
+                }
+            }
+        } finally {
+            finished.countDown();
+        }
+    }
+
+    /**
+     * @return false if the rebuild was cancelled before the job was done
+     */
+    private boolean rebuild(Job job) {
+        String name = job.getFullName();
+        JobProgress progress = new JobProgress(name);
+        running.put(name, progress);
+        try {
+            File buildsDir = job.getBuildDir();
+            int[] numbers = BuildDirectoryUtil.getBuildNumbers(buildsDir);
+            progress.total = numbers.length;
+            // in build number order, as the numbers are
+            BuildHistory builds = new BuildHistory(numbers.length);
+            for (int number : numbers) {
+                if (cancelled) {
+                    return false;
+                }
+                if (rateLimiter != null) {
+                    rateLimiter.acquire();
+                }
+                BuildMessage build = BuildDirectoryUtil.readBuildMessage(new File(buildsDir, String.valueOf(number)), number);
+                if (build != null) {
+                    builds.add(build);
+                }
+                progress.read++;
+            }
+            if (updater.rebuild(job, builds)) {
+                results.add(Messages.metricsRebuildJobDone(name, builds.size()));
+            } else {
+                results.add(Messages.metricsRebuildJobSkipped(name));
+            }
+        } catch (IOException | RuntimeException e) {
+            LOGGER.log(Level.WARNING, "rebuild metrics error for " + name, e);
+            failed.incrementAndGet();
+            results.add(Messages.metricsRebuildJobFailed(name, e.getMessage()));
+        } finally {
+            running.remove(name);
+        }
+        return true;
+    }
+
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    public boolean isDone() {
+        return finished.getCount() == 0;
+    }
+
+    /**
+     * @return true if the rebuild is done, false if it is still running after the timeout
+     */
+    public boolean awaitDone(long timeout, TimeUnit unit) throws InterruptedException {
+        return finished.await(timeout, unit);
+    }
+
+    public int getTotal() {
+        return jobs.size();
+    }
+
+    /**
+     * @return the jobs done, including the ones that failed
+     */
+    public int getDone() {
+        return done.get();
+    }
+
+    public int getFailed() {
+        return failed.get();
+    }
+
+    public String getProgress() {
+        if (cancelled) {
+            return Messages.metricsRebuildCancelled(getDone(), getTotal(), getFailed());
+        }
+        return Messages.metricsRebuildProgress(getDone(), getTotal(), getFailed());
+    }
+
+    /**
+     * @return the jobs being rebuilt right now
+     */
+    public List<JobProgress> getRunning() {
+        return new ArrayList<JobProgress>(running.values());
+    }
+
+    /**
+     * @return a line for each job done, from the {@code from}th job done on
+     */
+    public List<String> getResults(int from) {
+        synchronized (results) {
+            return new ArrayList<String>(results.subList(Math.min(from, results.size()), results.size()));
+        }
+    }
+
+    /**
+     * How far reading the build directories of one job has got.
+     */
+    public static final class JobProgress {
+        private final String jobName;
+        private volatile int read;
+        private volatile int total = -1;
+
+        JobProgress(String jobName) {
+            this.jobName = jobName;
+        }
+
+        public String getJobName() {
+            return jobName;
+        }
+
+        public int getRead() {
+            return read;
+        }
+
+        /**
+         * @return the number of build directories, or -1 if they haven't been listed yet
+         */
+        public int getTotal() {
+            return total;
+        }
+    }
+}
@@ -0,0 +1,230 @@
+package jenkins.plugins.mttr;
+
+import hudson.Extension;
+import hudson.model.Item;
+import hudson.model.ItemGroup;
+import hudson.model.Job;
+import hudson.model.listeners.ItemListener;
+import hudson.security.ACL;
+import hudson.security.ACLContext;
+import jenkins.plugins.model.BuildMetricState;
+import jenkins.plugins.model.MetricAccumulator;
+import jenkins.plugins.util.ReadUtil;
+import jenkins.plugins.util.StoreUtil;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+/**
+ * Metrics of folders, multibranch projects included, merged from the all builds totals of the
+ * jobs in them instead of from their builds. Each folder keeps the totals of its children, jobs
+ * and folders alike, and a running sum of them.
+ *
+ * <p>A folder is loaded the first time its metrics are asked for, from the stored state of each
+ * job below it, together with the folders in it. The files are read without holding any lock the
+ * updates need. After that, a job whose metrics are updated swaps its totals in the running sum
+ * of its folder, and each folder on the way up to the top level swaps the folder below it in the
+ * same way. No other job or folder is added up again, and folders nobody asked for cost nothing.
+ *
+ * <p>Only all builds are rolled up, not the day windows. A job's window totals are only right as
+ * of its last update, and an idle job would keep counting builds that have long left its windows,
+ * while its all builds totals stay right until its next build.
+ *
+ * <p>Totals carry a sequence number taken before they are read or worked out, and a folder only
+ * replaces a child's totals with newer ones. So an update that lands while a folder is loading,
+ * or two updates below the same folder that reach it out of order, leave it with the latest.
+ *
+ * <p>The MTTR and MTTF of a folder are the means over the recoveries and failures of all its jobs;
+ * streaks of different jobs aren't joined up. Every job is counted, whoever is looking, which is
+ * why {@link RollupAction} only shows them to users who can configure the folder.
+ */
+public final class MetricsRollup {
+
+    private static final Logger LOGGER = Logger.getLogger(MetricsRollup.class.getName());
+
+    // loaded and loading folders by full name; the folders in a loaded folder are loaded too
+    private static final ConcurrentMap<String, Folder> FOLDERS = new ConcurrentHashMap<String, Folder>();
+    private static final AtomicLong SEQUENCE = new AtomicLong();
+
+    private MetricsRollup() {
+    }
+
+    /**
+     * Reads the jobs of the folder on the caller's thread if nobody asked for it before, or waits
+     * for the thread that is reading them.
+     *
+     * @return the totals of the jobs in the folder, or null if none of them has metrics yet
+     */
+    public static Totals get(ItemGroup<?> folder) {
+        try (ACLContext ignored = ACL.as2(ACL.SYSTEM2)) {
+            return load(folder).getTotals();
+        }
+    }
+
+    /**
+     * Never waits for a folder to be loaded: a folder that is still loading takes the totals
+     * as they come.
+     *
+     * @param allBuilds the job's totals for all builds, which mustn't change afterwards
+     */
+    static void update(Job job, MetricAccumulator allBuilds) {
+        Totals totals = new Totals(allBuilds, 1, SEQUENCE.incrementAndGet());
+        Item item = job;
+        ItemGroup<?> parent = job.getParent();
+        while (parent instanceof Item) {
+            Folder folder = FOLDERS.get(parent.getFullName());
+            if (folder == null) {
+                // nobody asked for this folder, or for any folder above it
+                return;
+            }
+            totals = folder.put(item.getName(), totals);
+            if (totals == null) {
+                // a newer update got here first and takes it on from here
+                return;
+            }
+            item = (Item) parent;
+            parent = item.getParent();
+        }
+    }
+
+    /**
+     * Forgets every folder, to be loaded again when it is next asked for.
+     */
+    static void invalidate() {
+        FOLDERS.clear();
+    }
+
+    private static Folder load(ItemGroup<?> group) {
+        String name = group.getFullName();
+        Folder folder = FOLDERS.get(name);
+        if (folder == null) {
+            Folder created = new Folder();
+            folder = FOLDERS.putIfAbsent(name, created);
+            if (folder == null) {
+                read(group, created);
+                return created;
+            }
+        }
+        folder.awaitLoaded();
+        return folder;
+    }
+
+    private static void read(ItemGroup<?> group, Folder folder) {
+        boolean loaded = false;
+        try {
+            for (Item item : group.getItems()) {
+                if (item instanceof Job) {
+                    folder.put(item.getName(), readTotals((Job) item));
+                } else if (item instanceof ItemGroup) {
+                    folder.put(item.getName(), load((ItemGroup<?>) item).getTotals());
+                }
+            }
+            loaded = true;
+        } finally {
+            if (!loaded) {
+                // read again by whoever asks next
+                FOLDERS.remove(group.getFullName(), folder);
+            }
+            folder.loaded.countDown();
+        }
+    }
+
+    private static Totals readTotals(Job job) {
+        // before reading, so an update stored meanwhile wins
+        long sequence = SEQUENCE.incrementAndGet();
+        BuildMetricState state = ReadUtil.getMetricState(new File(job.getRootDir(), StoreUtil.METRIC_STATE_FILE));
+        return state == null ? null : new Totals(state.getAllBuilds(), 1, sequence);
+    }
+
+    /**
+     * The totals of all the builds of one or more jobs.
+     */
+    public static final class Totals {
+        private final MetricAccumulator allBuilds;
+        private final int jobCount;
+        private final long sequence;
+
+        Totals(MetricAccumulator allBuilds, int jobCount, long sequence) {
+            this.allBuilds = allBuilds;
+            this.jobCount = jobCount;
+            this.sequence = sequence;
+        }
+
+        /**
+         * @return the totals, which mustn't be changed
+         */
+        public MetricAccumulator getAllBuilds() {
+            return allBuilds;
+        }
+
+        public int getJobCount() {
+            return jobCount;
+        }
+    }
+
+    private static final class Folder {
+        private final CountDownLatch loaded = new CountDownLatch(1);
+        private final Map<String, Totals> children = new HashMap<String, Totals>();
+        // the sum of the children, added to and taken from as they change
+        private final MetricAccumulator sum = new MetricAccumulator();
+        private int jobCount;
+        // a copy of the sum, handed out to readers and to the folder above
+        private Totals totals;
+
+        /**
+         * @return the folder's new totals, or null if the child already had newer ones
+         */
+        synchronized Totals put(String name, Totals child) {
+            Totals previous = children.get(name);
+            if (child == null || (previous != null && previous.sequence >= child.sequence)) {
+                return null;
+            }
+            children.put(name, child);
+            if (previous != null) {
+                sum.subtract(previous.allBuilds);
+            }
+            sum.combine(child.allBuilds);
+            jobCount += child.jobCount - (previous == null ? 0 : previous.jobCount);
+            MetricAccumulator copy = new MetricAccumulator();
+            copy.combine(sum);
+            totals = new Totals(copy, jobCount, SEQUENCE.incrementAndGet());
+            return totals;
+        }
+
+        synchronized Totals getTotals() {
+            return totals;
+        }
+
+        void awaitLoaded() {
+            try {
+                loaded.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                LOGGER.fine("interrupted while waiting for a folder to be loaded");
+            }
+        }
+    }
+
+    /**
+     * Loads the folders again when jobs or folders go away or move, which changes the folders
+     * they were in.
+     */
+    @Extension
+    public static final class ItemListenerImpl extends ItemListener {
+        @Override
+        public void onDeleted(Item item) {
+            invalidate();
+        }
+
+        @Override
+        public void onLocationChanged(Item item, String oldFullName, String newFullName) {
+            invalidate();
+        }
+    }
+}
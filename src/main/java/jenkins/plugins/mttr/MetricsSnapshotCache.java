@@ -0,0 +1,106 @@
+package jenkins.plugins.mttr;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import hudson.model.Job;
+import hudson.util.DaemonThreadFactory;
+import hudson.util.NamingThreadFactory;
+import jenkins.plugins.model.MetricsSnapshot;
+import jenkins.plugins.util.ReadUtil;
+import jenkins.util.SystemProperties;
+
+import java.io.File;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * The latest {@link MetricsSnapshot} of each job, so pages showing metrics don't go to the
+ * property files. A job's snapshot is loaded from disk the first time it is asked for and is
+ * replaced by {@link MetricsUpdater} whenever the job's metrics are recomputed.
+ *
+ * <p>Snapshots are keyed by the job's root directory, which is what the property files hang off.
+ */
+public final class MetricsSnapshotCache {
+
+    static final int MAXIMUM_SIZE = SystemProperties.getInteger(MetricsSnapshotCache.class.getName() + ".maximumSize", 10000);
+
+    private static final Cache<File, MetricsSnapshot> SNAPSHOTS = CacheBuilder.newBuilder()
+            .maximumSize(MAXIMUM_SIZE)
+            .recordStats()
+            .build();
+
+    // snapshots asked for with getIfLoaded are read from disk here, one at a time
+    private static final ExecutorService LOADER = Executors.newSingleThreadExecutor(
+            new NamingThreadFactory(new DaemonThreadFactory(), "Build History Metrics snapshot loader"));
+    private static final Set<File> LOADING = ConcurrentHashMap.newKeySet();
+
+    private MetricsSnapshotCache() {
+    }
+
+    public static MetricsSnapshot get(final Job job) {
+        try {
+            return SNAPSHOTS.get(job.getRootDir(), new Callable<MetricsSnapshot>() {
+                @Override
+                public MetricsSnapshot call() {
+                    return load(job);
+                }
+            });
+        } catch (ExecutionException e) {
+            return load(job);
+        }
+    }
+
+    /**
+     * Only reads the property files, which hold the occurrences and the last build number too.
+     */
+    private static MetricsSnapshot load(Job job) {
+        return ReadUtil.getMetricsSnapshot(job);
+    }
+
+    /**
+     * For pages showing many jobs, which can't wait for each job's files to be read.
+     *
+     * @return the job's snapshot if it is in memory, otherwise null, and it is loaded in the background
+     */
+    public static MetricsSnapshot getIfLoaded(final Job job) {
+        final File rootDir = job.getRootDir();
+        MetricsSnapshot snapshot = SNAPSHOTS.getIfPresent(rootDir);
+        if (snapshot == null && LOADING.add(rootDir)) {
+            LOADER.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        get(job);
+                    } finally {
+                        LOADING.remove(rootDir);
+                    }
+                }
+            });
+        }
+        return snapshot;
+    }
+
+    static boolean isLoaded(Job job) {
+        return SNAPSHOTS.getIfPresent(job.getRootDir()) != null;
+    }
+
+    public static void put(Job job, MetricsSnapshot snapshot) {
+        SNAPSHOTS.put(job.getRootDir(), snapshot);
+    }
+
+    /**
+     * @return the hits and misses of every lookup since the cache was created
+     */
+    static CacheStats stats() {
+        return SNAPSHOTS.stats();
+    }
+
+    public static void invalidate(Job job) {
+        SNAPSHOTS.invalidate(job.getRootDir());
+    }
+}
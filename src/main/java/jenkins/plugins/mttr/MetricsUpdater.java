@@ -0,0 +1,588 @@
+package jenkins.plugins.mttr;
+
+import com.google.common.io.Files;
+import com.google.common.util.concurrent.RateLimiter;
+import com.google.common.util.concurrent.Striped;
+import hudson.Extension;
+import hudson.ExtensionList;
+import hudson.model.Job;
+import hudson.model.Run;
+import hudson.util.DaemonThreadFactory;
+import hudson.util.NamingThreadFactory;
+import jenkins.plugins.model.*;
+import jenkins.plugins.util.BuildHistoryUtil;
+import jenkins.plugins.util.IoStats;
+import jenkins.plugins.util.ReadUtil;
+import jenkins.plugins.util.StoreUtil;
+import jenkins.util.SystemProperties;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.Lock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Brings job metrics up to date on a small pool of background threads, so completing a build
+ * only costs queueing it. Builds of the same job that complete within the quiet period are
+ * handled by one update, and updates of the same job never run concurrently.
+ *
+ * <p>A job without a history gets one from a {@link HistoryBootstrap}, which reads its older
+ * builds on a separate, throttled thread. Until that is done the job's metrics cover the builds
+ * read up to its last publish, and a marker file next to the history makes the bootstrap resume
+ * after a restart.
+ */
+@Extension
+public class MetricsUpdater {
+
+    private static final Logger LOGGER = Logger.getLogger(MetricsUpdater.class.getName());
+
+    static final int THREADS = SystemProperties.getInteger(MetricsUpdater.class.getName() + ".threads", 2);
+    static final long QUIET_PERIOD_MILLIS = SystemProperties.getLong(MetricsUpdater.class.getName() + ".quietPeriod", 1000L);
+    static final int BOOTSTRAP_BUILDS_PER_SECOND = SystemProperties.getInteger(MetricsUpdater.class.getName() + ".bootstrapBuildsPerSecond", 200);
+
+    static final String BOOTSTRAP_PENDING_FILE_NAME = MetricsAction.BUILD_HISTORY_FILE_NAME + ".pending";
+
+    private final ScheduledExecutorService executor = Executors.newScheduledThreadPool(THREADS,
+            new NamingThreadFactory(new DaemonThreadFactory(), "Build History Metrics updater"));
+    // jobs with builds waiting or being folded in; an update removes itself once it runs out of builds
+    private final ConcurrentMap<String, JobUpdate> updates = new ConcurrentHashMap<String, JobUpdate>();
+    // held while a job's files are written, by its update or by a rebuild
+    private final Striped<Lock> jobLocks = Striped.lazyWeakLock(1024);
+    private final ExecutorService bootstrapExecutor = Executors.newSingleThreadExecutor(
+            new NamingThreadFactory(new DaemonThreadFactory(), "Build History Metrics bootstrap"));
+    private final RateLimiter bootstrapRateLimiter = BOOTSTRAP_BUILDS_PER_SECOND > 0
+            ? RateLimiter.create(BOOTSTRAP_BUILDS_PER_SECOND) : null;
+    private final ConcurrentMap<String, HistoryBootstrap> bootstraps = new ConcurrentHashMap<String, HistoryBootstrap>();
+    private MetricsRebuild rebuild;
+
+    public static MetricsUpdater get() {
+        return ExtensionList.lookupSingleton(MetricsUpdater.class);
+    }
+
+    public void submit(Run run) {
+        Job job = run.getParent();
+        BuildMessage build = toBuildMessage(run);
+        while (!getUpdate(job).add(job, build)) {
+            // the update finished just now, and the next one takes the build
+        }
+    }
+
+    /**
+     * Brings the job's metrics up to date without adding a build.
+     */
+    void refresh(Job job) {
+        while (!getUpdate(job).refresh(job)) {
+            // the update finished just now, and the next one does the refresh
+        }
+    }
+
+    private JobUpdate getUpdate(Job job) {
+        return updates.computeIfAbsent(job.getFullName(), JobUpdate::new);
+    }
+
+    /**
+     * @return how far reading the job's older builds has got, or null if it isn't being done
+     */
+    public String getBootstrapProgress(Job job) {
+        HistoryBootstrap bootstrap = bootstraps.get(job.getFullName());
+        if (bootstrap == null || bootstrap.getTotal() < 0) {
+            return null;
+        }
+        return Messages.historyBootstrapProgress(bootstrap.getRead(), bootstrap.getTotal());
+    }
+
+    /**
+     * Starts a {@link MetricsRebuild} of the jobs, unless one is still running.
+     *
+     * @return the rebuild that is running
+     */
+    public synchronized MetricsRebuild rebuildAll(List<Job> jobs) {
+        if (rebuild != null && !rebuild.isDone()) {
+            return rebuild;
+        }
+        rebuild = new MetricsRebuild(this, jobs,
+                MetricsRebuild.BUILDS_PER_SECOND > 0 ? RateLimiter.create(MetricsRebuild.BUILDS_PER_SECOND) : null,
+                MetricsRebuild.THREADS);
+        rebuild.start(Executors.newFixedThreadPool(Math.max(1, MetricsRebuild.THREADS),
+                new NamingThreadFactory(new DaemonThreadFactory(), "Build History Metrics rebuild")));
+        return rebuild;
+    }
+
+    /**
+     * @return the last rebuild started, whether it is still running or not, or null if there was none
+     */
+    public synchronized MetricsRebuild getRebuild() {
+        return rebuild;
+    }
+
+    /**
+     * Waits until every submitted build has been folded into its job's metrics.
+     */
+    public void awaitIdle(long timeout, TimeUnit unit) throws InterruptedException, TimeoutException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (isBusy()) {
+            if (System.nanoTime() > deadline) {
+                throw new TimeoutException("Build history metrics are still being updated");
+            }
+            Thread.sleep(10);
+        }
+    }
+
+    /**
+     * @return true if builds of the job are waiting or being folded in
+     */
+    boolean hasUpdate(Job job) {
+        return updates.containsKey(job.getFullName());
+    }
+
+    private boolean isBusy() {
+        if (!bootstraps.isEmpty()) {
+            return true;
+        }
+        for (JobUpdate update : updates.values()) {
+            if (update.isScheduled()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    static BuildMessage toBuildMessage(Run run) {
+        return new BuildMessage(run.getNumber(), run.getTimestamp().getTimeInMillis(),
+                run.getDuration(), String.valueOf(run.getResult()));
+    }
+
+    void update(Job job, List<BuildMessage> builds) {
+        File rootDir = job.getRootDir();
+        File legacyFile = new File(rootDir.getAbsolutePath() + File.separator + MetricsAction.ALL_BUILDS_FILE_NAME);
+        File storeFile = new File(rootDir.getAbsolutePath() + File.separator + MetricsAction.BUILD_HISTORY_FILE_NAME);
+        File stateFile = new File(rootDir.getAbsolutePath() + File.separator + StoreUtil.METRIC_STATE_FILE);
+        File pendingFile = new File(rootDir.getAbsolutePath() + File.separator + BOOTSTRAP_PENDING_FILE_NAME);
+        File summaryFile = new File(rootDir.getAbsolutePath() + File.separator + StoreUtil.HISTORY_SUMMARY_FILE);
+
+        try {
+            BuildHistoryUtil.migrate(legacyFile, storeFile);
+            if (!storeFile.exists()) {
+                Files.touch(pendingFile);
+                // the bootstrap reads the compacted builds again, as far as they are still there
+                java.nio.file.Files.deleteIfExists(summaryFile.toPath());
+            }
+        } catch (IOException e) {
+            LOGGER.warning(String.format("migrate build history error:%s", e.getMessage()));
+        }
+
+        Collections.sort(builds);
+        boolean historyExisted = storeFile.exists();
+        StoreUtil.storeBuildMessages(storeFile, builds);
+
+        HistoryBootstrap bootstrap = bootstraps.get(job.getFullName());
+        if (bootstrap == null && pendingFile.exists()) {
+            bootstrap = startBootstrap(job);
+        }
+        if (bootstrap != null && bootstrap.isDone()) {
+            finishBootstrap(job, bootstrap, storeFile, pendingFile);
+            bootstrap = null;
+            historyExisted = false;
+        }
+
+        long now = System.currentTimeMillis();
+        BuildMetricState state;
+        if (bootstrap != null) {
+            // not stored, the older builds still have to go in before the newer ones
+            state = bootstrap.getState();
+            if (state != null && (builds.isEmpty() || state.canAdd(builds.get(0)))) {
+                for (BuildMessage build : builds) {
+                    state.add(build, now);
+                }
+            } else {
+                state = readBootstrapState(storeFile, bootstrap, now);
+                bootstrap.setState(state);
+            }
+        } else {
+            compact(HistoryRetention.forJob(job), job, storeFile, summaryFile, now);
+            state = historyExisted ? ReadUtil.getMetricState(stateFile) : null;
+            // a state kept for other windows than the configured ones is rebuilt
+            if (state != null && Arrays.equals(state.getWindowDays(), MetricWindow.getConfiguredDays())
+                    && (builds.isEmpty() || state.canAdd(builds.get(0)))) {
+                for (BuildMessage build : builds) {
+                    state.add(build, now);
+                }
+            } else {
+                state = readState(storeFile, summaryFile, now);
+            }
+            StoreUtil.storeMetricState(stateFile, state);
+        }
+
+        storeMetrics(job, state, now);
+        PluginStats.HISTORY_FILE_SIZE.record(storeFile.length());
+    }
+
+    /**
+     * Reads nothing from the build directories itself: {@code readBuilds} are the job's builds read
+     * by the caller, sorted by build number. They are merged into the stored history, the stored
+     * one winning where both have a build, and the job's metrics are worked out from the whole
+     * history again. Builds that the history summary already counts are left out.
+     *
+     * <p>Runs on the caller's thread. The history is merged and the state worked out without the
+     * job's lock, which is only held to store them, so updates of the job don't wait for the merge.
+     * If a build of the job was stored or the history was compacted meanwhile, the merge is done
+     * again holding the lock.
+     *
+     * @return false if the job's older builds are being read by a {@link HistoryBootstrap}, which
+     *         leaves it to that
+     */
+    boolean rebuild(Job job, BuildHistory readBuilds) throws IOException {
+        if (bootstraps.containsKey(job.getFullName())) {
+            return false;
+        }
+        File rootDir = job.getRootDir();
+        File legacyFile = new File(rootDir, MetricsAction.ALL_BUILDS_FILE_NAME);
+        File storeFile = new File(rootDir, MetricsAction.BUILD_HISTORY_FILE_NAME);
+        File stateFile = new File(rootDir, StoreUtil.METRIC_STATE_FILE);
+        File pendingFile = new File(rootDir, BOOTSTRAP_PENDING_FILE_NAME);
+        File summaryFile = new File(rootDir, StoreUtil.HISTORY_SUMMARY_FILE);
+
+        long now = System.currentTimeMillis();
+        // a text history is migrated holding the lock, which only the updates do
+        RebuiltHistory rebuilt = legacyFile.exists() && !storeFile.exists()
+                ? null : RebuiltHistory.read(storeFile, summaryFile, readBuilds, now);
+        Lock lock = jobLocks.get(job.getFullName());
+        lock.lock();
+        try {
+            if (bootstraps.containsKey(job.getFullName())) {
+                return false;
+            }
+            if (rebuilt == null || !rebuilt.isCurrent(storeFile, summaryFile)) {
+                BuildHistoryUtil.migrate(legacyFile, storeFile);
+                rebuilt = RebuiltHistory.read(storeFile, summaryFile, readBuilds, now);
+            }
+            BuildHistoryUtil.writeBuildHistory(storeFile, rebuilt.history, 0);
+            java.nio.file.Files.deleteIfExists(pendingFile.toPath());
+
+            // the state counts the builds compacted here, as the state of an update does
+            compact(HistoryRetention.forJob(job), job, storeFile, summaryFile, now);
+            StoreUtil.storeMetricState(stateFile, rebuilt.state);
+            storeMetrics(job, rebuilt.state, now);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static void storeMetrics(Job job, BuildMetricState state, long now) {
+        List<MetricWindow> windows = MetricWindow.of(state.getWindowDays());
+        MetricAccumulator[] totals = state.getWindowTotals(now);
+        AggregateBuildMetric[] metrics = MetricEvaluator.DEFAULT.evaluate(windows, totals);
+        int windowCount = windows.size();
+        long lastBuildNumber = state.getLastBuildNumber();
+        StoreUtil.storeBuildMetric(MTTRMetric.class, job, lastBuildNumber, Arrays.copyOfRange(metrics, 0, windowCount));
+        StoreUtil.storeBuildMetric(MTTFMetric.class, job, lastBuildNumber,
+                Arrays.copyOfRange(metrics, windowCount, 2 * windowCount));
+        StoreUtil.storeBuildMetric(StandardDeviationMetric.class, job, lastBuildNumber,
+                Arrays.copyOfRange(metrics, 2 * windowCount, 3 * windowCount));
+        StoreUtil.storeBuildMetric(PercentileMetric.class, job, lastBuildNumber,
+                Arrays.copyOfRange(metrics, 3 * windowCount, metrics.length));
+        MetricsSnapshotCache.put(job, MetricsSnapshot.of(lastBuildNumber, metrics));
+        MetricsRollup.update(job, totals[totals.length - 1]);
+    }
+
+    /**
+     * @return the MTTR, then the MTTF, then the build time standard deviation metrics, then the
+     *         50th, 90th and 99th percentiles of the build time, each for the state's windows and
+     *         then all builds, in the order of {@link MetricsAction#METRIC_NAMES} followed by
+     *         {@link MetricsAction#PERCENTILE_NAMES}
+     */
+    static AggregateBuildMetric[] getMetrics(BuildMetricState state, long now) {
+        return MetricEvaluator.DEFAULT.evaluate(state, now);
+    }
+
+    private HistoryBootstrap startBootstrap(Job job) {
+        HistoryBootstrap bootstrap = new HistoryBootstrap(job, this, bootstrapRateLimiter);
+        HistoryBootstrap running = bootstraps.putIfAbsent(job.getFullName(), bootstrap);
+        if (running != null) {
+            return running;
+        }
+        bootstrapExecutor.execute(bootstrap);
+        return bootstrap;
+    }
+
+    /**
+     * Works out the job's metrics over the builds the bootstrap has read so far, on the bootstrap's
+     * thread, and has them stored. The job's lock keeps updates from storing builds meanwhile, and
+     * they go on from the state until the next one.
+     */
+    void publish(Job job, HistoryBootstrap bootstrap) {
+        File storeFile = new File(job.getRootDir(), MetricsAction.BUILD_HISTORY_FILE_NAME);
+        Lock lock = jobLocks.get(job.getFullName());
+        lock.lock();
+        try {
+            bootstrap.setState(readBootstrapState(storeFile, bootstrap, System.currentTimeMillis()));
+        } finally {
+            lock.unlock();
+        }
+        refresh(job);
+    }
+
+    private static BuildMetricState readBootstrapState(File storeFile, HistoryBootstrap bootstrap, long now) {
+        try {
+            return BuildMetricState.fromHistory(new HistorySummary(), bootstrap.mergeInto(readStoredHistory(storeFile)),
+                    MetricWindow.getConfiguredDays(), now);
+        } catch (IOException e) {
+            LOGGER.warning(String.format("read build history error:%s", e.getMessage()));
+            return new BuildMetricState(MetricWindow.getConfiguredDays());
+        }
+    }
+
+    private static BuildHistory readStoredHistory(File storeFile) throws IOException {
+        return storeFile.exists() ? BuildHistoryUtil.readBuildHistory(storeFile) : new BuildHistory();
+    }
+
+    private void finishBootstrap(Job job, HistoryBootstrap bootstrap, File storeFile, File pendingFile) {
+        try {
+            BuildHistoryUtil.writeBuildHistory(storeFile, bootstrap.mergeInto(readStoredHistory(storeFile)), 0);
+            if (!pendingFile.delete()) {
+                LOGGER.warning(String.format("could not delete %s", pendingFile));
+            }
+        } catch (IOException e) {
+            LOGGER.warning(String.format("store build history error:%s", e.getMessage()));
+        } finally {
+            bootstraps.remove(job.getFullName(), bootstrap);
+        }
+        LOGGER.info(String.format("read build history of %s", job.getFullName()));
+    }
+
+    /**
+     * Folds the builds outside of the job's {@link HistoryRetention} into the history summary and
+     * drops their rows. The all time metrics in the stored state already count them.
+     */
+    static void compact(HistoryRetention retention, Job job, File storeFile, File summaryFile, long now) {
+        try {
+            if (!retention.shouldCompact(storeFile, now)) {
+                return;
+            }
+            BuildHistory history = BuildHistoryUtil.readBuildHistory(storeFile);
+            int count = retention.getBuildsToCompact(history, now);
+            if (count == 0) {
+                return;
+            }
+            HistorySummary summary = ReadUtil.getHistorySummary(summaryFile);
+            summary.fold(history, count);
+            // summary first: if the history isn't rewritten, the rows it already covers are skipped
+            StoreUtil.storeHistorySummary(summaryFile, summary);
+            BuildHistoryUtil.writeBuildHistory(storeFile, history, count);
+            LOGGER.fine(String.format("compacted %d builds of %s", count, job.getFullName()));
+        } catch (IOException e) {
+            LOGGER.warning(String.format("compact build history error:%s", e.getMessage()));
+        }
+    }
+
+    static BuildMetricState readState(File storeFile, File summaryFile, long now) {
+        try {
+            return BuildMetricState.fromHistory(ReadUtil.getHistorySummary(summaryFile),
+                    BuildHistoryUtil.readBuildHistory(storeFile), MetricWindow.getConfiguredDays(), now);
+        } catch (IOException e) {
+            LOGGER.warning(String.format("read build history error:%s", e.getMessage()));
+            return new BuildMetricState(MetricWindow.getConfiguredDays());
+        }
+    }
+
+    /**
+     * Builds of one job waiting to be folded into its metrics. At most one update per job is
+     * scheduled or running at a time; builds added while it runs are picked up before it ends.
+     * Once it runs out of builds it is finished: it lets go of the job and leaves {@link #updates},
+     * so jobs that are deleted or renamed aren't kept in memory.
+     */
+    private final class JobUpdate implements Runnable {
+        private final String name;
+        private final List<BuildMessage> builds = new ArrayList<BuildMessage>();
+        private Job job;
+        private boolean refresh;
+        private boolean scheduled;
+        private boolean finished;
+
+        JobUpdate(String name) {
+            this.name = name;
+        }
+
+        /**
+         * @return false if this update has finished, and the build has to go to a new one
+         */
+        synchronized boolean add(Job job, BuildMessage build) {
+            if (finished) {
+                return false;
+            }
+            this.job = job;
+            builds.add(build);
+            schedule();
+            return true;
+        }
+
+        /**
+         * @return false if this update has finished, and the refresh has to go to a new one
+         */
+        synchronized boolean refresh(Job job) {
+            if (finished) {
+                return false;
+            }
+            this.job = job;
+            refresh = true;
+            schedule();
+            return true;
+        }
+
+        private void schedule() {
+            if (!scheduled) {
+                scheduled = true;
+                executor.schedule(this, QUIET_PERIOD_MILLIS, TimeUnit.MILLISECONDS);
+            }
+        }
+
+        synchronized boolean isScheduled() {
+            return scheduled;
+        }
+
+        @Override
+        public void run() {
+            boolean drained = false;
+            try {
+                drain();
+                drained = true;
+            } catch (Error e) {
+                LOGGER.log(Level.SEVERE, "update metrics error for " + name, e);
+                throw e;
+            } finally {
+                if (!drained) {
+                    synchronized (this) {
+                        // the failed builds are lost, but the job isn't stuck: later builds schedule it again
+                        scheduled = false;
+                        if (!builds.isEmpty() || refresh) {
+                            schedule();
+                        }
+                    }
+                }
+            }
+        }
+
+        private void drain() {
+            while (true) {
+                Job job;
+                List<BuildMessage> batch;
+                synchronized (this) {
+                    if (builds.isEmpty() && !refresh) {
+                        scheduled = false;
+                        finished = true;
+                        this.job = null;
+                        updates.remove(name, this);
+                        return;
+                    }
+                    refresh = false;
+                    job = this.job;
+                    batch = new ArrayList<BuildMessage>(builds);
+                    builds.clear();
+                }
+                long start = System.nanoTime();
+                long bytesRead = IoStats.getThreadBytesRead();
+                long bytesWritten = IoStats.getThreadBytesWritten();
+                Lock lock = jobLocks.get(name);
+                lock.lock();
+                try {
+                    update(job, batch);
+                } catch (RuntimeException e) {
+                    LOGGER.log(Level.WARNING, "update metrics error for " + job.getFullName(), e);
+                } finally {
+                    lock.unlock();
+                }
+                PluginStats.UPDATE.record(System.nanoTime() - start);
+                PluginStats.UPDATE_BYTES_READ.record(IoStats.getThreadBytesRead() - bytesRead);
+                PluginStats.UPDATE_BYTES_WRITTEN.record(IoStats.getThreadBytesWritten() - bytesWritten);
+                PluginStats.UPDATED_BUILDS.add(batch.size());
+            }
+        }
+    }
+
+    /**
+     * A history merged from the stored builds and builds read again, with the state worked out
+     * from it, and what the stored files looked like before they were read.
+     */
+    private static final class RebuiltHistory {
+        private final long storeLength;
+        private final long storeLastModified;
+        private final long summarized;
+        private final BuildHistory history;
+        private final BuildMetricState state;
+
+        private RebuiltHistory(long storeLength, long storeLastModified, long summarized, BuildHistory history,
+                               BuildMetricState state) {
+            this.storeLength = storeLength;
+            this.storeLastModified = storeLastModified;
+            this.summarized = summarized;
+            this.history = history;
+            this.state = state;
+        }
+
+        static RebuiltHistory read(File storeFile, File summaryFile, BuildHistory readBuilds, long now)
+                throws IOException {
+            // before reading, so a change made meanwhile shows
+            long storeLength = storeFile.length();
+            long storeLastModified = storeFile.lastModified();
+            HistorySummary summary = ReadUtil.getHistorySummary(summaryFile);
+            BuildHistory history = merge(readStoredHistory(storeFile), readBuilds, summary.getLastBuildNumber());
+            BuildMetricState state = BuildMetricState.fromHistory(summary, history,
+                    MetricWindow.getConfiguredDays(), now);
+            return new RebuiltHistory(storeLength, storeLastModified, summary.getLastBuildNumber(), history, state);
+        }
+
+        /**
+         * Builds are only appended or compacted holding the job's lock, and either changes the
+         * files looked at here.
+         */
+        boolean isCurrent(File storeFile, File summaryFile) throws IOException {
+            return storeFile.length() == storeLength && storeFile.lastModified() == storeLastModified
+                    && ReadUtil.getHistorySummary(summaryFile).getLastBuildNumber() == summarized;
+        }
+
+        /**
+         * Where both have a build, the stored one is kept.
+         *
+         * @param summarized the last build the history summary counts; read builds up to it are left out
+         */
+        private static BuildHistory merge(BuildHistory storedHistory, BuildHistory readBuilds, long summarized) {
+            BuildHistory merged = new BuildHistory(storedHistory.size() + readBuilds.size());
+            int stored = 0;
+            int read = 0;
+            while (read < readBuilds.size() && readBuilds.getBuildNumber(read) <= summarized) {
+                read++;
+            }
+            while (stored < storedHistory.size() || read < readBuilds.size()) {
+                if (read == readBuilds.size() || stored < storedHistory.size()
+                        && storedHistory.getBuildNumber(stored) <= readBuilds.getBuildNumber(read)) {
+                    if (read < readBuilds.size()
+                            && storedHistory.getBuildNumber(stored) == readBuilds.getBuildNumber(read)) {
+                        read++;
+                    }
+                    add(merged, storedHistory, stored++);
+                } else {
+                    add(merged, readBuilds, read++);
+                }
+            }
+            return merged;
+        }
+
+        private static void add(BuildHistory to, BuildHistory from, int index) {
+            to.add(from.getBuildNumber(index), from.getStartTime(index), from.getDuration(index),
+                    from.getResult(index));
+        }
+    }
+}
@@ -0,0 +1,285 @@
+package jenkins.plugins.mttr;
+
+import com.google.common.cache.CacheStats;
+import com.google.common.collect.ImmutableList;
+import hudson.Functions;
+import hudson.init.InitMilestone;
+import hudson.init.Initializer;
+import jenkins.model.Jenkins;
+import jenkins.plugins.model.DurationSketch;
+import jenkins.plugins.util.IoStats;
+import org.kohsuke.stapler.HttpResponse;
+import org.kohsuke.stapler.HttpResponses;
+import org.kohsuke.stapler.interceptor.RequirePOST;
+
+import javax.management.ConstructorParameters;
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Timers and counters of the plugin's own work: handing completed builds to the
+ * {@link MetricsUpdater}, the updates themselves and the bytes they read and write, the size of
+ * the build histories, the {@link MetricsSnapshotCache} and {@link ChartCache}, and drawing charts.
+ * They are registered with the platform MBean server and shown on the diagnostics page of the
+ * {@link MetricsDashboard}.
+ *
+ * <p>Recording a value is a {@link System#nanoTime()} and a short synchronized add to a
+ * {@link DurationSketch}, so quantiles are within its accuracy and cost the same memory however
+ * many values there are.
+ */
+public final class PluginStats implements PluginStatsMXBean {
+
+    private static final Logger LOGGER = Logger.getLogger(PluginStats.class.getName());
+
+    public static final String OBJECT_NAME = "jenkins.plugins.mttr:type=PluginStats";
+
+    static final PluginStats INSTANCE = new PluginStats();
+
+    static final Distribution ON_COMPLETED = new Distribution();
+    static final Distribution UPDATE = new Distribution();
+    static final Distribution UPDATE_BYTES_READ = new Distribution();
+    static final Distribution UPDATE_BYTES_WRITTEN = new Distribution();
+    static final Distribution HISTORY_FILE_SIZE = new Distribution();
+    static final Distribution CHART_RENDER = new Distribution();
+    static final LongAdder UPDATED_BUILDS = new LongAdder();
+    static final LongAdder CHART_HITS = new LongAdder();
+    static final LongAdder CHART_MISSES = new LongAdder();
+
+    private static final List<Distribution> DISTRIBUTIONS = ImmutableList.of(ON_COMPLETED, UPDATE,
+            UPDATE_BYTES_READ, UPDATE_BYTES_WRITTEN, HISTORY_FILE_SIZE, CHART_RENDER);
+
+    // the snapshot cache counts from its creation, so a reset only moves the baseline
+    private static volatile CacheStats snapshotBaseline = new CacheStats(0, 0, 0, 0, 0, 0);
+
+    private PluginStats() {
+    }
+
+    @Initializer(after = InitMilestone.PLUGINS_STARTED)
+    public static void register() {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            try {
+                server.registerMBean(INSTANCE, name);
+            } catch (InstanceAlreadyExistsException e) {
+                // left behind by an earlier Jenkins in the same JVM, as in tests
+                server.unregisterMBean(name);
+                server.registerMBean(INSTANCE, name);
+            }
+        } catch (JMException e) {
+            LOGGER.log(Level.WARNING, "could not register " + OBJECT_NAME, e);
+        }
+    }
+
+    @Override
+    public Summary getOnCompletedNanos() {
+        return ON_COMPLETED.getSummary();
+    }
+
+    @Override
+    public Summary getUpdateNanos() {
+        return UPDATE.getSummary();
+    }
+
+    @Override
+    public Summary getUpdateBytesRead() {
+        return UPDATE_BYTES_READ.getSummary();
+    }
+
+    @Override
+    public Summary getUpdateBytesWritten() {
+        return UPDATE_BYTES_WRITTEN.getSummary();
+    }
+
+    @Override
+    public Summary getHistoryFileBytes() {
+        return HISTORY_FILE_SIZE.getSummary();
+    }
+
+    @Override
+    public Summary getChartRenderNanos() {
+        return CHART_RENDER.getSummary();
+    }
+
+    @Override
+    public long getUpdatedBuilds() {
+        return UPDATED_BUILDS.sum();
+    }
+
+    @Override
+    public long getBytesRead() {
+        return IoStats.getBytesRead();
+    }
+
+    @Override
+    public long getBytesWritten() {
+        return IoStats.getBytesWritten();
+    }
+
+    @Override
+    public long getSnapshotCacheHits() {
+        return getSnapshotCacheStats().hitCount();
+    }
+
+    @Override
+    public long getSnapshotCacheMisses() {
+        return getSnapshotCacheStats().missCount();
+    }
+
+    @Override
+    public double getSnapshotCacheHitRate() {
+        return getSnapshotCacheStats().hitRate();
+    }
+
+    private static CacheStats getSnapshotCacheStats() {
+        return MetricsSnapshotCache.stats().minus(snapshotBaseline);
+    }
+
+    @Override
+    public long getChartCacheHits() {
+        return CHART_HITS.sum();
+    }
+
+    @Override
+    public long getChartCacheMisses() {
+        return CHART_MISSES.sum();
+    }
+
+    @Override
+    public double getChartCacheHitRate() {
+        long hits = CHART_HITS.sum();
+        long requests = hits + CHART_MISSES.sum();
+        return requests == 0 ? 1.0 : (double) hits / requests;
+    }
+
+    @Override
+    public void reset() {
+        for (Distribution distribution : DISTRIBUTIONS) {
+            distribution.reset();
+        }
+        UPDATED_BUILDS.reset();
+        CHART_HITS.reset();
+        CHART_MISSES.reset();
+        IoStats.reset();
+        snapshotBaseline = MetricsSnapshotCache.stats();
+    }
+
+    @RequirePOST
+    public HttpResponse doReset() {
+        Jenkins.get().checkPermission(Jenkins.ADMINISTER);
+        reset();
+        return HttpResponses.redirectToDot();
+    }
+
+    /**
+     * @return the count, then the mean, median, 90th and 99th percentiles and the maximum in milliseconds
+     */
+    public List<String> formatTimes(Summary summary) {
+        ImmutableList.Builder<String> cells = ImmutableList.builder();
+        cells.add(String.valueOf(summary.getCount()));
+        for (long nanos : summary.getValues()) {
+            cells.add(String.format("%.3f ms", nanos / 1e6));
+        }
+        return cells.build();
+    }
+
+    /**
+     * @return the count, then the mean, median, 90th and 99th percentiles and the maximum in bytes
+     */
+    public List<String> formatSizes(Summary summary) {
+        ImmutableList.Builder<String> cells = ImmutableList.builder();
+        cells.add(String.valueOf(summary.getCount()));
+        for (long bytes : summary.getValues()) {
+            cells.add(Functions.humanReadableByteSize(bytes));
+        }
+        return cells.build();
+    }
+
+    public String formatRate(double rate) {
+        return String.format("%.1f%%", rate * 100);
+    }
+
+    /**
+     * Values recorded from any thread, summed and sketched.
+     */
+    static final class Distribution {
+        private DurationSketch sketch = new DurationSketch();
+        private long sum;
+        private long max;
+
+        synchronized void record(long value) {
+            sketch.add(value);
+            sum += value;
+            max = Math.max(max, value);
+        }
+
+        synchronized Summary getSummary() {
+            long count = sketch.getCount();
+            return new Summary(count, count == 0 ? 0 : sum / count, sketch.getQuantile(0.5),
+                    sketch.getQuantile(0.9), sketch.getQuantile(0.99), max);
+        }
+
+        synchronized void reset() {
+            sketch = new DurationSketch();
+            sum = 0;
+            max = 0;
+        }
+    }
+
+    /**
+     * A {@link Distribution} at one point in time, which JMX shows as composite data.
+     */
+    public static final class Summary {
+        private final long count;
+        private final long mean;
+        private final long p50;
+        private final long p90;
+        private final long p99;
+        private final long max;
+
+        @ConstructorParameters({"count", "mean", "p50", "p90", "p99", "max"})
+        public Summary(long count, long mean, long p50, long p90, long p99, long max) {
+            this.count = count;
+            this.mean = mean;
+            this.p50 = p50;
+            this.p90 = p90;
+            this.p99 = p99;
+            this.max = max;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getMean() {
+            return mean;
+        }
+
+        public long getP50() {
+            return p50;
+        }
+
+        public long getP90() {
+            return p90;
+        }
+
+        public long getP99() {
+            return p99;
+        }
+
+        public long getMax() {
+            return max;
+        }
+
+        long[] getValues() {
+            return new long[]{mean, p50, p90, p99, max};
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package jenkins.plugins.mttr;
+
+/**
+ * What the plugin costs the controller, over JMX as {@value PluginStats#OBJECT_NAME}. Times are
+ * in nanoseconds and sizes in bytes. Everything is counted since the controller started or since
+ * the last {@link #reset()}.
+ */
+public interface PluginStatsMXBean {
+
+    /**
+     * @return how long the build listener took to hand each completed build to the updater
+     */
+    PluginStats.Summary getOnCompletedNanos();
+
+    /**
+     * @return how long each update of a job's metrics took, in the background
+     */
+    PluginStats.Summary getUpdateNanos();
+
+    /**
+     * @return the bytes each update of a job's metrics read
+     */
+    PluginStats.Summary getUpdateBytesRead();
+
+    /**
+     * @return the bytes each update of a job's metrics wrote
+     */
+    PluginStats.Summary getUpdateBytesWritten();
+
+    /**
+     * @return the size of each job's build history after an update
+     */
+    PluginStats.Summary getHistoryFileBytes();
+
+    /**
+     * @return how long drawing each chart took
+     */
+    PluginStats.Summary getChartRenderNanos();
+
+    long getUpdatedBuilds();
+
+    /**
+     * @return the bytes the plugin read from the job directories, on any thread
+     */
+    long getBytesRead();
+
+    /**
+     * @return the bytes the plugin wrote to the job directories, on any thread
+     */
+    long getBytesWritten();
+
+    long getSnapshotCacheHits();
+
+    long getSnapshotCacheMisses();
+
+    /**
+     * @return the share of snapshot lookups found in memory, 1 if there were none
+     */
+    double getSnapshotCacheHitRate();
+
+    long getChartCacheHits();
+
+    long getChartCacheMisses();
+
+    /**
+     * @return the share of chart requests served without drawing the chart, 1 if there were none
+     */
+    double getChartCacheHitRate();
+
+    /**
+     * Starts counting again, to measure the plugin over a period of time of one's choosing.
+     */
+    void reset();
+}
@@ -0,0 +1,63 @@
+package jenkins.plugins.mttr;
+
+import hudson.Extension;
+import hudson.cli.CLICommand;
+import hudson.model.Job;
+import jenkins.model.Jenkins;
+import org.kohsuke.args4j.Option;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Starts a {@link MetricsRebuild} of every job, or follows the one that is running, printing a
+ * line for each job as it is done. Interrupting the command cancels the rebuild.
+ */
+@Extension
+public class RebuildMetricsCommand extends CLICommand {
+
+    @Option(name = "-cancel", usage = "Cancels the rebuild that is running instead of starting one.")
+    public boolean cancel;
+
+    @Override
+    public String getName() {
+        return "rebuild-build-history-metrics";
+    }
+
+    @Override
+    public String getShortDescription() {
+        return Messages.rebuildMetricsCommandDescription();
+    }
+
+    @Override
+    protected int run() throws Exception {
+        Jenkins jenkins = Jenkins.get();
+        jenkins.checkPermission(Jenkins.ADMINISTER);
+        MetricsUpdater updater = MetricsUpdater.get();
+
+        if (cancel) {
+            MetricsRebuild running = updater.getRebuild();
+            if (running != null) {
+                running.cancel();
+            }
+            return 0;
+        }
+
+        MetricsRebuild rebuild = updater.rebuildAll(jenkins.getAllItems(Job.class));
+        int printed = 0;
+        boolean done;
+        do {
+            try {
+                done = rebuild.awaitDone(1, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                rebuild.cancel();
+                throw e;
+            }
+            for (String line : rebuild.getResults(printed)) {
+                stdout.println(line);
+                printed++;
+            }
+        } while (!done);
+        stdout.println(rebuild.getProgress());
+        return rebuild.isCancelled() || rebuild.getFailed() > 0 ? 1 : 0;
+    }
+}
@@ -0,0 +1,112 @@
+package jenkins.plugins.mttr;
+
+import com.cloudbees.hudson.plugins.folder.AbstractFolder;
+import hudson.Extension;
+import hudson.Util;
+import hudson.model.Action;
+import hudson.model.Item;
+import jenkins.model.TransientActionFactory;
+import jenkins.plugins.model.AggregateBuildMetric;
+import jenkins.plugins.model.MetricAccumulator;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The metrics of all the jobs in a folder or multibranch project, from {@link MetricsRollup}.
+ *
+ * <p>The metrics count every job in the folder, including jobs the user may not see, so only
+ * users who can configure the folder get the page. They can give themselves access to its jobs
+ * anyway.
+ */
+public class RollupAction implements Action {
+
+    private final AbstractFolder<?> folder;
+
+    /**
+     * Only keeps the folder: its metrics are merged when the page asks for them.
+     */
+    public RollupAction(AbstractFolder<?> folder) {
+        this.folder = folder;
+    }
+
+    public AbstractFolder<?> getFolder() {
+        return folder;
+    }
+
+    @Override
+    public String getIconFileName() {
+        return folder.hasPermission(Item.CONFIGURE) ? "symbol-analytics" : null;
+    }
+
+    @Override
+    public String getDisplayName() {
+        return Messages.metricsDashboardDisplayName();
+    }
+
+    @Override
+    public String getUrlName() {
+        return folder.hasPermission(Item.CONFIGURE) ? MetricsAction.URL_NAME : null;
+    }
+
+    /**
+     * @return the number of jobs in the folder that have metrics
+     */
+    public int getJobCount() {
+        folder.checkPermission(Item.CONFIGURE);
+        MetricsRollup.Totals totals = MetricsRollup.get(folder);
+        return totals == null ? 0 : totals.getJobCount();
+    }
+
+    public Map<String, String> getMetricMap() {
+        folder.checkPermission(Item.CONFIGURE);
+        Map<String, String> result = new HashMap<String, String>();
+        MetricsRollup.Totals totals = MetricsRollup.get(folder);
+        MetricAccumulator allBuilds = totals == null ? new MetricAccumulator() : totals.getAllBuilds();
+        for (AggregateBuildMetric metric
+                : MetricEvaluator.DEFAULT.evaluate(getWindows(), new MetricAccumulator[] {allBuilds})) {
+            result.put(metric.getName(), Util.getPastTimeString(metric.calculateMetric()));
+        }
+        return result;
+    }
+
+    /**
+     * @return the windows the metrics are shown for, which is only all builds: folders don't
+     *         keep the day windows of their jobs
+     */
+    public List<MetricWindow> getWindows() {
+        return Collections.singletonList(MetricWindow.ALL_BUILDS);
+    }
+
+    /**
+     * @return the row labels by metric, in the order they are shown
+     */
+    public Map<String, String> getMetricLabels() {
+        return MetricsAction.METRIC_LABELS;
+    }
+
+    /**
+     * Adds the action to folders and to multibranch projects, which are folders of their branch jobs.
+     */
+    @Extension(optional = true)
+    public static final class FolderActionFactory extends TransientActionFactory<AbstractFolder> {
+
+        @Override
+        public Class<AbstractFolder> type() {
+            return AbstractFolder.class;
+        }
+
+        @Override
+        public Class<RollupAction> actionType() {
+            return RollupAction.class;
+        }
+
+        @Override
+        public Collection<? extends Action> createFor(AbstractFolder target) {
+            return Collections.singleton(new RollupAction(target));
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package jenkins.plugins.mttr;
+
+import com.google.common.util.concurrent.RateLimiter;
+import hudson.init.InitMilestone;
+import hudson.init.Initializer;
+import hudson.model.Job;
+import hudson.security.ACL;
+import hudson.security.ACLContext;
+import hudson.util.DaemonThreadFactory;
+import hudson.util.NamingThreadFactory;
+import jenkins.model.Jenkins;
+import jenkins.util.SystemProperties;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Loads the {@link MetricsSnapshotCache} of every job in the background once the jobs are
+ * loaded, so the first views rendered after a restart don't read each job's files on the request
+ * thread. Jenkins doesn't wait for it: the initializer only starts it.
+ *
+ * <p>{@code threads} jobs are read at a time, and no more than {@code jobsPerSecond} are started a
+ * second so the warm-up doesn't compete with the controller starting up for the disk. No more
+ * jobs are read than the cache holds. A job that is asked for before the warm-up gets to it is
+ * loaded then, as before.
+ */
+public final class SnapshotWarmUp implements Runnable {
+
+    private static final Logger LOGGER = Logger.getLogger(SnapshotWarmUp.class.getName());
+
+    static final int THREADS = SystemProperties.getInteger(SnapshotWarmUp.class.getName() + ".threads", 2);
+    static final int JOBS_PER_SECOND = SystemProperties.getInteger(SnapshotWarmUp.class.getName() + ".jobsPerSecond", 100);
+
+    private final Iterator<Job> jobs;
+    private final int limit;
+    private final RateLimiter rateLimiter;
+    private final AtomicInteger workers = new AtomicInteger();
+    private int started;
+    private long startedAt;
+
+    SnapshotWarmUp(List<Job> jobs, int limit, RateLimiter rateLimiter) {
+        this.jobs = jobs.iterator();
+        this.limit = limit;
+        this.rateLimiter = rateLimiter;
+    }
+
+    @Initializer(after = InitMilestone.JOB_LOADED)
+    public static void start() {
+        if (THREADS <= 0) {
+            return;
+        }
+        final ExecutorService executor = Executors.newFixedThreadPool(THREADS,
+                new NamingThreadFactory(new DaemonThreadFactory(), "Build History Metrics warm-up"));
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                List<Job> jobs;
+                try (ACLContext ignored = ACL.as2(ACL.SYSTEM2)) {
+                    jobs = Jenkins.get().getAllItems(Job.class);
+                }
+                RateLimiter rateLimiter = JOBS_PER_SECOND > 0 ? RateLimiter.create(JOBS_PER_SECOND) : null;
+                new SnapshotWarmUp(jobs, MetricsSnapshotCache.MAXIMUM_SIZE, rateLimiter).runOn(executor, THREADS);
+            }
+        });
+    }
+
+    /**
+     * Runs the warm-up on {@code threads} threads of {@code executor}, which is shut down so its
+     * threads go away when the warm-up is done.
+     */
+    void runOn(ExecutorService executor, int threads) {
+        startedAt = System.nanoTime();
+        workers.set(threads);
+        for (int i = 0; i < threads; i++) {
+            executor.execute(this);
+        }
+        executor.shutdown();
+    }
+
+    @Override
+    public void run() {
+        Job job;
+        while ((job = next()) != null) {
+            if (rateLimiter != null) {
+                rateLimiter.acquire();
+            }
+            try {
+                MetricsSnapshotCache.get(job);
+            } catch (RuntimeException e) {
+                LOGGER.log(Level.WARNING, "load metrics error for " + job.getFullName(), e);
+            }
+        }
+        if (workers.decrementAndGet() == 0) {
+            LOGGER.fine(String.format("loaded the metrics of %d jobs in %d ms", started,
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt)));
+        }
+    }
+
+    /**
+     * @return the next job that isn't loaded yet, or null if there are none or the cache is full
+     */
+    private synchronized Job next() {
+        while (started < limit && jobs.hasNext()) {
+            Job job = jobs.next();
+            if (!MetricsSnapshotCache.isLoaded(job)) {
+                started++;
+                return job;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,121 @@
+package jenkins.plugins.util;
+
+import com.google.common.primitives.Ints;
+import jenkins.plugins.model.BuildMessage;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Reads what the metrics need straight from a job's build directories, so old builds can be
+ * picked up without Jenkins loading their {@code Run} objects.
+ */
+public class BuildDirectoryUtil {
+
+    public static final String BUILD_FILE_NAME = "build.xml";
+
+    private static final XMLInputFactory XML_INPUT_FACTORY = XMLInputFactory.newInstance();
+
+    static {
+        XML_INPUT_FACTORY.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        XML_INPUT_FACTORY.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+    }
+
+    /**
+     * @return the numbers of the build directories, lowest first
+     */
+    public static int[] getBuildNumbers(File buildsDir) throws IOException {
+        if (buildsDir == null || !buildsDir.isDirectory()) {
+            return new int[0];
+        }
+        List<Integer> numbers = new ArrayList<Integer>();
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(buildsDir.toPath())) {
+            for (Path entry : entries) {
+                Integer number = Ints.tryParse(entry.getFileName().toString());
+                if (number != null && number > 0 && Files.isDirectory(entry)) {
+                    numbers.add(number);
+                }
+            }
+        }
+        int[] result = Ints.toArray(numbers);
+        Arrays.sort(result);
+        return result;
+    }
+
+    /**
+     * Reads the number, start time, duration and result of a build from its {@code build.xml},
+     * stopping as soon as it has them.
+     *
+     * @return null if the build has no result yet or its file can't be read
+     */
+    public static BuildMessage readBuildMessage(File buildDir, long buildNumber) {
+        File buildFile = new File(buildDir, BUILD_FILE_NAME);
+        if (!buildFile.isFile()) {
+            return null;
+        }
+        try (InputStream in = new BufferedInputStream(new FileInputStream(buildFile))) {
+            XMLStreamReader reader = XML_INPUT_FACTORY.createXMLStreamReader(in);
+            try {
+                return readBuildMessage(reader, buildNumber);
+            } finally {
+                reader.close();
+            }
+        } catch (IOException | XMLStreamException | NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static BuildMessage readBuildMessage(XMLStreamReader reader, long buildNumber) throws XMLStreamException {
+        long number = buildNumber;
+        Long timestamp = null;
+        Long duration = null;
+        String result = null;
+
+        int depth = 0;
+        while (reader.hasNext()) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+            } else if (event == XMLStreamConstants.START_ELEMENT) {
+                // only the fields of the build itself, not the ones of its actions
+                if (depth == 1) {
+                    String name = reader.getLocalName();
+                    if ("number".equals(name)) {
+                        number = Long.parseLong(reader.getElementText().trim());
+                    } else if ("timestamp".equals(name)) {
+                        timestamp = Long.parseLong(reader.getElementText().trim());
+                    } else if ("duration".equals(name)) {
+                        duration = Long.parseLong(reader.getElementText().trim());
+                    } else if ("result".equals(name)) {
+                        result = reader.getElementText().trim().intern();
+                    } else {
+                        depth++;
+                    }
+                } else {
+                    depth++;
+                }
+                if (timestamp != null && duration != null && result != null) {
+                    break;
+                }
+            }
+        }
+
+        if (timestamp == null || result == null) {
+            return null;
+        }
+        return new BuildMessage(number, timestamp, duration == null ? 0L : duration, result);
+    }
+}
@@ -0,0 +1,296 @@
+package jenkins.plugins.util;
+
+import jenkins.plugins.model.BuildHistory;
+import jenkins.plugins.model.BuildMessage;
+import jenkins.plugins.model.ResultCode;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.logging.Logger;
+
+/**
+ * Reads and writes the binary build history. The file starts with an 8 byte header, a magic
+ * number and the format version, followed by one 24 byte little endian record per build:
+ * build number (int), start time (long), duration (long), result code (byte, see
+ * {@link ResultCode}) and 3 reserved bytes.
+ */
+public class BuildHistoryUtil {
+
+    private static final Logger LOGGER = Logger.getLogger(BuildHistoryUtil.class.getName());
+
+    public static final int HEADER_SIZE = 8;
+    public static final int RECORD_SIZE = 24;
+
+    private static final int MAGIC = 0x4248_4d52;
+    private static final int FORMAT_VERSION = 1;
+
+    private static final int START_TIME_OFFSET = 4;
+    private static final int DURATION_OFFSET = 12;
+    private static final int RESULT_OFFSET = 20;
+
+    public interface RecordVisitor {
+        void visit(long buildNumber, long startTime, long duration, String result);
+    }
+
+    /**
+     * Appends the builds to the history, creating it if needed, with one write and one sync
+     * however many builds there are. A record left half written by an earlier failure is
+     * dropped first so the records stay aligned.
+     *
+     * <p>Not safe to call concurrently for the same file; {@code MetricsUpdater} is its only writer.
+     */
+    public static void appendBuildMessages(File storeFile, List<BuildMessage> builds) throws IOException {
+        try (FileChannel channel = FileChannel.open(storeFile.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            long size = channel.size();
+            long end = size < HEADER_SIZE ? 0 : HEADER_SIZE + (size - HEADER_SIZE) / RECORD_SIZE * RECORD_SIZE;
+            if (end < size) {
+                channel.truncate(end);
+            }
+
+            ByteBuffer buffer = allocate((end == 0 ? HEADER_SIZE : 0) + builds.size() * RECORD_SIZE);
+            if (end == 0) {
+                putHeader(buffer);
+            }
+            for (BuildMessage build : builds) {
+                putRecord(buffer, build);
+            }
+            buffer.flip();
+            IoStats.written(buffer.remaining());
+            while (buffer.hasRemaining()) {
+                end += channel.write(buffer, end);
+            }
+            channel.force(false);
+        }
+    }
+
+    /**
+     * Replaces the history with the given builds in one step, so readers never see it half written.
+     */
+    public static void writeBuildMessages(File storeFile, List<BuildMessage> builds) throws IOException {
+        File tempFile = new File(storeFile.getAbsolutePath() + ".tmp");
+        ByteBuffer buffer = allocate(HEADER_SIZE + builds.size() * RECORD_SIZE);
+        putHeader(buffer);
+        for (BuildMessage build : builds) {
+            putRecord(buffer, build);
+        }
+        buffer.flip();
+        IoStats.written(buffer.remaining());
+        try (FileChannel channel = FileChannel.open(tempFile.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(false);
+        }
+        Files.move(tempFile.toPath(), storeFile.toPath(),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Replaces the history with the builds of {@code history} from {@code from} on, in one step.
+     */
+    public static void writeBuildHistory(File storeFile, BuildHistory history, int from) throws IOException {
+        File tempFile = new File(storeFile.getAbsolutePath() + ".tmp");
+        ByteBuffer buffer = allocate(HEADER_SIZE + (history.size() - from) * RECORD_SIZE);
+        putHeader(buffer);
+        for (int i = from; i < history.size(); i++) {
+            putRecord(buffer, history.getBuildNumber(i), history.getStartTime(i), history.getDuration(i),
+                    history.getResult(i));
+        }
+        buffer.flip();
+        IoStats.written(buffer.remaining());
+        try (FileChannel channel = FileChannel.open(tempFile.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(false);
+        }
+        Files.move(tempFile.toPath(), storeFile.toPath(),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * @return the number of records, from the size of the file alone
+     */
+    public static int getRecordCount(File storeFile) {
+        long size = storeFile.length();
+        return size < HEADER_SIZE ? 0 : Math.toIntExact((size - HEADER_SIZE) / RECORD_SIZE);
+    }
+
+    /**
+     * @return the start time of the first record, usually the oldest build, or
+     *         {@link Long#MAX_VALUE} if there are no records
+     */
+    public static long getFirstStartTime(File storeFile) throws IOException {
+        ByteBuffer records = read(storeFile, HEADER_SIZE + RECORD_SIZE);
+        if (records.remaining() < RECORD_SIZE) {
+            return Long.MAX_VALUE;
+        }
+        return records.getLong(records.position() + START_TIME_OFFSET);
+    }
+
+    /**
+     * Converts a text history written by earlier versions of the plugin, then removes it.
+     *
+     * @return true if there was a text history to convert
+     */
+    public static boolean migrate(File legacyFile, File storeFile) throws IOException {
+        if (storeFile.exists() || !legacyFile.exists()) {
+            return false;
+        }
+        List<BuildMessage> builds = ReadUtil.getBuildMessageFrom(legacyFile);
+        if (builds == null) {
+            throw new IOException("Could not read " + legacyFile);
+        }
+        writeBuildMessages(storeFile, builds);
+        if (!legacyFile.delete()) {
+            LOGGER.warning(String.format("could not delete migrated build history %s", legacyFile));
+        }
+        return true;
+    }
+
+    /**
+     * Calls the visitor for every record in file order, straight from the mapped file. The mapping
+     * lasts until it is garbage collected, and on Windows a mapped file can't be replaced until
+     * then, even once the caller is done with it. The plugin itself reads the history with
+     * {@link #readBuildHistory} and {@link #getBuildMessages}, which copy it into the heap.
+     *
+     * @return the number of records visited
+     */
+    public static int forEachRecord(File storeFile, RecordVisitor visitor) throws IOException {
+        return forEachRecord(map(storeFile), visitor);
+    }
+
+    private static int forEachRecord(ByteBuffer records, RecordVisitor visitor) {
+        int count = records.remaining() / RECORD_SIZE;
+        for (int i = 0, position = records.position(); i < count; i++, position += RECORD_SIZE) {
+            visitor.visit(records.getInt(position),
+                    records.getLong(position + START_TIME_OFFSET),
+                    records.getLong(position + DURATION_OFFSET),
+                    ResultCode.decode(records.get(position + RESULT_OFFSET)));
+        }
+        return count;
+    }
+
+    /**
+     * Reads the history into columns, without a {@link BuildMessage} per build. The file is copied
+     * into the heap rather than mapped, so it can be replaced right after.
+     *
+     * @return the builds sorted by build number
+     */
+    public static BuildHistory readBuildHistory(File storeFile) throws IOException {
+        ByteBuffer records = read(storeFile, Long.MAX_VALUE);
+        int count = records.remaining() / RECORD_SIZE;
+        BuildHistory history = new BuildHistory(count);
+        for (int i = 0, position = records.position(); i < count; i++, position += RECORD_SIZE) {
+            history.add(records.getInt(position),
+                    records.getLong(position + START_TIME_OFFSET),
+                    records.getLong(position + DURATION_OFFSET),
+                    records.get(position + RESULT_OFFSET));
+        }
+        history.sortByBuildNumber();
+        return history;
+    }
+
+    /**
+     * Copies the file into the heap rather than mapping it, like {@link #readBuildHistory}.
+     *
+     * @return the builds sorted by build number, or an empty list if the history can't be read
+     */
+    public static List<BuildMessage> getBuildMessages(File storeFile) {
+        final List<BuildMessage> buildMessages = new ArrayList<BuildMessage>();
+        try {
+            forEachRecord(read(storeFile, Long.MAX_VALUE), new RecordVisitor() {
+                @Override
+                public void visit(long buildNumber, long startTime, long duration, String result) {
+                    buildMessages.add(new BuildMessage(buildNumber, startTime, duration, result));
+                }
+            });
+        } catch (IOException e) {
+            LOGGER.warning(String.format("get build messages from store error:%s", e.getMessage()));
+            return Collections.emptyList();
+        }
+        Collections.sort(buildMessages);
+        return buildMessages;
+    }
+
+    private static ByteBuffer map(File storeFile) throws IOException {
+        try (FileChannel channel = FileChannel.open(storeFile.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Build history is too large to map: " + storeFile);
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            IoStats.read(size);
+            return checkHeader(buffer.order(ByteOrder.LITTLE_ENDIAN), storeFile);
+        }
+    }
+
+    /**
+     * Reads the history into the heap, so nothing keeps the file open or mapped once this returns
+     * and the file can be replaced right after, on any platform. Read only callers such as the
+     * chart and the rebuild come here too: a mapping they left behind would hold up the next
+     * compaction or rebuild of the job on Windows until it is garbage collected.
+     *
+     * @param limit the most bytes to read, header included
+     */
+    private static ByteBuffer read(File storeFile, long limit) throws IOException {
+        try (FileChannel channel = FileChannel.open(storeFile.toPath(), StandardOpenOption.READ)) {
+            long size = Math.min(channel.size(), limit);
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Build history is too large to read: " + storeFile);
+            }
+            ByteBuffer buffer = allocate((int) size);
+            while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+                // until the buffer is full or the file ends
+            }
+            buffer.flip();
+            IoStats.read(buffer.limit());
+            return checkHeader(buffer, storeFile);
+        }
+    }
+
+    private static ByteBuffer checkHeader(ByteBuffer buffer, File storeFile) throws IOException {
+        if (buffer.limit() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a build history file: " + storeFile);
+        }
+        if (buffer.getInt(4) != FORMAT_VERSION) {
+            throw new IOException("Unsupported build history version " + buffer.getInt(4) + ": " + storeFile);
+        }
+        buffer.position(HEADER_SIZE);
+        return buffer;
+    }
+
+    private static ByteBuffer allocate(int size) {
+        return ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private static void putHeader(ByteBuffer buffer) {
+        buffer.putInt(MAGIC).putInt(FORMAT_VERSION);
+    }
+
+    private static void putRecord(ByteBuffer buffer, BuildMessage build) {
+        putRecord(buffer, build.getBuildNumber(), build.getStartTime(), build.getDuration(),
+                ResultCode.encode(build.getResult()));
+    }
+
+    private static void putRecord(ByteBuffer buffer, long buildNumber, long startTime, long duration, byte result) {
+        buffer.putInt(Math.toIntExact(buildNumber))
+                .putLong(startTime)
+                .putLong(duration)
+                .put(result)
+                .put((byte) 0).put((byte) 0).put((byte) 0);
+    }
+}
@@ -0,0 +1,60 @@
+package jenkins.plugins.util;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bytes of the job directories read and written by the plugin, counted where the files are read
+ * and written. A mapped history counts as read in full. Besides the totals, each thread keeps its
+ * own count, so the work done on one thread, such as updating a job's metrics, can be told apart
+ * from what other threads do meanwhile.
+ */
+public final class IoStats {
+
+    private static final LongAdder READ = new LongAdder();
+    private static final LongAdder WRITTEN = new LongAdder();
+    // bytes read, then bytes written, by the current thread
+    private static final ThreadLocal<long[]> THREAD = ThreadLocal.withInitial(() -> new long[2]);
+
+    private IoStats() {
+    }
+
+    public static void read(long bytes) {
+        READ.add(bytes);
+        THREAD.get()[0] += bytes;
+    }
+
+    public static void written(long bytes) {
+        WRITTEN.add(bytes);
+        THREAD.get()[1] += bytes;
+    }
+
+    public static long getBytesRead() {
+        return READ.sum();
+    }
+
+    public static long getBytesWritten() {
+        return WRITTEN.sum();
+    }
+
+    /**
+     * @return the bytes read by the current thread so far, to be subtracted from a later count
+     */
+    public static long getThreadBytesRead() {
+        return THREAD.get()[0];
+    }
+
+    /**
+     * @return the bytes written by the current thread so far, to be subtracted from a later count
+     */
+    public static long getThreadBytesWritten() {
+        return THREAD.get()[1];
+    }
+
+    /**
+     * Starts the totals again from zero. The counts of each thread are left alone.
+     */
+    public static void reset() {
+        READ.reset();
+        WRITTEN.reset();
+    }
+}
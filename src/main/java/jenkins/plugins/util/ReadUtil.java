@@ -1,26 +1,38 @@
 package jenkins.plugins.util;
 
 import com.google.common.collect.Lists;
-import com.google.common.io.Files;
-import hudson.Util;
 import hudson.model.Job;
+import hudson.model.Result;
 import jenkins.plugins.model.BuildMessage;
+import jenkins.plugins.model.BuildMetricState;
+import jenkins.plugins.model.HistorySummary;
+import jenkins.plugins.model.MTTFMetric;
 import jenkins.plugins.model.MTTRMetric;
+import jenkins.plugins.model.MetricsSnapshot;
+import jenkins.plugins.model.PercentileMetric;
+import jenkins.plugins.model.StandardDeviationMetric;
 
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
-import java.nio.charset.Charset;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Properties;
 import java.util.logging.Logger;
 
-//TODO Wrap some tests around this class
 public class ReadUtil {
 
     private static final Logger LOGGER = Logger.getLogger(ReadUtil.class.getName());
 
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+
     public static Properties getJobProperties(Class metricType, Job job) {
         try {
             File rootDir = job.getRootDir();
@@ -30,6 +42,7 @@ public class ReadUtil {
             try(FileInputStream fis = new FileInputStream(file)) {
                 properties.load(fis);
             }
+            IoStats.read(file.length());
 
             return properties;
         } catch (IOException e) {
@@ -38,20 +51,38 @@ public class ReadUtil {
         }
     }
 
-    public static String getColumnResult(Job job, String resultKey) {
-        Properties properties = ReadUtil.getJobProperties(MTTRMetric.class, job);
-        long result = Long.parseLong(properties.get(resultKey).toString());
-        return Util.getPastTimeString(result);
+    /**
+     * Reads the property files only. Jobs that have no metrics yet get {@link MetricsSnapshot#EMPTY}
+     * without a warning.
+     */
+    public static MetricsSnapshot getMetricsSnapshot(Job job) {
+        Properties properties = new Properties();
+        for (Class metricType : new Class[]{MTTRMetric.class, MTTFMetric.class,
+                StandardDeviationMetric.class, PercentileMetric.class}) {
+            if (new File(job.getRootDir(), StoreUtil.getPropertyFilename(metricType)).exists()) {
+                properties.putAll(getJobProperties(metricType, job));
+            }
+        }
+        if (properties.isEmpty()) {
+            return MetricsSnapshot.EMPTY;
+        }
+        return MetricsSnapshot.fromProperties(properties);
     }
 
+    /**
+     * Malformed lines are skipped and logged.
+     */
     public static List<BuildMessage> getBuildMessageFrom(File storeFile) {
         try {
-            List<String> fileLines = Files.readLines(storeFile, Charset.forName(StoreUtil.UTF_8));
-            List<BuildMessage> buildMessages = Lists.newArrayList();
-            for (String line : fileLines) {
-                String[] build = line.split(",");
-                buildMessages.add(new BuildMessage(Long.parseLong(build[0]),
-                        Long.parseLong(build[1]), Long.parseLong(build[2]), build[3]));
+            final List<BuildMessage> buildMessages = Lists.newArrayList();
+            int malformedLines = forEachBuildMessage(storeFile, new BuildHistoryUtil.RecordVisitor() {
+                @Override
+                public void visit(long buildNumber, long startTime, long duration, String result) {
+                    buildMessages.add(new BuildMessage(buildNumber, startTime, duration, result));
+                }
+            });
+            if (malformedLines > 0) {
+                LOGGER.warning(String.format("skipped %d malformed lines in %s", malformedLines, storeFile));
             }
             Collections.sort(buildMessages);
             return buildMessages;
@@ -61,4 +92,158 @@ public class ReadUtil {
         }
     }
 
+    /**
+     * Streams the lines of a text history, {@code number,startTime,duration,result}, to the
+     * visitor. The bytes are parsed straight into primitives through one reused buffer, and the
+     * usual results are passed as constants, so reading a line allocates nothing.
+     *
+     * @return the number of malformed lines, which are skipped
+     */
+    public static int forEachBuildMessage(File storeFile, BuildHistoryUtil.RecordVisitor visitor) throws IOException {
+        LineParser parser = new LineParser(visitor);
+        try (FileChannel channel = FileChannel.open(storeFile.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+            byte[] bytes = buffer.array();
+            int read;
+            while ((read = channel.read(buffer)) >= 0) {
+                IoStats.read(read);
+                for (int i = 0; i < read; i++) {
+                    parser.accept(bytes[i]);
+                }
+                buffer.clear();
+            }
+        }
+        parser.endOfLine();
+        return parser.malformedLines;
+    }
+
+    public static BuildMetricState getMetricState(File stateFile) {
+        if (!stateFile.exists()) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(stateFile)))) {
+            IoStats.read(stateFile.length());
+            return BuildMetricState.readFrom(in);
+        } catch (IOException e) {
+            LOGGER.warning(String.format("get metric state from file error:%s", e.getMessage()));
+            return null;
+        }
+    }
+
+    /**
+     * @return an empty summary if nothing has been compacted yet
+     */
+    public static HistorySummary getHistorySummary(File summaryFile) throws IOException {
+        if (!summaryFile.exists()) {
+            return new HistorySummary();
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(summaryFile)))) {
+            IoStats.read(summaryFile.length());
+            return HistorySummary.readFrom(in);
+        }
+    }
+
+    /**
+     * One line at a time, fed byte by byte. Lines with a field that is not a number, fewer than
+     * four fields or an overlong result are malformed; anything after the fourth field is ignored.
+     */
+    private static final class LineParser {
+        private static final int MAX_DIGITS = 18;
+        private static final int MAX_RESULT_LENGTH = 32;
+        private static final String[] KNOWN_RESULTS = {Result.SUCCESS.toString(), Result.UNSTABLE.toString(),
+                Result.FAILURE.toString(), Result.NOT_BUILT.toString(), Result.ABORTED.toString(),
+                String.valueOf((Object) null)};
+        private static final byte[][] KNOWN_RESULT_BYTES = new byte[KNOWN_RESULTS.length][];
+
+        static {
+            for (int i = 0; i < KNOWN_RESULTS.length; i++) {
+                KNOWN_RESULT_BYTES[i] = KNOWN_RESULTS[i].getBytes(StandardCharsets.US_ASCII);
+            }
+        }
+
+        private final BuildHistoryUtil.RecordVisitor visitor;
+        private final long[] numbers = new long[3];
+        private final byte[] result = new byte[MAX_RESULT_LENGTH];
+        private int malformedLines;
+
+        private boolean empty = true;
+        private boolean malformed;
+        private int field;
+        private long value;
+        private boolean negative;
+        private int digits;
+        private int resultLength;
+
+        private LineParser(BuildHistoryUtil.RecordVisitor visitor) {
+            this.visitor = visitor;
+        }
+
+        void accept(byte b) {
+            if (b == '\n') {
+                endOfLine();
+                return;
+            }
+            if (b == '\r') {
+                return;
+            }
+            empty = false;
+            if (malformed) {
+                return;
+            }
+
+            if (field < numbers.length) {
+                if (b == ',') {
+                    if (digits == 0) {
+                        malformed = true;
+                        return;
+                    }
+                    numbers[field++] = negative ? -value : value;
+                    value = 0;
+                    negative = false;
+                    digits = 0;
+                } else if (b >= '0' && b <= '9' && digits < MAX_DIGITS) {
+                    value = value * 10 + (b - '0');
+                    digits++;
+                } else if (b == '-' && digits == 0 && !negative) {
+                    negative = true;
+                } else {
+                    malformed = true;
+                }
+            } else if (field == numbers.length) {
+                if (b == ',') {
+                    field++;
+                } else if (resultLength < result.length) {
+                    result[resultLength++] = b;
+                } else {
+                    malformed = true;
+                }
+            }
+        }
+
+        void endOfLine() {
+            if (!empty) {
+                if (!malformed && field >= numbers.length && resultLength > 0) {
+                    visitor.visit(numbers[0], numbers[1], numbers[2], getResult());
+                } else {
+                    malformedLines++;
+                }
+            }
+            empty = true;
+            malformed = false;
+            field = 0;
+            value = 0;
+            negative = false;
+            digits = 0;
+            resultLength = 0;
+        }
+
+        private String getResult() {
+            for (int i = 0; i < KNOWN_RESULT_BYTES.length; i++) {
+                if (Arrays.equals(KNOWN_RESULT_BYTES[i], 0, KNOWN_RESULT_BYTES[i].length, result, 0, resultLength)) {
+                    return KNOWN_RESULTS[i];
+                }
+            }
+            return new String(result, 0, resultLength, StandardCharsets.UTF_8);
+        }
+    }
 }
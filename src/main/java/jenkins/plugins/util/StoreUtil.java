@@ -1,21 +1,26 @@
 package jenkins.plugins.util;
 
 import com.google.common.io.Files;
-import hudson.model.AbstractBuild;
 import hudson.model.Job;
 import hudson.model.Run;
-import hudson.util.RunList;
 import jenkins.plugins.model.AggregateBuildMetric;
+import jenkins.plugins.model.BuildMessage;
+import jenkins.plugins.model.BuildMetricState;
+import jenkins.plugins.model.HistorySummary;
 import jenkins.plugins.model.MTTFMetric;
 import jenkins.plugins.model.MTTRMetric;
+import jenkins.plugins.model.MetricsSnapshot;
+import jenkins.plugins.model.PercentileMetric;
 import jenkins.plugins.model.StandardDeviationMetric;
-import org.jfree.chart.JFreeChart;
 
-import javax.imageio.ImageIO;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.nio.charset.Charset;
-import java.util.Iterator;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
 import java.util.logging.Logger;
 
 public class StoreUtil {
@@ -24,52 +29,96 @@ public class StoreUtil {
     public static final String MTTR_PROPERTY_FILE = "mttr.properties";
     public static final String MTTF_PROPERTY_FILE = "mttf.properties";
     public static final String STDDEV_PROPERTY_FILE = "stddev.properties";
-    public static final String MTTR_GRAPH_FILE = "mttr.jpg";
-    public static final String MTTF_GRAPH_FILE = "mttf.jpg";
-    public static final String STDDEV_GRAPH_FILE = "stddev.jpg";
+    public static final String PERCENTILE_PROPERTY_FILE = "percentile.properties";
+    public static final String METRIC_STATE_FILE = "metrics.state";
+    public static final String HISTORY_SUMMARY_FILE = "all_builds.summary";
     public static final String UTF_8 = "UTF-8";
 
-    public static void storeBuildMessages(File storeFile, Run build) {
+    /**
+     * Adds the builds to the binary history, creating it if needed.
+     */
+    public static void storeBuildMessages(File storeFile, List<BuildMessage> builds) {
+        if (builds.isEmpty()) {
+            return;
+        }
         try {
-            if (storeFile.exists()) {
-                appendBuildMessageToFile(build, storeFile);
-            } else {
-                appendAJobsBuildMessageHistoryToFile(build.getParent(), storeFile);
-            }
+            BuildHistoryUtil.appendBuildMessages(storeFile, builds);
         } catch (IOException e) {
             LOGGER.warning(String.format("store build messages error : %s", e.getMessage()));
         }
     }
 
     public static void storeBuildMetric(Class metricType, Run run, AggregateBuildMetric... buildMetrics) {
-        try {
-            StringBuilder fileContent = new StringBuilder();
+        storeBuildMetric(metricType, run.getParent(), buildMetrics);
+    }
+
+    public static void storeBuildMetric(Class metricType, Job job, AggregateBuildMetric... buildMetrics) {
+        storeBuildMetric(metricType, job, new StringBuilder(), buildMetrics);
+    }
+
+    /**
+     * Stores the number of the last build in the metrics along with them, so a
+     * {@link jenkins.plugins.model.MetricsSnapshot} can be read back from the property files alone.
+     */
+    public static void storeBuildMetric(Class metricType, Job job, long lastBuildNumber,
+                                        AggregateBuildMetric... buildMetrics) {
+        StringBuilder fileContent = new StringBuilder();
+        fileContent.append(MetricsSnapshot.LAST_BUILD_NUMBER).append("=").append(lastBuildNumber).append("\n");
+        storeBuildMetric(metricType, job, fileContent, buildMetrics);
+    }
 
+    /**
+     * Writes each metric's value and the number of occurrences it is the mean of. Replaces the
+     * property file in one step, so readers never see it half written.
+     */
+    private static void storeBuildMetric(Class metricType, Job job, StringBuilder fileContent,
+                                         AggregateBuildMetric... buildMetrics) {
+        try {
             for (AggregateBuildMetric buildMetric : buildMetrics) {
                 fileContent.append(buildMetric.getName()).append("=")
                         .append(buildMetric.calculateMetric()).append("\n");
+                fileContent.append(buildMetric.getName()).append(MetricsSnapshot.OCCURENCES_SUFFIX).append("=")
+                        .append(buildMetric.getOccurences()).append("\n");
             }
 
             String propertyFilename = getPropertyFilename(metricType);
-            File propertiesFile = new File(run.getParent().getRootDir().getAbsolutePath() + File.separator + propertyFilename);
-            Files.write(fileContent.toString(), propertiesFile, Charset.forName(UTF_8));
+            File propertiesFile = new File(job.getRootDir().getAbsolutePath() + File.separator + propertyFilename);
+            File tempFile = new File(propertiesFile.getAbsolutePath() + ".tmp");
+            byte[] bytes = fileContent.toString().getBytes(Charset.forName(UTF_8));
+            Files.write(bytes, tempFile);
+            IoStats.written(bytes.length);
+            java.nio.file.Files.move(tempFile.toPath(), propertiesFile.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
 
         } catch (IOException e) {
             LOGGER.warning(String.format("store property error:%s", e.getMessage()));
         }
     }
 
-    public static void storeGraph(Class metricType, Run run, JFreeChart chart) {
+    public static void storeMetricState(File stateFile, BuildMetricState state) {
+        File tempFile = new File(stateFile.getAbsolutePath() + ".tmp");
         try {
-            String graphFileName = getGraphFilename(metricType);
-            File graphFile = new File(run.getParent().getRootDir().getAbsolutePath() + File.separator + graphFileName);
-
-            ImageIO.write(chart.createBufferedImage(500,500), "jpg", graphFile);
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)))) {
+                state.writeTo(out);
+            }
+            IoStats.written(tempFile.length());
+            java.nio.file.Files.move(tempFile.toPath(), stateFile.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
         } catch (IOException e) {
-            LOGGER.warning(String.format("store property error:%s", e.getMessage()));
+            LOGGER.warning(String.format("store metric state error:%s", e.getMessage()));
         }
     }
 
+    public static void storeHistorySummary(File summaryFile, HistorySummary summary) throws IOException {
+        File tempFile = new File(summaryFile.getAbsolutePath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)))) {
+            summary.writeTo(out);
+        }
+        IoStats.written(tempFile.length());
+        java.nio.file.Files.move(tempFile.toPath(), summaryFile.toPath(),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
     public static String getPropertyFilename(Class metricType) {
         if(metricType==MTTFMetric.class) {
             return MTTF_PROPERTY_FILE;
@@ -77,45 +126,10 @@ public class StoreUtil {
             return MTTR_PROPERTY_FILE;
         } else if(metricType==StandardDeviationMetric.class) {
             return STDDEV_PROPERTY_FILE;
+        } else if(metricType==PercentileMetric.class) {
+            return PERCENTILE_PROPERTY_FILE;
         } else {
             throw new IllegalArgumentException("No property file mapping for metric - " + metricType);
         }
     }
-
-    public static String getGraphFilename(Class metricType) {
-        if(metricType==MTTFMetric.class) {
-            return MTTF_GRAPH_FILE;
-        } else if(metricType==MTTRMetric.class) {
-            return MTTR_GRAPH_FILE;
-        } else if(metricType==StandardDeviationMetric.class) {
-            return STDDEV_GRAPH_FILE;
-        } else {
-            throw new IllegalArgumentException("No property file mapping for metric - " + metricType);
-        }
-    }
-
-    @SuppressWarnings("unchecked") //Required because of RunList<Run>
-    private static void appendAJobsBuildMessageHistoryToFile(Job job, File storeFile) throws IOException {
-        StringBuilder fileContent = new StringBuilder();
-        RunList<Run> builds = job.getBuilds();
-        for (Iterator<Run> i = builds.iterator(); i.hasNext(); ) {
-            Run build = i.next();
-            constructBuildInfoStringForRun(fileContent, build);
-        }
-        Files.write(fileContent.toString(), storeFile, Charset.forName(UTF_8));
-    }
-
-    private static void appendBuildMessageToFile(Run build, File storeFile) throws IOException {
-        StringBuilder fileContent = new StringBuilder();
-        constructBuildInfoStringForRun(fileContent, build);
-        Files.append(fileContent.toString(), storeFile, Charset.forName(UTF_8));
-    }
-
-
-    private static void constructBuildInfoStringForRun(StringBuilder fileContent, Run build) {
-        fileContent.append(build.getNumber()).append(",")
-                .append(build.getTimestamp().getTimeInMillis()).append(",")
-                .append(build.getDuration()).append(",")
-                .append(build.getResult()).append("\n");
-    }
 }
@@ -0,0 +1,36 @@
+package jenkins.plugins.benchmark;
+
+import org.junit.jupiter.api.Test;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Runs the benchmarks of this package with allocation profiling, only when asked to with
+ * {@code mvn test -Dbenchmark}. {@code -Dbenchmark.include} narrows them down by regular
+ * expression and {@code -Dbenchmark.size} picks the history sizes, for example
+ * {@code -Dbenchmark.size=1000,100000}. Results go to {@code target/jmh-report.json}.
+ */
+class BenchmarkRunner {
+
+    @Test
+    void runJmhBenchmarks() throws Exception {
+        assumeTrue(System.getProperty("benchmark") != null, "Benchmarks only run with -Dbenchmark");
+
+        ChainedOptionsBuilder options = new OptionsBuilder()
+                .include(System.getProperty("benchmark.include", BenchmarkRunner.class.getPackage().getName() + ".*"))
+                .addProfiler(GCProfiler.class)
+                .shouldFailOnError(true)
+                .resultFormat(ResultFormatType.JSON)
+                .result("target/jmh-report.json");
+        String sizes = System.getProperty("benchmark.size");
+        if (sizes != null) {
+            options.param("size", sizes.split(","));
+        }
+        new Runner(options.build()).run();
+    }
+}
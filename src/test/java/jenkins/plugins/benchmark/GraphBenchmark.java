@@ -0,0 +1,33 @@
+package jenkins.plugins.benchmark;
+
+import jenkins.plugins.util.GraphUtil;
+import org.jfree.chart.JFreeChart;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class GraphBenchmark {
+
+    @Benchmark
+    public JFreeChart generateStdDevGraph(SyntheticHistory history) {
+        return GraphUtil.generateStdDevGraph("Standard Deviation of Build Time", history.builds);
+    }
+
+    @Benchmark
+    public BufferedImage renderStdDevGraph(SyntheticHistory history) {
+        return GraphUtil.generateStdDevGraph("Standard Deviation of Build Time", history.builds)
+                .createBufferedImage(500, 500);
+    }
+}
@@ -0,0 +1,63 @@
+package jenkins.plugins.benchmark;
+
+import jenkins.plugins.model.BuildHistory;
+import jenkins.plugins.model.BuildMessage;
+import jenkins.plugins.util.BuildHistoryUtil;
+import jenkins.plugins.util.ReadUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HistoryReadBenchmark {
+
+    @Benchmark
+    public List<BuildMessage> readTextHistory(SyntheticHistory history) {
+        return ReadUtil.getBuildMessageFrom(history.textHistory);
+    }
+
+    @Benchmark
+    public int visitTextHistory(SyntheticHistory history, final Blackhole blackhole) throws IOException {
+        return ReadUtil.forEachBuildMessage(history.textHistory, new BuildHistoryUtil.RecordVisitor() {
+            @Override
+            public void visit(long buildNumber, long startTime, long duration, String result) {
+                blackhole.consume(startTime);
+                blackhole.consume(result);
+            }
+        });
+    }
+
+    @Benchmark
+    public List<BuildMessage> readBinaryHistory(SyntheticHistory history) {
+        return BuildHistoryUtil.getBuildMessages(history.binaryHistory);
+    }
+
+    @Benchmark
+    public BuildHistory readBinaryHistoryColumns(SyntheticHistory history) throws IOException {
+        return BuildHistoryUtil.readBuildHistory(history.binaryHistory);
+    }
+
+    @Benchmark
+    public int visitBinaryHistory(SyntheticHistory history, final Blackhole blackhole) throws IOException {
+        return BuildHistoryUtil.forEachRecord(history.binaryHistory, new BuildHistoryUtil.RecordVisitor() {
+            @Override
+            public void visit(long buildNumber, long startTime, long duration, String result) {
+                blackhole.consume(startTime);
+                blackhole.consume(result);
+            }
+        });
+    }
+}
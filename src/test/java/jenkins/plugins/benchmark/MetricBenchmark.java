@@ -0,0 +1,129 @@
+package jenkins.plugins.benchmark;
+
+import jenkins.plugins.model.BuildMetricState;
+import jenkins.plugins.model.MTTFMetric;
+import jenkins.plugins.model.MTTRMetric;
+import jenkins.plugins.model.MetricAccumulator;
+import jenkins.plugins.model.SlidingWindow;
+import jenkins.plugins.model.StandardDeviationMetric;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The metrics over the whole history, and the 30 day window through the sliding windows that
+ * replaced cutting the history by date. The windows are read from a state stored a day earlier,
+ * so each call evicts a day of builds as a job's first update after a quiet day does.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MetricBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class StoredState {
+        public BuildMetricState state;
+
+        @Setup(Level.Trial)
+        public void setUp(SyntheticHistory history) {
+            state = BuildMetricState.fromHistory(history.builds, history.now);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class DayOldState {
+        private byte[] stored;
+        public BuildMetricState state;
+
+        @Setup(Level.Trial)
+        public void store(SyntheticHistory history) throws IOException {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            BuildMetricState.fromHistory(history.builds, history.now - TimeUnit.DAYS.toMillis(1))
+                    .writeTo(new DataOutputStream(bytes));
+            stored = bytes.toByteArray();
+        }
+
+        // evicting moves the windows on for good, so every call starts from the stored state
+        @Setup(Level.Invocation)
+        public void read() throws IOException {
+            state = BuildMetricState.readFrom(new DataInputStream(new ByteArrayInputStream(stored)));
+        }
+    }
+
+    @Benchmark
+    public long mttr(SyntheticHistory history) {
+        return new MTTRMetric("mttr", history.builds).calculateMetric();
+    }
+
+    @Benchmark
+    public long mttf(SyntheticHistory history) {
+        return new MTTFMetric("mttf", history.builds).calculateMetric();
+    }
+
+    @Benchmark
+    public long standardDeviation(SyntheticHistory history) {
+        return new StandardDeviationMetric("stddev", history.builds).calculateMetric();
+    }
+
+    @Benchmark
+    public long mttrColumns(SyntheticHistory history) {
+        return new MTTRMetric("mttr", history.columns).calculateMetric();
+    }
+
+    @Benchmark
+    public long mttfColumns(SyntheticHistory history) {
+        return new MTTFMetric("mttf", history.columns).calculateMetric();
+    }
+
+    @Benchmark
+    public long standardDeviationColumns(SyntheticHistory history) {
+        return new StandardDeviationMetric("stddev", history.columns).calculateMetric();
+    }
+
+    @Benchmark
+    public BuildMetricState stateFromHistory(SyntheticHistory history) {
+        return BuildMetricState.fromHistory(history.builds, history.now);
+    }
+
+    @Benchmark
+    public BuildMetricState stateFromColumns(SyntheticHistory history) {
+        return BuildMetricState.fromHistory(history.columns, history.now);
+    }
+
+    @Benchmark
+    public SlidingWindow last30Days(DayOldState stored, SyntheticHistory history) {
+        return stored.state.getLastDays(30, history.now);
+    }
+
+    @Benchmark
+    public MetricAccumulator[] windowTotals(DayOldState stored, SyntheticHistory history) {
+        return stored.state.getWindowTotals(history.now);
+    }
+
+    @Benchmark
+    public long p99Last30Days(DayOldState stored, SyntheticHistory history) {
+        return stored.state.getDurationsLastDays(30, history.now).getQuantile(0.99);
+    }
+
+    @Benchmark
+    public long p99AllBuilds(StoredState stored) {
+        return stored.state.getAllBuilds().getDurations().getQuantile(0.99);
+    }
+}
@@ -0,0 +1,99 @@
+package jenkins.plugins.benchmark;
+
+import hudson.model.Result;
+import jenkins.plugins.model.BuildHistory;
+import jenkins.plugins.model.BuildMessage;
+import jenkins.plugins.util.BuildHistoryUtil;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A made up history of {@code size} builds ending now, the same for every run, stored in both
+ * the text and the binary format.
+ */
+@State(Scope.Benchmark)
+public class SyntheticHistory {
+
+    private static final String[] RESULTS = {Result.SUCCESS.toString(), Result.FAILURE.toString(),
+            Result.UNSTABLE.toString(), Result.ABORTED.toString()};
+
+    @Param({"1000", "100000", "1000000"})
+    public int size;
+
+    public long now;
+    public List<BuildMessage> builds;
+    public BuildHistory columns;
+    public File textHistory;
+    public File binaryHistory;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        now = System.currentTimeMillis();
+        builds = generate(size, now);
+        columns = BuildHistory.of(builds);
+
+        File dir = Files.createTempDirectory("build-history-metrics-benchmark").toFile();
+        textHistory = new File(dir, "all_builds.mr");
+        try (BufferedWriter writer = Files.newBufferedWriter(textHistory.toPath(), StandardCharsets.UTF_8)) {
+            for (BuildMessage build : builds) {
+                writer.append(String.valueOf(build.getBuildNumber())).append(',')
+                        .append(String.valueOf(build.getStartTime())).append(',')
+                        .append(String.valueOf(build.getDuration())).append(',')
+                        .append(build.getResult()).append('\n');
+            }
+        }
+        binaryHistory = new File(dir, "all_builds.bin");
+        BuildHistoryUtil.writeBuildMessages(binaryHistory, builds);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        File dir = textHistory.getParentFile();
+        textHistory.delete();
+        binaryHistory.delete();
+        dir.delete();
+    }
+
+    /**
+     * Mostly successes with runs of failures, a build every few minutes to an hour.
+     */
+    static List<BuildMessage> generate(int size, long end) {
+        Random random = new Random(42);
+        long[] gaps = new long[size];
+        long span = 0;
+        for (int i = 0; i < size; i++) {
+            gaps[i] = TimeUnit.MINUTES.toMillis(1 + random.nextInt(60));
+            span += gaps[i];
+        }
+
+        List<BuildMessage> builds = new ArrayList<BuildMessage>(size);
+        long startTime = end - span;
+        int result = 0;
+        for (int i = 0; i < size; i++) {
+            int roll = random.nextInt(100);
+            if (result == 0 && roll < 10) {
+                result = 1 + random.nextInt(RESULTS.length - 1);
+            } else if (result != 0 && roll < 40) {
+                result = 0;
+            }
+            long duration = TimeUnit.SECONDS.toMillis(30 + random.nextInt(1800));
+            builds.add(new BuildMessage(i + 1, startTime, duration, RESULTS[result]));
+            startTime += gaps[i];
+        }
+        return builds;
+    }
+}
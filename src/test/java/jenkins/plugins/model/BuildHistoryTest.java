@@ -0,0 +1,96 @@
+package jenkins.plugins.model;
+
+import com.google.common.collect.Lists;
+import hudson.model.Result;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BuildHistoryTest {
+
+    private static final String[] RESULTS = {Result.SUCCESS.toString(), Result.FAILURE.toString(),
+            Result.UNSTABLE.toString(), Result.ABORTED.toString(), "null"};
+
+    @Test
+    void should_give_the_same_metrics_as_the_list_of_builds() {
+        long now = System.currentTimeMillis();
+        List<BuildMessage> builds = randomBuilds(1000, now);
+        BuildHistory history = BuildHistory.of(builds);
+
+        verifyResult(new MTTRMetric("test", builds), new MTTRMetric("test", history));
+        verifyResult(new MTTFMetric("test", builds), new MTTFMetric("test", history));
+        verifyResult(new StandardDeviationMetric("test", builds), new StandardDeviationMetric("test", history));
+
+        MetricAccumulator accumulator = history.toAccumulator();
+        verifyResult(new MTTRMetric("test", builds), accumulator.toMTTRMetric("test"));
+        verifyResult(new MTTFMetric("test", builds), accumulator.toMTTFMetric("test"));
+
+        BuildMetricState expected = BuildMetricState.fromHistory(builds, now);
+        BuildMetricState actual = BuildMetricState.fromHistory(history, now);
+        assertEquals(expected.getLastBuildNumber(), actual.getLastBuildNumber(), "Last Build Number");
+        verifyResult(expected.getAllBuilds().toMTTRMetric("test"), actual.getAllBuilds().toMTTRMetric("test"));
+        verifyResult(expected.getLastDays(30, now).toMTTFMetric("test"), actual.getLastDays(30, now).toMTTFMetric("test"));
+        verifyResult(expected.getLastDays(7, now).toStandardDeviationMetric("test"),
+                actual.getLastDays(7, now).toStandardDeviationMetric("test"));
+    }
+
+    @Test
+    void should_sort_the_columns_together() {
+        List<BuildMessage> builds = randomBuilds(100, System.currentTimeMillis());
+        List<BuildMessage> shuffled = new ArrayList<BuildMessage>(builds);
+        Collections.shuffle(shuffled, new Random(7));
+        BuildHistory history = BuildHistory.of(shuffled);
+        assertFalse(history.isSortedByBuildNumber());
+
+        history.sortByBuildNumber();
+
+        assertTrue(history.isSortedByBuildNumber());
+        assertEquals(builds.size(), history.size(), "Build Count");
+        for (int i = 0; i < builds.size(); i++) {
+            BuildMessage build = history.get(i);
+            assertEquals(builds.get(i).getBuildNumber(), build.getBuildNumber(), "Build Number");
+            assertEquals(builds.get(i).getStartTime(), build.getStartTime(), "Start Time");
+            assertEquals(builds.get(i).getDuration(), build.getDuration(), "Duration");
+            assertEquals(builds.get(i).getResult(), build.getResult(), "Result");
+        }
+    }
+
+    @Test
+    void should_keep_builds_with_the_same_number_in_the_order_they_were_added() {
+        BuildHistory history = BuildHistory.of(Lists.newArrayList(
+                new BuildMessage(2, 2000, 2500, Result.FAILURE.toString()),
+                new BuildMessage(1, 1000, 1500, Result.SUCCESS.toString()),
+                new BuildMessage(2, 3000, 3500, Result.SUCCESS.toString())));
+
+        history.sortByBuildNumber();
+
+        assertEquals(1, history.getBuildNumber(0), "Build Number");
+        assertEquals(2000, history.getStartTime(1), "Start Time");
+        assertEquals(3000, history.getStartTime(2), "Start Time");
+    }
+
+    private static List<BuildMessage> randomBuilds(int count, long end) {
+        Random random = new Random(42);
+        List<BuildMessage> builds = new ArrayList<BuildMessage>(count);
+        long startTime = end - count * TimeUnit.HOURS.toMillis(1);
+        for (int i = 1; i <= count; i++) {
+            startTime += random.nextInt((int) TimeUnit.HOURS.toMillis(1));
+            builds.add(new BuildMessage(i, startTime, random.nextInt(100000), RESULTS[random.nextInt(RESULTS.length)]));
+        }
+        return builds;
+    }
+
+    private void verifyResult(AggregateBuildMetric expected, AggregateBuildMetric actual) {
+        assertEquals(expected.getName(), actual.getName(), "Metric Name");
+        assertEquals(expected.calculateMetric(), actual.calculateMetric(), expected.getClass().getSimpleName());
+        assertEquals(expected.getOccurences(), actual.getOccurences(), "Build Count");
+    }
+}
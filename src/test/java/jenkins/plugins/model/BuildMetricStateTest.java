@@ -0,0 +1,172 @@
+package jenkins.plugins.model;
+
+import com.google.common.collect.Lists;
+import hudson.model.Result;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BuildMetricStateTest {
+
+    private static final long TODAY = new Date().getTime();
+    private static final long TEN_DAYS_AGO = TODAY - TimeUnit.DAYS.toMillis(10);
+    private static final long FORTY_DAYS_AGO = TODAY - TimeUnit.DAYS.toMillis(40);
+    private static final BuildMessage FIRST_BUILD = new BuildMessage(1, FORTY_DAYS_AGO, 1500, Result.SUCCESS.toString());
+    private static final BuildMessage SECOND_BUILD = new BuildMessage(2, FORTY_DAYS_AGO + 1000, 2500, Result.FAILURE.toString());
+    private static final BuildMessage THIRD_BUILD = new BuildMessage(3, TEN_DAYS_AGO, 3500, Result.FAILURE.toString());
+    private static final BuildMessage FOURTH_BUILD = new BuildMessage(4, TEN_DAYS_AGO + 1000, 4500, Result.SUCCESS.toString());
+    private static final BuildMessage FIFTH_BUILD = new BuildMessage(5, TODAY, 5500, Result.FAILURE.toString());
+    private static final BuildMessage SIXTH_BUILD = new BuildMessage(6, TODAY + 1000, 6500, Result.SUCCESS.toString());
+
+    private static final List<BuildMessage> ALL_BUILDS = Lists.newArrayList(FIRST_BUILD, SECOND_BUILD, THIRD_BUILD,
+            FOURTH_BUILD, FIFTH_BUILD, SIXTH_BUILD);
+
+    @Test
+    void should_match_the_batch_metrics_when_builds_are_added_one_at_a_time() {
+        BuildMetricState state = new BuildMetricState();
+        for (BuildMessage build : ALL_BUILDS) {
+            state.add(build, TODAY);
+        }
+
+        MetricAccumulator allBuilds = state.getAllBuilds();
+        verifyResult(new MTTRMetric("test", ALL_BUILDS), allBuilds.toMTTRMetric("test"));
+        verifyResult(new MTTFMetric("test", ALL_BUILDS), allBuilds.toMTTFMetric("test"));
+        verifyResult(new StandardDeviationMetric("test", ALL_BUILDS), allBuilds.toStandardDeviationMetric("test"));
+        assertEquals(6, state.getLastBuildNumber(), "Last Build Number");
+    }
+
+    @Test
+    void should_only_count_the_builds_inside_the_window() {
+        BuildMetricState state = BuildMetricState.fromHistory(ALL_BUILDS, TODAY);
+
+        List<BuildMessage> last30Days = Lists.newArrayList(THIRD_BUILD, FOURTH_BUILD, FIFTH_BUILD, SIXTH_BUILD);
+        SlidingWindow last30DayBuilds = state.getLastDays(30, TODAY);
+        verifyResult(new MTTRMetric("test", last30Days), last30DayBuilds.toMTTRMetric("test"));
+        verifyResult(new MTTFMetric("test", last30Days), last30DayBuilds.toMTTFMetric("test"));
+        verifyResult(new StandardDeviationMetric("test", last30Days), last30DayBuilds.toStandardDeviationMetric("test"));
+
+        List<BuildMessage> last7Days = Lists.newArrayList(FIFTH_BUILD, SIXTH_BUILD);
+        SlidingWindow last7DayBuilds = state.getLastDays(7, TODAY);
+        verifyResult(new MTTRMetric("test", last7Days), last7DayBuilds.toMTTRMetric("test"));
+        verifyResult(new MTTFMetric("test", last7Days), last7DayBuilds.toMTTFMetric("test"));
+        verifyResult(new StandardDeviationMetric("test", last7Days), last7DayBuilds.toStandardDeviationMetric("test"));
+    }
+
+    @Test
+    void should_refuse_builds_that_are_not_after_the_last_one() {
+        BuildMetricState state = BuildMetricState.fromHistory(Lists.newArrayList(FIRST_BUILD, THIRD_BUILD), TODAY);
+
+        assertFalse(state.canAdd(SECOND_BUILD));
+        assertTrue(state.canAdd(FOURTH_BUILD));
+        assertThrows(IllegalArgumentException.class, () -> state.add(SECOND_BUILD, TODAY));
+    }
+
+    @Test
+    void should_take_a_build_that_completes_after_a_later_one() throws IOException {
+        BuildMetricState state = new BuildMetricState();
+        for (BuildMessage build : Lists.newArrayList(FIRST_BUILD, SECOND_BUILD, FOURTH_BUILD, THIRD_BUILD)) {
+            state.add(build, TODAY);
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        state.writeTo(new DataOutputStream(bytes));
+        BuildMetricState restored = BuildMetricState.readFrom(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+        assertEquals(4, restored.getLastBuildNumber(), "Last Build Number");
+        assertTrue(restored.canAdd(FIFTH_BUILD));
+        restored.add(SIXTH_BUILD, TODAY);
+        restored.add(FIFTH_BUILD, TODAY);
+
+        MetricAccumulator allBuilds = restored.getAllBuilds();
+        verifyResult(new MTTRMetric("test", ALL_BUILDS), allBuilds.toMTTRMetric("test"));
+        verifyResult(new MTTFMetric("test", ALL_BUILDS), allBuilds.toMTTFMetric("test"));
+        verifyResult(new StandardDeviationMetric("test", ALL_BUILDS), allBuilds.toStandardDeviationMetric("test"));
+        List<BuildMessage> last30Days = Lists.newArrayList(THIRD_BUILD, FOURTH_BUILD, FIFTH_BUILD, SIXTH_BUILD);
+        verifyResult(new MTTRMetric("test", last30Days), restored.getLastDays(30, TODAY).toMTTRMetric("test"));
+        assertEquals(4, restored.getDurationsLastDays(30, TODAY).getCount(), "Durations of the last 30 days");
+        assertEquals(4, restored.getWindowTotals(TODAY)[1].getCount(), "Totals of the last 30 days");
+        assertTrue(restored.canAdd(FIRST_BUILD), "Reading the metrics should leave the builds held back");
+    }
+
+    @Test
+    void should_fold_in_the_oldest_builds_held_back() {
+        BuildMetricState state = new BuildMetricState();
+        for (int i = 1; i <= BuildMetricState.REORDER_BUILDS + 1; i++) {
+            state.add(new BuildMessage(i, TODAY + i, 10, Result.SUCCESS.toString()), TODAY);
+        }
+
+        assertFalse(state.canAdd(new BuildMessage(1, TODAY, 10, Result.FAILURE.toString())));
+        assertTrue(state.canAdd(new BuildMessage(2, TODAY, 10, Result.FAILURE.toString())));
+        assertEquals(BuildMetricState.REORDER_BUILDS + 1, state.getLastBuildNumber(), "Last Build Number");
+    }
+
+    @Test
+    void should_continue_from_where_it_left_off_after_being_stored() throws IOException {
+        BuildMetricState state = BuildMetricState.fromHistory(ALL_BUILDS.subList(0, 3), TODAY);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        state.writeTo(new DataOutputStream(bytes));
+        BuildMetricState restored = BuildMetricState.readFrom(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+        for (BuildMessage build : ALL_BUILDS.subList(3, 6)) {
+            restored.add(build, TODAY);
+        }
+
+        MetricAccumulator allBuilds = restored.getAllBuilds();
+        verifyResult(new MTTRMetric("test", ALL_BUILDS), allBuilds.toMTTRMetric("test"));
+        verifyResult(new MTTFMetric("test", ALL_BUILDS), allBuilds.toMTTFMetric("test"));
+        verifyResult(new StandardDeviationMetric("test", ALL_BUILDS), allBuilds.toStandardDeviationMetric("test"));
+        assertEquals(4, restored.getLastDays(30, TODAY).getCount(), "Last 30 days");
+        assertEquals(4, restored.getDurationsLastDays(30, TODAY).getCount(), "Durations of the last 30 days");
+    }
+
+    @Test
+    void should_keep_the_windows_it_was_given_when_stored() throws IOException {
+        BuildMetricState state = BuildMetricState.fromHistory(ALL_BUILDS, new int[]{1, 14, 90}, TODAY);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        state.writeTo(new DataOutputStream(bytes));
+        BuildMetricState restored = BuildMetricState.readFrom(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+
+        assertArrayEquals(new int[]{1, 14, 90}, restored.getWindowDays());
+        assertEquals(2, restored.getLastDays(1, TODAY).getCount(), "Last day");
+        assertEquals(4, restored.getLastDays(14, TODAY).getCount(), "Last 14 days");
+        assertEquals(6, restored.getLastDays(90, TODAY).getCount(), "Last 90 days");
+        assertThrows(IllegalArgumentException.class, () -> restored.getLastDays(7, TODAY));
+        assertThrows(IllegalArgumentException.class, () -> new BuildMetricState(new int[]{30, 7}));
+    }
+
+    @Test
+    void should_merge_the_percentiles_of_a_window_from_its_days() {
+        BuildMetricState state = BuildMetricState.fromHistory(ALL_BUILDS, TODAY);
+
+        DurationSketch last7Days = state.getDurationsLastDays(7, TODAY);
+        assertEquals(2, last7Days.getCount(), "Last 7 days");
+        assertEquals(5500, last7Days.getQuantile(0.5), 5500 * DurationSketch.RELATIVE_ACCURACY, "Median of the last 7 days");
+
+        DurationSketch last30Days = state.getDurationsLastDays(30, TODAY);
+        assertEquals(4, last30Days.getCount(), "Last 30 days");
+        assertEquals(6500, last30Days.getQuantile(0.99), 6500 * DurationSketch.RELATIVE_ACCURACY, "p99 of the last 30 days");
+
+        DurationSketch allBuilds = state.getAllBuilds().getDurations();
+        assertEquals(6, allBuilds.getCount(), "All builds");
+        assertEquals(3500, allBuilds.getQuantile(0.5), 3500 * DurationSketch.RELATIVE_ACCURACY, "Median of all builds");
+    }
+
+    private void verifyResult(AggregateBuildMetric expected, AggregateBuildMetric actual) {
+        assertEquals(expected.getName(), actual.getName(), "Metric Name");
+        assertEquals(expected.calculateMetric(), actual.calculateMetric(), expected.getClass().getSimpleName());
+        assertEquals(expected.getOccurences(), actual.getOccurences(), "Build Count");
+    }
+}
@@ -0,0 +1,101 @@
+package jenkins.plugins.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DurationSketchTest {
+
+    private static final double[] QUANTILES = {0, 0.5, 0.9, 0.99, 1};
+
+    @Test
+    void should_be_within_the_relative_accuracy_of_the_exact_percentile() {
+        long[] durations = longTailedDurations(10000);
+        DurationSketch sketch = new DurationSketch();
+        for (long duration : durations) {
+            sketch.add(duration);
+        }
+
+        long[] sorted = durations.clone();
+        Arrays.sort(sorted);
+        assertEquals(durations.length, sketch.getCount(), "Count");
+        for (double quantile : QUANTILES) {
+            long exact = sorted[Math.max(0, (int) Math.ceil(quantile * sorted.length) - 1)];
+            long estimate = sketch.getQuantile(quantile);
+            assertTrue(Math.abs(estimate - exact) <= exact * DurationSketch.RELATIVE_ACCURACY + 1,
+                    "p" + quantile + " was " + estimate + " instead of " + exact);
+        }
+    }
+
+    @Test
+    void should_give_the_same_percentiles_merged_as_added_to_one() {
+        long[] durations = longTailedDurations(3000);
+        DurationSketch all = new DurationSketch();
+        DurationSketch merged = new DurationSketch();
+        DurationSketch part = new DurationSketch();
+        for (int i = 0; i < durations.length; i++) {
+            all.add(durations[i]);
+            part.add(durations[i]);
+            if (i % 700 == 0) {
+                merged.merge(part);
+                part = new DurationSketch();
+            }
+        }
+        merged.merge(part);
+
+        assertEquals(all.getCount(), merged.getCount(), "Count");
+        for (double quantile : QUANTILES) {
+            assertEquals(all.getQuantile(quantile), merged.getQuantile(quantile), "p" + quantile);
+        }
+    }
+
+    @Test
+    void should_count_durations_under_a_millisecond_as_zero() {
+        DurationSketch sketch = new DurationSketch();
+        assertEquals(0, sketch.getQuantile(0.5), "Empty");
+
+        sketch.add(0);
+        sketch.add(0);
+        sketch.add(1000);
+
+        assertEquals(0, sketch.getQuantile(0.5), "Median");
+        assertEquals(1000, sketch.getQuantile(1), 1000 * DurationSketch.RELATIVE_ACCURACY, "Maximum");
+    }
+
+    @Test
+    void should_read_back_what_it_wrote() throws IOException {
+        DurationSketch sketch = new DurationSketch();
+        for (long duration : longTailedDurations(500)) {
+            sketch.add(duration);
+        }
+        sketch.add(0);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        sketch.writeTo(new DataOutputStream(bytes));
+        DurationSketch read = DurationSketch.readFrom(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+
+        assertEquals(sketch.getCount(), read.getCount(), "Count");
+        for (double quantile : QUANTILES) {
+            assertEquals(sketch.getQuantile(quantile), read.getQuantile(quantile), "p" + quantile);
+        }
+    }
+
+    private static long[] longTailedDurations(int count) {
+        Random random = new Random(42);
+        long[] durations = new long[count];
+        for (int i = 0; i < count; i++) {
+            // mostly a minute or two, with the odd build taking hours
+            durations[i] = (long) (60000 * Math.exp(random.nextGaussian() * 1.5));
+        }
+        return durations;
+    }
+}
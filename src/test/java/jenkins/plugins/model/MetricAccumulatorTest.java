@@ -0,0 +1,109 @@
+package jenkins.plugins.model;
+
+import hudson.model.Result;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class MetricAccumulatorTest {
+
+    private static final String[] RESULTS = {Result.SUCCESS.toString(), Result.FAILURE.toString(),
+            Result.UNSTABLE.toString(), Result.ABORTED.toString(), null};
+
+    @Test
+    void should_give_the_same_metrics_when_consecutive_runs_of_builds_are_merged() {
+        Random random = new Random(42);
+        for (int round = 0; round < 200; round++) {
+            List<BuildMessage> builds = new ArrayList<BuildMessage>();
+            long startTime = 1000;
+            for (int i = 1; i <= 1 + random.nextInt(40); i++) {
+                startTime += 1 + random.nextInt(5000);
+                builds.add(new BuildMessage(i, startTime, random.nextInt(100000), RESULTS[random.nextInt(RESULTS.length)]));
+            }
+
+            MetricAccumulator merged = new MetricAccumulator();
+            MetricAccumulator segment = new MetricAccumulator();
+            for (BuildMessage build : builds) {
+                segment.add(build);
+                if (random.nextInt(4) == 0) {
+                    merged.merge(segment);
+                    segment = new MetricAccumulator();
+                }
+            }
+            merged.merge(segment);
+
+            verifyResult(new MTTRMetric("test", builds), merged.toMTTRMetric("test"));
+            verifyResult(new MTTFMetric("test", builds), merged.toMTTFMetric("test"));
+            StandardDeviationMetric expected = new StandardDeviationMetric("test", builds);
+            StandardDeviationMetric actual = merged.toStandardDeviationMetric("test");
+            assertEquals(expected.calculateMetric(), actual.calculateMetric(), 1, "StandardDeviationMetric");
+            assertEquals(expected.getOccurences(), actual.getOccurences(), "Build Count");
+        }
+    }
+
+    @Test
+    void should_continue_an_open_streak_into_the_next_run_of_builds() {
+        MetricAccumulator first = new MetricAccumulator();
+        first.add(new BuildMessage(1, 1000, 10, Result.FAILURE.toString()));
+        MetricAccumulator second = new MetricAccumulator();
+        second.add(new BuildMessage(2, 2000, 10, Result.FAILURE.toString()));
+        second.add(new BuildMessage(3, 5000, 10, Result.SUCCESS.toString()));
+
+        first.merge(second);
+
+        assertEquals(4000L, first.toMTTRMetric("test").calculateMetric(), "MTTR Metric");
+        assertEquals(1, first.toMTTRMetric("test").getOccurences(), "Build Count");
+    }
+
+    @Test
+    void should_not_join_the_streaks_of_jobs_that_are_combined() {
+        MetricAccumulator first = new MetricAccumulator();
+        first.add(new BuildMessage(1, 1000, 10, Result.FAILURE.toString()));
+        first.add(new BuildMessage(2, 2000, 30, Result.SUCCESS.toString()));
+        MetricAccumulator second = new MetricAccumulator();
+        second.add(new BuildMessage(1, 500, 20, Result.FAILURE.toString()));
+        second.add(new BuildMessage(2, 3500, 40, Result.SUCCESS.toString()));
+        second.add(new BuildMessage(3, 4000, 50, Result.FAILURE.toString()));
+
+        MetricAccumulator combined = new MetricAccumulator();
+        combined.combine(first);
+        combined.combine(second);
+
+        assertEquals(2000L, combined.toMTTRMetric("test").calculateMetric(), "MTTR Metric");
+        assertEquals(2, combined.toMTTRMetric("test").getOccurences(), "Recoveries");
+        assertEquals(5, combined.getCount(), "Build Count");
+        assertEquals(30d, combined.getMean(), 1e-9, "Mean Build Time");
+    }
+
+    @Test
+    void should_take_out_a_combined_job_again() {
+        MetricAccumulator first = new MetricAccumulator();
+        first.add(new BuildMessage(1, 1000, 10, Result.FAILURE.toString()));
+        first.add(new BuildMessage(2, 2000, 30, Result.SUCCESS.toString()));
+        first.add(new BuildMessage(3, 2500, 70, Result.SUCCESS.toString()));
+        MetricAccumulator second = new MetricAccumulator();
+        second.add(new BuildMessage(1, 500, 20, Result.FAILURE.toString()));
+        second.add(new BuildMessage(2, 3500, 4000, Result.SUCCESS.toString()));
+
+        MetricAccumulator combined = new MetricAccumulator();
+        combined.combine(first);
+        combined.combine(second);
+        combined.subtract(second);
+
+        assertEquals(first.getCount(), combined.getCount(), "Build Count");
+        assertEquals(first.getMean(), combined.getMean(), 1e-9, "Mean Build Time");
+        assertEquals(first.getM2(), combined.getM2(), 1e-6, "Sum of Squared Deviations");
+        assertEquals(1000L, combined.toMTTRMetric("test").calculateMetric(), "MTTR Metric");
+        assertEquals(1, combined.toMTTRMetric("test").getOccurences(), "Recoveries");
+        assertEquals(first.getDurations().getQuantile(1.0), combined.getDurations().getQuantile(1.0), "Longest Build");
+    }
+
+    private void verifyResult(AggregateBuildMetric expected, AggregateBuildMetric actual) {
+        assertEquals(expected.calculateMetric(), actual.calculateMetric(), expected.getClass().getSimpleName());
+        assertEquals(expected.getOccurences(), actual.getOccurences(), "Build Count");
+    }
+}
@@ -0,0 +1,83 @@
+package jenkins.plugins.model;
+
+import hudson.model.Result;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SlidingWindowTest {
+
+    private static final String[] RESULTS = {Result.SUCCESS.toString(), Result.FAILURE.toString(),
+            Result.UNSTABLE.toString(), Result.ABORTED.toString(), null};
+    private static final long LENGTH = 20000;
+
+    @Test
+    void should_give_the_same_metrics_as_the_builds_left_in_the_window() {
+        Random random = new Random(42);
+        for (int round = 0; round < 200; round++) {
+            List<BuildMessage> builds = new ArrayList<BuildMessage>();
+            SlidingWindow window = new SlidingWindow(LENGTH);
+            long startTime = 1000;
+            long now = startTime;
+            for (int i = 1; i <= 1 + random.nextInt(300); i++) {
+                startTime += 1 + random.nextInt(5000);
+                BuildMessage build = new BuildMessage(i, startTime, random.nextInt(100000),
+                        RESULTS[random.nextInt(RESULTS.length)]);
+                builds.add(build);
+                window.push(build);
+
+                // time only moves forward, what has left the window can't come back
+                now = Math.max(now, startTime + random.nextInt(1000));
+                window.evict(now);
+                verifyWindow(builds, window, now);
+            }
+            now += random.nextInt((int) LENGTH * 2);
+            window.evict(now);
+            verifyWindow(builds, window, now);
+        }
+    }
+
+    @Test
+    void should_be_empty_once_every_build_has_left() {
+        SlidingWindow window = new SlidingWindow(LENGTH);
+        window.push(new BuildMessage(1, 1000, 1500, Result.FAILURE.toString()));
+        window.push(new BuildMessage(2, 2000, 2500, Result.SUCCESS.toString()));
+        assertEquals(1000, window.toMTTRMetric("test").calculateMetric(), "MTTR");
+
+        window.evict(2000 + LENGTH);
+
+        assertEquals(0, window.getCount(), "Build Count");
+        assertEquals(0, window.toMTTRMetric("test").getOccurences(), "MTTR Occurences");
+        assertEquals(0, window.toStandardDeviationMetric("test").calculateMetric(), "Standard Deviation");
+        assertTrue(!window.getBuilds().iterator().hasNext(), "No build should be left");
+    }
+
+    /**
+     * What cutting the history by date used to give.
+     */
+    private void verifyWindow(List<BuildMessage> builds, SlidingWindow window, long now) {
+        List<BuildMessage> inWindow = new ArrayList<BuildMessage>();
+        for (BuildMessage build : builds) {
+            if (build.getStartTime() > now - LENGTH) {
+                inWindow.add(build);
+            }
+        }
+
+        verifyResult(new MTTRMetric("test", inWindow), window.toMTTRMetric("test"));
+        verifyResult(new MTTFMetric("test", inWindow), window.toMTTFMetric("test"));
+        StandardDeviationMetric expected = new StandardDeviationMetric("test", inWindow);
+        StandardDeviationMetric actual = window.toStandardDeviationMetric("test");
+        assertEquals(expected.getOccurences(), actual.getOccurences(), "Build Count");
+        assertEquals(expected.calculateMetric(), actual.calculateMetric(), 1, "StandardDeviationMetric");
+    }
+
+    private void verifyResult(AggregateBuildMetric expected, AggregateBuildMetric actual) {
+        assertEquals(expected.calculateMetric(), actual.calculateMetric(), expected.getClass().getSimpleName());
+        assertEquals(expected.getOccurences(), actual.getOccurences(), "Occurences");
+    }
+}
@@ -0,0 +1,60 @@
+package jenkins.plugins.mttr;
+
+import com.google.common.io.Files;
+import hudson.model.AbstractProject;
+import hudson.model.Result;
+import jenkins.plugins.model.BuildHistory;
+import jenkins.plugins.model.BuildMessage;
+import jenkins.plugins.util.BuildDirectoryUtil;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mockito;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HistoryBootstrapTest {
+
+    @TempDir
+    private File temporaryFolder;
+
+    @Test
+    void should_merge_the_builds_read_into_the_stored_ones() throws Exception {
+        File buildsDir = new File(temporaryFolder, "builds");
+        createBuildDir(buildsDir, 1, 1000, Result.FAILURE);
+        createBuildDir(buildsDir, 2, 2000, Result.FAILURE);
+        createBuildDir(buildsDir, 3, 3000, Result.SUCCESS);
+        AbstractProject project = Mockito.mock(AbstractProject.class);
+        Mockito.when(project.getBuildDir()).thenReturn(buildsDir);
+        Mockito.when(project.getFullName()).thenReturn("test");
+        MetricsUpdater updater = Mockito.mock(MetricsUpdater.class);
+
+        HistoryBootstrap bootstrap = new HistoryBootstrap(project, updater, null);
+        bootstrap.run();
+        BuildHistory merged = bootstrap.mergeInto(BuildHistory.of(Arrays.asList(
+                new BuildMessage(2, 2000, 10, "SUCCESS"), new BuildMessage(4, 4000, 10, "SUCCESS"))));
+
+        assertTrue(bootstrap.isDone(), "The bootstrap should be done");
+        assertEquals(3, bootstrap.getRead(), "Builds read");
+        assertEquals(4, merged.size(), "The history should have 4 builds");
+        for (int i = 0; i < merged.size(); i++) {
+            assertEquals(i + 1, merged.getBuildNumber(i), "Build Number");
+        }
+        assertEquals("1\tFAILURE", merged.get(0).toString(), "The build only read should be kept");
+        assertEquals("2\tSUCCESS", merged.get(1).toString(), "The stored build should win");
+        Mockito.verify(updater).refresh(project);
+    }
+
+    private void createBuildDir(File buildsDir, int number, long timestamp, Result result) throws IOException {
+        File buildDir = new File(buildsDir, String.valueOf(number));
+        buildDir.mkdirs();
+        Files.asCharSink(new File(buildDir, BuildDirectoryUtil.BUILD_FILE_NAME), StandardCharsets.UTF_8)
+                .write(String.format("<build><timestamp>%d</timestamp><result>%s</result><duration>10</duration></build>",
+                        timestamp, result));
+    }
+}
@@ -1,12 +1,18 @@
 package jenkins.plugins.mttr;
 
+import org.htmlunit.Page;
 import org.htmlunit.html.HtmlElement;
 import org.htmlunit.html.HtmlPage;
 import com.google.common.io.Files;
 import hudson.Launcher;
 import hudson.model.*;
 import hudson.tasks.Shell;
+import jenkins.plugins.model.BuildMessage;
+import jenkins.plugins.model.MetricsSnapshot;
+import jenkins.plugins.util.BuildHistoryUtil;
 import jenkins.plugins.util.StoreUtil;
+import org.jenkinsci.plugins.workflow.cps.CpsFlowDefinition;
+import org.jenkinsci.plugins.workflow.job.WorkflowJob;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.jvnet.hudson.test.JenkinsRule;
@@ -16,12 +22,16 @@ import org.jvnet.hudson.test.junit.jupiter.WithJenkins;
 import java.io.File;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.core.Is.is;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 @WithJenkins
@@ -49,6 +59,10 @@ class IntegrationTest {
         };
     }
 
+    private void waitForMetrics() throws Exception {
+        MetricsUpdater.get().awaitIdle(30, TimeUnit.SECONDS);
+    }
+
     @Test
     void ShouldRenderTheMetricsInATable() throws Exception {
         project.getBuildersList().add(new Shell("return `expr $BUILD_NUMBER % 2`"));
@@ -56,6 +70,7 @@ class IntegrationTest {
 
         for(int i=0; i<4; i++) {
             project.scheduleBuild2(0).get();
+            waitForMetrics();
             Thread.sleep(1);
         }
 
@@ -74,6 +89,95 @@ class IntegrationTest {
         verifyMetricRow(metricsTable, MetricsAction.STDDEV_LAST_7_DAYS, "Last 7 Days");
         verifyMetricRow(metricsTable, MetricsAction.STDDEV_LAST_30_DAYS, "Last 30 Days");
         verifyMetricRow(metricsTable, MetricsAction.STDDEV_ALL_BUILDS, "All Time");
+
+        verifyMetricRow(metricsTable, MetricsAction.P50_LAST_7_DAYS, "Last 7 Days");
+        verifyMetricRow(metricsTable, MetricsAction.P90_LAST_30_DAYS, "Last 30 Days");
+        verifyMetricRow(metricsTable, MetricsAction.P99_ALL_BUILDS, "All Time");
+    }
+
+    @Test
+    void should_draw_the_chart_only_when_it_is_asked_for() throws Exception {
+        project.scheduleBuild2(0).get();
+        waitForMetrics();
+        assertFalse(new File(rootDirectory + "stddev.jpg").exists(), "No chart should be stored");
+
+        JenkinsRule.WebClient webClient = jenkins.createWebClient();
+        Page chart = webClient.goTo("job/test/" + MetricsAction.URL_NAME + "/stddevGraph", "image/png");
+        assertEquals(200, chart.getWebResponse().getStatusCode());
+        assertNotNull(chart.getWebResponse().getResponseHeaderValue("ETag"), "The chart should have an ETag");
+    }
+
+    @Test
+    void should_serve_the_metrics_as_json_and_answer_not_modified_until_they_change() throws Exception {
+        project.scheduleBuild2(0).get();
+        waitForMetrics();
+
+        JenkinsRule.WebClient webClient = jenkins.createWebClient();
+        String url = "job/test/" + MetricsAction.URL_NAME + "/api/json";
+        Page json = webClient.goTo(url, "application/json");
+        String etag = json.getWebResponse().getResponseHeaderValue("ETag");
+        assertNotNull(etag, "The metrics should have an ETag");
+        assertTrue(json.getWebResponse().getContentAsString().contains("\"occurrences\""), "Occurrences should be exported");
+
+        webClient.addRequestHeader("If-None-Match", etag);
+        webClient.setThrowExceptionOnFailingStatusCode(false);
+        assertEquals(304, webClient.getPage(jenkins.getURL() + url).getWebResponse().getStatusCode());
+
+        project.scheduleBuild2(0).get();
+        waitForMetrics();
+        assertEquals(200, webClient.getPage(jenkins.getURL() + url).getWebResponse().getStatusCode());
+    }
+
+    @Test
+    void should_list_the_job_on_the_dashboard() throws Exception {
+        project.scheduleBuild2(0).get();
+        waitForMetrics();
+
+        HtmlPage page = jenkins.createWebClient().goTo("manage/" + MetricsAction.URL_NAME + "/?sort="
+                + MetricsAction.STDDEV_ALL_BUILDS);
+        assertNotNull(page.getHtmlElementById("dashboard-averages"), "The averages should be shown");
+        HtmlElement worstJobs = page.getHtmlElementById("dashboard-worst-jobs");
+        assertEquals("table", worstJobs.getNodeName(), "The worst jobs should be in a table");
+    }
+
+    @Test
+    void should_show_the_metrics_of_a_pipeline_job() throws Exception {
+        WorkflowJob pipeline = jenkins.getInstance().createProject(WorkflowJob.class, "pipeline");
+        pipeline.setDefinition(new CpsFlowDefinition("echo 'hello'", true));
+        jenkins.buildAndAssertSuccess(pipeline);
+        waitForMetrics();
+
+        assertNotNull(pipeline.getAction(MetricsAction.class), "Pipeline jobs should have the action");
+        HtmlPage page = jenkins.createWebClient().getPage(pipeline);
+        assertNotNull(page.getHtmlElementById("aggregate-build-metrics"), "The metrics should be shown");
+        assertEquals(1, MetricsSnapshotCache.get(pipeline).getLastBuildNumber(), "Last Build Number");
+    }
+
+    @Test
+    void should_expose_the_metrics_for_prometheus() throws Exception {
+        project.scheduleBuild2(0).get();
+        waitForMetrics();
+
+        Page page = jenkins.createWebClient().goTo(MetricsExposition.URL_NAME + "/", "text/plain");
+        String text = page.getWebResponse().getContentAsString();
+        assertTrue(text.contains("# TYPE jenkins_build_history_mttr_seconds gauge"), text);
+        assertTrue(text.contains("# TYPE jenkins_build_history_duration_seconds summary"), text);
+        assertTrue(text.contains("jenkins_build_history_pending_jobs "), text);
+        assertFalse(text.contains("# EOF"), text);
+    }
+
+    @Test
+    void should_expose_the_metrics_in_the_openmetrics_format_when_asked() throws Exception {
+        project.scheduleBuild2(0).get();
+        waitForMetrics();
+
+        JenkinsRule.WebClient webClient = jenkins.createWebClient();
+        webClient.addRequestAdditionalHeader("Accept", "application/openmetrics-text; version=1.0.0");
+        Page page = webClient.goTo(MetricsExposition.URL_NAME + "/", "application/openmetrics-text");
+        String text = page.getWebResponse().getContentAsString();
+        assertTrue(text.contains("# TYPE jenkins_build_history_mttr_seconds gauge"), text);
+        assertTrue(text.contains("jenkins_build_history_pending_jobs "), text);
+        assertTrue(text.endsWith("# EOF\n"), text);
     }
 
     private HtmlElement verifyMetricRow(HtmlElement metricsTable, String metricElementIdentifier, String expectedLabel) {
@@ -90,31 +194,47 @@ class IntegrationTest {
     @Test
     void should_store_build_message_file_correctly() throws Exception {
         project.scheduleBuild2(0).get();
+        waitForMetrics();
 
-        File buildsMessageFile = new File(rootDirectory + MetricsAction.ALL_BUILDS_FILE_NAME);
+        File buildsMessageFile = new File(rootDirectory + MetricsAction.BUILD_HISTORY_FILE_NAME);
         assertTrue(buildsMessageFile.exists());
 
-        List<String> lines = Files.readLines(buildsMessageFile, StandardCharsets.UTF_8);
-
-        String[] line1 = lines.get(0).split(",");
-        assertThat("Build number", line1[0], is("1"));
-        assertThat("Build Status", line1[3], is("SUCCESS"));
+        List<BuildMessage> builds = BuildHistoryUtil.getBuildMessages(buildsMessageFile);
+        assertThat("Build number", builds.get(0).getBuildNumber(), is(1L));
+        assertThat("Build Status", builds.get(0).getResult(), is("SUCCESS"));
 
         project.scheduleBuild2(1).get();
+        waitForMetrics();
+
+        builds = BuildHistoryUtil.getBuildMessages(buildsMessageFile);
+        assertThat(builds.size(), is(2));
+        assertThat("Build number", builds.get(0).getBuildNumber(), is(1L));
+        assertThat("Build Status", builds.get(0).getResult(), is("SUCCESS"));
+        assertThat("Build Number", builds.get(1).getBuildNumber(), is(2L));
+        assertThat("Build Status", builds.get(1).getResult(), is("SUCCESS"));
+    }
+
+    @Test
+    void should_migrate_the_text_build_message_file() throws Exception {
+        File legacyFile = new File(rootDirectory + MetricsAction.ALL_BUILDS_FILE_NAME);
+        Files.asCharSink(legacyFile, StandardCharsets.UTF_8).write("1,1000,10,FAILURE\n");
+        project.updateNextBuildNumber(2);
 
-        lines = Files.readLines(buildsMessageFile, StandardCharsets.UTF_8);
-        line1 = lines.get(0).split(",");
-        String[] line2 = lines.get(1).split(",");
-        assertThat(lines.size(), is(2));
-        assertThat("Build number", line1[0], is("1"));
-        assertThat("Build Status", line1[3], is("SUCCESS"));
-        assertThat("Build Number", line2[0], is("2"));
-        assertThat("Build Status", line2[3], is("SUCCESS"));
+        project.scheduleBuild2(0).get();
+        waitForMetrics();
+
+        assertFalse(legacyFile.exists());
+        List<BuildMessage> builds = BuildHistoryUtil.getBuildMessages(
+                new File(rootDirectory + MetricsAction.BUILD_HISTORY_FILE_NAME));
+        assertThat(builds.size(), is(2));
+        assertThat("Build Status", builds.get(0).getResult(), is("FAILURE"));
+        assertThat("Build Status", builds.get(1).getResult(), is("SUCCESS"));
     }
 
     @Test
     void should_store_properties_files_correctly() throws Exception {
         project.scheduleBuild2(0).get();
+        waitForMetrics();
 
         File mttrPropertyFile = new File(rootDirectory + StoreUtil.MTTR_PROPERTY_FILE);
         assertTrue(mttrPropertyFile.exists());
@@ -129,30 +249,39 @@ class IntegrationTest {
         List<String> mttfLines = Files.readLines(mttfPropertyFile, StandardCharsets.UTF_8);
         List<String> stdDevLines = Files.readLines(stdDevPropertyFile, StandardCharsets.UTF_8);
 
-        assertThat(mttrLines.get(0), is(String.format("%s=0", MetricsAction.MTTR_LAST_7_DAYS)));
-        assertThat(mttrLines.get(1), is(String.format("%s=0", MetricsAction.MTTR_LAST_30_DAYS)));
-        assertThat(mttrLines.get(2), is(String.format("%s=0", MetricsAction.MTTR_ALL_BUILDS)));
-
-        assertThat(mttfLines.get(0), is(String.format("%s=0", MetricsAction.MTTF_LAST_7_DAYS)));
-        assertThat(mttfLines.get(1), is(String.format("%s=0", MetricsAction.MTTF_LAST_30_DAYS)));
-        assertThat(mttfLines.get(2), is(String.format("%s=0", MetricsAction.MTTF_ALL_BUILDS)));
+        for (List<String> lines : Arrays.asList(mttrLines, mttfLines, stdDevLines)) {
+            assertThat(lines.get(0), is(MetricsSnapshot.LAST_BUILD_NUMBER + "=1"));
+        }
+        verifyPropertyLines(mttrLines, 0, MetricsAction.MTTR_LAST_7_DAYS, MetricsAction.MTTR_LAST_30_DAYS,
+                MetricsAction.MTTR_ALL_BUILDS);
+        verifyPropertyLines(mttfLines, 0, MetricsAction.MTTF_LAST_7_DAYS, MetricsAction.MTTF_LAST_30_DAYS,
+                MetricsAction.MTTF_ALL_BUILDS);
+        verifyPropertyLines(stdDevLines, 1, MetricsAction.STDDEV_LAST_7_DAYS, MetricsAction.STDDEV_LAST_30_DAYS,
+                MetricsAction.STDDEV_ALL_BUILDS);
+    }
 
-        assertThat(stdDevLines.get(0), is(String.format("%s=0", MetricsAction.STDDEV_LAST_7_DAYS)));
-        assertThat(stdDevLines.get(1), is(String.format("%s=0", MetricsAction.STDDEV_LAST_30_DAYS)));
-        assertThat(stdDevLines.get(2), is(String.format("%s=0", MetricsAction.STDDEV_ALL_BUILDS)));
+    /**
+     * Each metric is 0 and is followed by the number of occurrences it is the mean of.
+     */
+    private void verifyPropertyLines(List<String> lines, int occurences, String... names) {
+        for (int i = 0; i < names.length; i++) {
+            assertThat(lines.get(1 + 2 * i), is(String.format("%s=0", names[i])));
+            assertThat(lines.get(2 + 2 * i), is(String.format("%s%s=%d", names[i], MetricsSnapshot.OCCURENCES_SUFFIX, occurences)));
+        }
     }
 
     @Test
     void should_store_all_build_messages_when_build_message_file_does_not_exist() throws Exception {
         project.scheduleBuild2(0).get();
+        waitForMetrics();
 
-        File buildsMessageFile = new File(rootDirectory + MetricsAction.ALL_BUILDS_FILE_NAME);
+        File buildsMessageFile = new File(rootDirectory + MetricsAction.BUILD_HISTORY_FILE_NAME);
         buildsMessageFile.delete();
 
         project.scheduleBuild2(0).get();
+        waitForMetrics();
 
         assertTrue(buildsMessageFile.exists());
-        List<String> lines = Files.readLines(buildsMessageFile, StandardCharsets.UTF_8);
-        assertThat(lines.size(), is(2));
+        assertThat(BuildHistoryUtil.getBuildMessages(buildsMessageFile).size(), is(2));
     }
 }
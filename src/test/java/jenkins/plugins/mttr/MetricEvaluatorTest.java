@@ -0,0 +1,88 @@
+package jenkins.plugins.mttr;
+
+import com.google.common.collect.ImmutableMap;
+import hudson.model.Result;
+import jenkins.plugins.model.AggregateBuildMetric;
+import jenkins.plugins.model.BuildMessage;
+import jenkins.plugins.model.BuildMetricState;
+import jenkins.plugins.model.MetricAccumulator;
+import jenkins.plugins.model.SlidingWindow;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class MetricEvaluatorTest {
+
+    private static final long NOW = System.currentTimeMillis();
+
+    private static BuildMetricState createState() {
+        List<BuildMessage> builds = new ArrayList<BuildMessage>();
+        for (int i = 1; i <= 120; i++) {
+            builds.add(new BuildMessage(i, NOW - (120 - i) * TimeUnit.HOURS.toMillis(9), 1000L + (i * 37) % 500,
+                    (i % 4 == 0 ? Result.FAILURE : Result.SUCCESS).toString()));
+        }
+        return BuildMetricState.fromHistory(builds, NOW);
+    }
+
+    @Test
+    void should_match_the_metrics_of_each_window() {
+        BuildMetricState state = createState();
+
+        AggregateBuildMetric[] metrics = MetricEvaluator.DEFAULT.evaluate(state, NOW);
+
+        assertEquals(MetricsAction.METRIC_NAMES.size() + MetricsAction.PERCENTILE_NAMES.size(), metrics.length,
+                "Metric Count");
+        int[] days = MetricWindow.DEFAULT_DAYS;
+        for (int i = 0; i < days.length; i++) {
+            SlidingWindow window = state.getLastDays(days[i], NOW);
+            verifyResult(window.toMTTRMetric(MetricsAction.METRIC_NAMES.get(i)), metrics[i]);
+            verifyResult(window.toMTTFMetric(MetricsAction.METRIC_NAMES.get(3 + i)), metrics[3 + i]);
+            verifyResult(window.toStandardDeviationMetric(MetricsAction.METRIC_NAMES.get(6 + i)), metrics[6 + i]);
+            assertEquals(state.getDurationsLastDays(days[i], NOW).getQuantile(0.9), metrics[12 + i].calculateMetric(),
+                    MetricsAction.PERCENTILE_NAMES.get(3 + i));
+        }
+        verifyResult(state.getAllBuilds().toMTTRMetric(MetricsAction.MTTR_ALL_BUILDS), metrics[2]);
+        verifyResult(state.getAllBuilds().toPercentileMetric(MetricsAction.P99_ALL_BUILDS, 0.99), metrics[17]);
+    }
+
+    @Test
+    void should_evaluate_another_metric_for_every_window() {
+        MetricEvaluator evaluator = new MetricEvaluator(ImmutableMap.<String, MetricEvaluator.Metric>of(
+                "count", (MetricAccumulator builds, String name) -> new AggregateBuildMetric() {
+                    @Override
+                    public int getOccurences() {
+                        return Math.toIntExact(builds.getCount());
+                    }
+
+                    @Override
+                    public long calculateMetric() {
+                        return builds.getCount();
+                    }
+
+                    @Override
+                    public String getName() {
+                        return name;
+                    }
+                }));
+
+        AggregateBuildMetric[] metrics = evaluator.evaluate(createState(), NOW);
+
+        assertEquals(Arrays.asList("count"), evaluator.getKeys());
+        assertEquals("countLast7days", metrics[0].getName(), "Metric Name");
+        // a build every 9 hours
+        assertEquals(19, metrics[0].calculateMetric(), "Builds of the last 7 days");
+        assertEquals(80, metrics[1].calculateMetric(), "Builds of the last 30 days");
+        assertEquals(120, metrics[2].calculateMetric(), "All builds");
+    }
+
+    private void verifyResult(AggregateBuildMetric expected, AggregateBuildMetric actual) {
+        assertEquals(expected.getName(), actual.getName(), "Metric Name");
+        assertEquals(expected.calculateMetric(), actual.calculateMetric(), expected.getName());
+        assertEquals(expected.getOccurences(), actual.getOccurences(), "Build Count");
+    }
+}
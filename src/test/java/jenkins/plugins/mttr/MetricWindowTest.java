@@ -0,0 +1,67 @@
+package jenkins.plugins.mttr;
+
+import hudson.model.Result;
+import jenkins.plugins.model.AggregateBuildMetric;
+import jenkins.plugins.model.BuildMessage;
+import jenkins.plugins.model.BuildMetricState;
+import jenkins.plugins.model.MTTRMetric;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class MetricWindowTest {
+
+    @Test
+    void should_keep_the_positive_days_in_order() {
+        assertArrayEquals(new int[]{1, 14, 90}, MetricWindow.parseDays("14, 1,90,x,-3,0,14"));
+        assertArrayEquals(MetricWindow.DEFAULT_DAYS, MetricWindow.parseDays(null));
+        assertArrayEquals(MetricWindow.DEFAULT_DAYS, MetricWindow.parseDays("none"));
+    }
+
+    @Test
+    void should_name_the_default_windows_like_the_property_files() {
+        List<String> names = MetricWindow.getNames(MetricWindow.of(MetricWindow.DEFAULT_DAYS),
+                MetricsAction.MTTR, MetricsAction.STDDEV);
+
+        assertEquals(Arrays.asList(MetricsAction.MTTR_LAST_7_DAYS, MetricsAction.MTTR_LAST_30_DAYS,
+                MetricsAction.MTTR_ALL_BUILDS, MetricsAction.STDDEV_LAST_7_DAYS, MetricsAction.STDDEV_LAST_30_DAYS,
+                MetricsAction.STDDEV_ALL_BUILDS), names);
+        assertEquals("30d", MetricWindow.of(MetricWindow.DEFAULT_DAYS).get(1).getLabel(), "Label");
+        assertEquals("all", MetricWindow.ALL_BUILDS.getLabel(), "Label");
+    }
+
+    @Test
+    void should_compute_every_metric_for_every_window_of_the_state() {
+        long now = System.currentTimeMillis();
+        List<BuildMessage> builds = new ArrayList<BuildMessage>();
+        for (int i = 1; i <= 200; i++) {
+            builds.add(new BuildMessage(i, now - (200 - i) * TimeUnit.HOURS.toMillis(12), i * 100L,
+                    (i % 3 == 0 ? Result.FAILURE : Result.SUCCESS).toString()));
+        }
+        BuildMetricState state = BuildMetricState.fromHistory(builds, new int[]{1, 14, 90}, now);
+
+        AggregateBuildMetric[] metrics = MetricsUpdater.getMetrics(state, now);
+
+        // six metrics of four windows
+        assertEquals(6 * 4, metrics.length, "Metric Count");
+        assertEquals("mttrLast1days", metrics[0].getName(), "Metric Name");
+        assertEquals("mttfLast14days", metrics[5].getName(), "Metric Name");
+        assertEquals("stddevLast90days", metrics[10].getName(), "Metric Name");
+        assertEquals("p99AllBuilds", metrics[23].getName(), "Metric Name");
+
+        List<BuildMessage> last14Days = new ArrayList<BuildMessage>();
+        for (BuildMessage build : builds) {
+            if (build.getStartTime() > now - TimeUnit.DAYS.toMillis(14)) {
+                last14Days.add(build);
+            }
+        }
+        assertEquals(new MTTRMetric("test", last14Days).calculateMetric(), metrics[1].calculateMetric(), "MTTR");
+        assertEquals(last14Days.size(), metrics[2 * 4 + 1].getOccurences(), "Builds of the last 14 days");
+    }
+}
@@ -2,16 +2,37 @@ package jenkins.plugins.mttr;
 
 import com.google.common.io.Files;
 import hudson.model.AbstractProject;
+import hudson.model.Action;
+import hudson.model.Job;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletResponse;
+import jenkins.plugins.model.BuildMessage;
+import jenkins.plugins.model.MTTRMetric;
+import jenkins.plugins.model.MetricsSnapshot;
+import jenkins.plugins.model.StandardDeviationMetric;
+import jenkins.plugins.util.BuildHistoryUtil;
 import jenkins.plugins.util.StoreUtil;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
+import org.kohsuke.stapler.StaplerRequest2;
+import org.kohsuke.stapler.StaplerResponse2;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mockito;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
 import java.util.Map;
+import java.util.Properties;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class MetricsActionTest {
 
@@ -91,6 +112,36 @@ class MetricsActionTest {
         assertEquals(ZERO_TIME_AS_STRING, map.get(MetricsAction.STDDEV_ALL_BUILDS), "MTTF_ALL_BUILDS is incorrect");
     }
 
+    @Test
+    void GetMetricMap_Should_NotReadThePropertiesFilesAgain_When_TheSnapshotIsCached() throws IOException {
+        AbstractProject project = CreateMockProject();
+        CreateAMockMTTRPropertiesFileIn(project.getRootDir());
+
+        MetricsAction action = new MetricsAction(project);
+        action.getMetricMap();
+        new File(project.getRootDir(), StoreUtil.MTTR_PROPERTY_FILE).delete();
+        Map<String,String> map = action.getMetricMap();
+
+        assertEquals(EXPECTED_MTTR_7_AS_STRING, map.get(MetricsAction.MTTR_LAST_7_DAYS), "MTTR_LAST_7_DAYS is incorrect");
+        assertEquals(EXPECTED_MTTR_ALL_AS_STRING, map.get(MetricsAction.MTTR_ALL_BUILDS), "MTTR_ALL_BUILDS is incorrect");
+    }
+
+    @Test
+    void GetMetricMap_Should_ReturnTheNewMetrics_When_TheSnapshotIsReplaced() throws IOException {
+        AbstractProject project = CreateMockProject();
+        CreateAMockMTTRPropertiesFileIn(project.getRootDir());
+
+        MetricsAction action = new MetricsAction(project);
+        action.getMetricMap();
+        Properties properties = new Properties();
+        properties.setProperty(MetricsAction.MTTR_LAST_7_DAYS, EXPECTED_MTTR_30_MILLIS);
+        MetricsSnapshotCache.put(project, MetricsSnapshot.fromProperties(0, properties));
+        Map<String,String> map = action.getMetricMap();
+
+        assertEquals(EXPECTED_MTTR_30_AS_STRING, map.get(MetricsAction.MTTR_LAST_7_DAYS), "MTTR_LAST_7_DAYS is incorrect");
+        assertEquals(ZERO_TIME_AS_STRING, map.get(MetricsAction.MTTR_ALL_BUILDS), "MTTR_ALL_BUILDS is incorrect");
+    }
+
     @Test
     void ResultColumnsShouldReturnExpectedValues() throws IOException {
         AbstractProject project = CreateMockProject();
@@ -104,6 +155,152 @@ class MetricsActionTest {
         assertEquals(EXPECTED_MTTR_ALL_AS_STRING, resultColumn.getResult(project), "MTTR_LAST_30_DAYS is incorrect");
     }
 
+    @Test
+    void ResultColumnsShouldReturnZero_When_TheJobHasNoHistory() throws IOException {
+        AbstractProject project = CreateMockProject();
+
+        ResultColumn resultColumn = new BuildMetric30DaysResultColumn();
+        assertEquals(ZERO_TIME_AS_STRING, resultColumn.getResult(project), "MTTR_LAST_30_DAYS is incorrect");
+        resultColumn = new BuildMetric7DaysResultColumn();
+        assertEquals(ZERO_TIME_AS_STRING, resultColumn.getResult(project), "MTTR_LAST_7_DAYS is incorrect");
+        resultColumn = new BuildMetricAllTimeResultColumn();
+        assertEquals(ZERO_TIME_AS_STRING, resultColumn.getResult(project), "MTTR_ALL_BUILDS is incorrect");
+    }
+
+    @Test
+    void ResultColumnsShouldReadThePropertiesFileOnceForAllColumns() throws IOException {
+        AbstractProject project = CreateMockProject();
+        CreateAMockMTTRPropertiesFileIn(project.getRootDir());
+
+        new BuildMetric7DaysResultColumn().getResult(project);
+        new File(project.getRootDir(), StoreUtil.MTTR_PROPERTY_FILE).delete();
+
+        assertEquals(EXPECTED_MTTR_30_AS_STRING, new BuildMetric30DaysResultColumn().getResult(project), "MTTR_LAST_30_DAYS is incorrect");
+        assertEquals(EXPECTED_MTTR_ALL_AS_STRING, new BuildMetricAllTimeResultColumn().getResult(project), "MTTR_ALL_BUILDS is incorrect");
+    }
+
+    @Test
+    void StddevGraph_Should_BeServedOnceAndThenRevalidated() throws IOException {
+        AbstractProject project = CreateMockProject();
+        BuildHistoryUtil.appendBuildMessages(new File(project.getRootDir(), MetricsAction.BUILD_HISTORY_FILE_NAME),
+                Arrays.asList(new BuildMessage(1, 1000, 1500, "SUCCESS"), new BuildMessage(2, 2000, 2500, "FAILURE")));
+        MetricsAction action = new MetricsAction(project);
+
+        StaplerResponse2 rsp = Mockito.mock(StaplerResponse2.class);
+        ByteArrayOutputStream image = new ByteArrayOutputStream();
+        Mockito.when(rsp.getOutputStream()).thenReturn(new ByteArrayServletOutputStream(image));
+        action.doStddevGraph(Mockito.mock(StaplerRequest2.class), rsp);
+
+        ArgumentCaptor<String> etag = ArgumentCaptor.forClass(String.class);
+        Mockito.verify(rsp).setHeader(Mockito.eq("ETag"), etag.capture());
+        Mockito.verify(rsp).setContentType("image/png");
+        assertTrue(image.size() > 0, "The chart should be written");
+
+        StaplerRequest2 req = Mockito.mock(StaplerRequest2.class);
+        Mockito.when(req.getHeader("If-None-Match")).thenReturn(etag.getValue());
+        rsp = Mockito.mock(StaplerResponse2.class);
+        action.doStddevGraph(req, rsp);
+
+        Mockito.verify(rsp).setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+        Mockito.verify(rsp, Mockito.never()).getOutputStream();
+    }
+
+    @Test
+    void StddevGraph_Should_BeDrawnAgain_When_TheHistoryChanges() throws IOException {
+        AbstractProject project = CreateMockProject();
+        File storeFile = new File(project.getRootDir(), MetricsAction.BUILD_HISTORY_FILE_NAME);
+        BuildHistoryUtil.appendBuildMessages(storeFile, Arrays.asList(new BuildMessage(1, 1000, 1500, "SUCCESS")));
+
+        ChartCache.Chart chart = ChartCache.getStdDevChart(project);
+        assertSame(chart, ChartCache.getStdDevChart(project), "The chart should be cached");
+
+        BuildHistoryUtil.appendBuildMessages(storeFile, Arrays.asList(new BuildMessage(2, 2000, 2500, "FAILURE")));
+        assertNotEquals(chart.getVersion(), ChartCache.getStdDevChart(project).getVersion(), "The chart should be redrawn");
+    }
+
+    @Test
+    void Api_Should_ExportTheMetricsWithTheirOccurrences() throws IOException {
+        AbstractProject project = CreateMockProject();
+        List<BuildMessage> builds = Arrays.asList(new BuildMessage(1, 1000, 1500, "FAILURE"),
+                new BuildMessage(2, 3000, 2500, "SUCCESS"), new BuildMessage(3, 5000, 1500, "FAILURE"),
+                new BuildMessage(4, 6000, 2500, "SUCCESS"));
+        MetricsSnapshotCache.put(project, MetricsSnapshot.of(4, new MTTRMetric(MetricsAction.MTTR_ALL_BUILDS, builds),
+                new StandardDeviationMetric(MetricsAction.STDDEV_ALL_BUILDS, builds)));
+
+        MetricsAction action = new MetricsAction(project);
+        List<MetricsAction.Metric> metrics = action.getMetrics();
+
+        assertEquals(4, action.getLastBuildNumber(), "Last Build Number");
+        // MTTR, MTTF, standard deviation and three percentiles, each of three windows
+        assertEquals(18, metrics.size(), "Metric Count");
+        MetricsAction.Metric mttr = metrics.get(2);
+        assertEquals(MetricsAction.MTTR_ALL_BUILDS, mttr.getName(), "Metric Name");
+        assertEquals(1500, mttr.getValue(), "MTTR_ALL_BUILDS is incorrect");
+        assertEquals(2, mttr.getOccurences(), "MTTR_ALL_BUILDS occurrences are incorrect");
+        assertEquals(4, metrics.get(8).getOccurences(), "STDDEV_ALL_BUILDS occurrences are incorrect");
+        assertEquals(0, metrics.get(0).getOccurences(), "MTTR_LAST_7_DAYS occurrences are incorrect");
+    }
+
+    @Test
+    void Api_Should_AnswerNotModified_Until_TheMetricsChange() throws Exception {
+        AbstractProject project = CreateMockProject();
+        CreateAMockMTTRPropertiesFileIn(project.getRootDir());
+        MetricsAction action = new MetricsAction(project);
+
+        StaplerResponse2 rsp = Mockito.mock(StaplerResponse2.class);
+        action.getApi().doJson(Mockito.mock(StaplerRequest2.class), rsp);
+        ArgumentCaptor<String> etag = ArgumentCaptor.forClass(String.class);
+        Mockito.verify(rsp).setHeader(Mockito.eq("ETag"), etag.capture());
+        Mockito.verify(rsp, Mockito.never()).setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+
+        StaplerRequest2 req = Mockito.mock(StaplerRequest2.class);
+        Mockito.when(req.getHeader("If-None-Match")).thenReturn(etag.getValue());
+        new File(project.getRootDir(), StoreUtil.MTTR_PROPERTY_FILE).delete();
+        rsp = Mockito.mock(StaplerResponse2.class);
+        action.getApi().doJson(req, rsp);
+        Mockito.verify(rsp).setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+
+        Properties properties = new Properties();
+        properties.setProperty(MetricsAction.MTTR_LAST_7_DAYS, EXPECTED_MTTR_30_MILLIS);
+        MetricsSnapshotCache.put(project, MetricsSnapshot.fromProperties(1, properties));
+        rsp = Mockito.mock(StaplerResponse2.class);
+        action.getApi().doJson(req, rsp);
+        Mockito.verify(rsp, Mockito.never()).setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+    }
+
+    @Test
+    void Factory_Should_AddTheAction_To_AnyJob_WithoutReadingIt() {
+        Job job = Mockito.mock(Job.class);
+
+        Collection<? extends Action> actions = new MetricsAction.JobActionFactory().createFor(job);
+
+        assertEquals(1, actions.size(), "One action per job");
+        assertTrue(actions.iterator().next() instanceof MetricsAction, "The metrics action");
+        Mockito.verifyNoInteractions(job);
+    }
+
+    private static final class ByteArrayServletOutputStream extends ServletOutputStream {
+        private final ByteArrayOutputStream out;
+
+        ByteArrayServletOutputStream(ByteArrayOutputStream out) {
+            this.out = out;
+        }
+
+        @Override
+        public void write(int b) {
+            out.write(b);
+        }
+
+        @Override
+        public boolean isReady() {
+            return true;
+        }
+
+        @Override
+        public void setWriteListener(WriteListener writeListener) {
+        }
+    }
+
     private AbstractProject CreateMockProject() throws IOException {
         AbstractProject job = Mockito.mock(AbstractProject.class);
         File rootFolder = newFolder(temporaryFolder, "junit");
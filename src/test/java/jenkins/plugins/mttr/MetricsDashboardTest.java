@@ -0,0 +1,91 @@
+package jenkins.plugins.mttr;
+
+import hudson.model.AbstractProject;
+import hudson.model.Job;
+import jenkins.plugins.model.MetricsSnapshot;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mockito;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+class MetricsDashboardTest {
+
+    @TempDir
+    private File temporaryFolder;
+
+    @Test
+    void should_average_the_jobs_and_list_the_worst_ones() {
+        List<Job> jobs = new ArrayList<Job>();
+        for (int i = 1; i <= 1000; i++) {
+            Job job = createMockJob("job-" + i);
+            // every other job has never recovered, so it has no MTTR
+            MetricsSnapshotCache.put(job, snapshot(i % 2 == 0 ? i : 0, i, 10));
+            jobs.add(job);
+        }
+
+        DashboardSummary summary = MetricsDashboard.summarize(jobs, MetricsAction.MTTR_ALL_BUILDS, 5);
+
+        assertEquals(1000, summary.getJobCount(), "Job Count");
+        assertEquals(0, summary.getPendingCount(), "Pending Count");
+        assertEquals(501, summary.getAverage(MetricsAction.MTTR_ALL_BUILDS), "Average MTTR");
+        assertEquals(500, summary.getAverage(MetricsAction.MTTF_ALL_BUILDS), "Average MTTF");
+        assertEquals(10, summary.getAverage(MetricsAction.STDDEV_ALL_BUILDS), "Average Standard Deviation");
+        List<DashboardSummary.JobMetrics> worst = summary.getWorstJobs();
+        assertEquals(5, worst.size(), "Worst Jobs");
+        for (int i = 0; i < worst.size(); i++) {
+            assertEquals("job-" + (1000 - 2 * i), worst.get(i).getJob().getFullName(), "Worst Job " + i);
+        }
+
+        List<DashboardSummary.JobMetrics> shortestMttf = MetricsDashboard.summarize(jobs,
+                MetricsAction.MTTF_ALL_BUILDS, 3).getWorstJobs();
+        assertEquals("job-1", shortestMttf.get(0).getJob().getFullName(), "Shortest MTTF");
+        assertEquals("job-3", shortestMttf.get(2).getJob().getFullName(), "Third shortest MTTF");
+    }
+
+    @Test
+    void should_load_the_jobs_that_are_not_in_memory_in_the_background() throws Exception {
+        Job job = createMockJob("not-loaded");
+        MetricsSnapshotCache.invalidate(job);
+        List<Job> jobs = new ArrayList<Job>();
+        jobs.add(job);
+
+        DashboardSummary summary = MetricsDashboard.summarize(jobs, MetricsAction.MTTR_ALL_BUILDS, 5);
+        assertEquals(1, summary.getPendingCount(), "Pending Count");
+        assertEquals(0, summary.getWorstJobs().size(), "Worst Jobs");
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        MetricsSnapshot snapshot = null;
+        while (snapshot == null && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+            snapshot = MetricsSnapshotCache.getIfLoaded(job);
+        }
+        assertNotNull(snapshot, "The snapshot should have been loaded");
+        assertEquals(0, MetricsDashboard.summarize(jobs, MetricsAction.MTTR_ALL_BUILDS, 5).getPendingCount(),
+                "Pending Count");
+    }
+
+    private Job createMockJob(String name) {
+        File rootDir = new File(temporaryFolder, name);
+        rootDir.mkdirs();
+        AbstractProject job = Mockito.mock(AbstractProject.class);
+        Mockito.when(job.getRootDir()).thenReturn(rootDir);
+        Mockito.when(job.getFullName()).thenReturn(name);
+        return job;
+    }
+
+    private static MetricsSnapshot snapshot(long mttr, long mttf, long stddev) {
+        Properties properties = new Properties();
+        properties.setProperty(MetricsAction.MTTR_ALL_BUILDS, String.valueOf(mttr));
+        properties.setProperty(MetricsAction.MTTF_ALL_BUILDS, String.valueOf(mttf));
+        properties.setProperty(MetricsAction.STDDEV_ALL_BUILDS, String.valueOf(stddev));
+        return MetricsSnapshot.fromProperties(0, properties);
+    }
+}
@@ -0,0 +1,89 @@
+package jenkins.plugins.mttr;
+
+import hudson.model.AbstractProject;
+import hudson.model.Job;
+import jenkins.plugins.model.MetricsSnapshot;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mockito;
+
+import java.io.File;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MetricsExpositionTest {
+
+    @TempDir
+    private File temporaryFolder;
+
+    @Test
+    void should_write_a_gauge_for_each_job_and_window() throws Exception {
+        Job loaded = createMockJob("folder/job \"quoted\"");
+        Properties properties = new Properties();
+        properties.setProperty(MetricsAction.MTTR_LAST_7_DAYS, "1500");
+        properties.setProperty(MetricsAction.MTTF_ALL_BUILDS, "60000");
+        properties.setProperty(MetricsAction.STDDEV_LAST_30_DAYS, "7");
+        properties.setProperty(MetricsAction.P90_ALL_BUILDS, "2500");
+        properties.setProperty(MetricsAction.P50_ALL_BUILDS + MetricsSnapshot.OCCURENCES_SUFFIX, "4");
+        MetricsSnapshotCache.put(loaded, MetricsSnapshot.fromProperties(3, properties));
+        Job pending = createMockJob("pending");
+        MetricsSnapshotCache.invalidate(pending);
+        List<Job> jobs = new ArrayList<Job>();
+        jobs.add(loaded);
+        jobs.add(pending);
+
+        StringWriter out = new StringWriter();
+        new MetricsExposition(MetricWindow.of(MetricWindow.DEFAULT_DAYS)).write(out, jobs, true);
+        String text = out.toString();
+        String[] lines = text.split("\n");
+
+        // three families of a job's three windows and the summary of the three percentiles and
+        // the count of each window, each with TYPE and HELP, then the pending gauge and EOF
+        assertEquals(3 * (2 + 3) + 2 + 3 * (3 + 1) + 3 + 1, lines.length, "Line Count");
+        assertTrue(text.contains("# TYPE jenkins_build_history_duration_seconds summary\n"), text);
+        assertTrue(text.contains("jenkins_build_history_mttr_seconds{job=\"folder/job \\\"quoted\\\"\",window=\"7d\"} 1.500\n"), text);
+        assertTrue(text.contains("jenkins_build_history_mttr_seconds{job=\"folder/job \\\"quoted\\\"\",window=\"all\"} 0.000\n"), text);
+        assertTrue(text.contains("jenkins_build_history_mttf_seconds{job=\"folder/job \\\"quoted\\\"\",window=\"all\"} 60.000\n"), text);
+        assertTrue(text.contains("jenkins_build_history_stddev_seconds{job=\"folder/job \\\"quoted\\\"\",window=\"30d\"} 0.007\n"), text);
+        assertTrue(text.contains("jenkins_build_history_duration_seconds{job=\"folder/job \\\"quoted\\\"\",window=\"all\",quantile=\"0.9\"} 2.500\n"
+                + "jenkins_build_history_duration_seconds{job=\"folder/job \\\"quoted\\\"\",window=\"all\",quantile=\"0.99\"} 0.000\n"
+                + "jenkins_build_history_duration_seconds_count{job=\"folder/job \\\"quoted\\\"\",window=\"all\"} 4\n"), text);
+        assertTrue(text.contains("\njenkins_build_history_pending_jobs 1\n"), text);
+        assertTrue(text.endsWith("# EOF\n"), text);
+    }
+
+    @Test
+    void should_only_end_with_eof_in_the_openmetrics_format() throws Exception {
+        StringWriter out = new StringWriter();
+        new MetricsExposition(MetricWindow.of(MetricWindow.DEFAULT_DAYS)).write(out, new ArrayList<Job>(), false);
+
+        assertTrue(out.toString().endsWith("\njenkins_build_history_pending_jobs 0\n"), out.toString());
+        assertFalse(out.toString().contains("# EOF"), out.toString());
+    }
+
+    @Test
+    void should_write_milliseconds_as_seconds() throws Exception {
+        StringWriter out = new StringWriter();
+        MetricsExposition.writeSeconds(out, 123456);
+        out.write(' ');
+        MetricsExposition.writeSeconds(out, 40);
+        out.write(' ');
+        MetricsExposition.writeSeconds(out, -1001);
+        assertEquals("123.456 0.040 -1.001", out.toString());
+    }
+
+    private Job createMockJob(String name) {
+        File rootDir = new File(temporaryFolder, String.valueOf(name.hashCode()));
+        rootDir.mkdirs();
+        AbstractProject job = Mockito.mock(AbstractProject.class);
+        Mockito.when(job.getRootDir()).thenReturn(rootDir);
+        Mockito.when(job.getFullName()).thenReturn(name);
+        return job;
+    }
+}
@@ -0,0 +1,101 @@
+package jenkins.plugins.mttr;
+
+import com.google.common.io.Files;
+import hudson.model.Job;
+import hudson.model.Result;
+import jenkins.plugins.model.BuildMessage;
+import jenkins.plugins.util.BuildDirectoryUtil;
+import jenkins.plugins.util.BuildHistoryUtil;
+import jenkins.plugins.util.StoreUtil;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mockito;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MetricsRebuildTest {
+
+    @TempDir
+    private File temporaryFolder;
+
+    @Test
+    void should_rebuild_the_metrics_of_every_job_from_its_build_directories() throws Exception {
+        List<Job> jobs = new ArrayList<Job>();
+        for (int i = 0; i < 5; i++) {
+            Job job = createMockJob("job" + i);
+            createBuildDir(job.getBuildDir(), 1, 1000, Result.FAILURE);
+            createBuildDir(job.getBuildDir(), 2, 3000, Result.SUCCESS);
+            jobs.add(job);
+        }
+        // the stored build wins over the one read again
+        File storeFile = new File(jobs.get(0).getRootDir(), MetricsAction.BUILD_HISTORY_FILE_NAME);
+        BuildHistoryUtil.writeBuildMessages(storeFile,
+                Collections.singletonList(new BuildMessage(2, 5000, 10, Result.SUCCESS.toString())));
+
+        MetricsRebuild rebuild = new MetricsRebuild(new MetricsUpdater(), jobs, null, 2);
+        rebuild.start(Executors.newFixedThreadPool(2));
+        assertTrue(rebuild.awaitDone(30, TimeUnit.SECONDS), "The rebuild should finish");
+
+        assertEquals(5, rebuild.getDone(), "Jobs done");
+        assertEquals(0, rebuild.getFailed(), "Jobs failed");
+        assertEquals(5, rebuild.getResults(0).size(), "A line for each job");
+        assertEquals(2, rebuild.getResults(3).size(), "Lines from the fourth job on");
+        assertEquals(4000, MetricsSnapshotCache.get(jobs.get(0)).getValue(MetricsAction.MTTR_ALL_BUILDS), "MTTR");
+        for (Job job : jobs.subList(1, 5)) {
+            assertEquals(2, BuildHistoryUtil.getBuildMessages(
+                    new File(job.getRootDir(), MetricsAction.BUILD_HISTORY_FILE_NAME)).size(), "Builds");
+            assertTrue(new File(job.getRootDir(), StoreUtil.MTTR_PROPERTY_FILE).exists(), "The mttr.properties file is missing");
+            assertEquals(2000, MetricsSnapshotCache.get(job).getValue(MetricsAction.MTTR_ALL_BUILDS), "MTTR");
+        }
+    }
+
+    @Test
+    void should_start_no_more_jobs_once_cancelled() throws Exception {
+        List<Job> jobs = new ArrayList<Job>();
+        for (int i = 0; i < 3; i++) {
+            Job job = createMockJob("job" + i);
+            createBuildDir(job.getBuildDir(), 1, 1000, Result.SUCCESS);
+            jobs.add(job);
+        }
+
+        MetricsRebuild rebuild = new MetricsRebuild(new MetricsUpdater(), jobs, null, 1);
+        rebuild.cancel();
+        rebuild.start(Executors.newFixedThreadPool(1));
+        assertTrue(rebuild.awaitDone(30, TimeUnit.SECONDS), "The rebuild should finish");
+
+        assertTrue(rebuild.isCancelled(), "Cancelled");
+        assertEquals(0, rebuild.getDone(), "Jobs done");
+        assertFalse(new File(jobs.get(0).getRootDir(), MetricsAction.BUILD_HISTORY_FILE_NAME).exists(),
+                "No history should be written");
+    }
+
+    private Job createMockJob(String name) {
+        File rootDir = new File(temporaryFolder, name);
+        File buildsDir = new File(rootDir, "builds");
+        buildsDir.mkdirs();
+        Job job = Mockito.mock(Job.class);
+        Mockito.when(job.getRootDir()).thenReturn(rootDir);
+        Mockito.when(job.getBuildDir()).thenReturn(buildsDir);
+        Mockito.when(job.getFullName()).thenReturn(name);
+        return job;
+    }
+
+    private void createBuildDir(File buildsDir, int number, long timestamp, Result result) throws IOException {
+        File buildDir = new File(buildsDir, String.valueOf(number));
+        buildDir.mkdirs();
+        Files.asCharSink(new File(buildDir, BuildDirectoryUtil.BUILD_FILE_NAME), StandardCharsets.UTF_8)
+                .write(String.format("<build><timestamp>%d</timestamp><result>%s</result><duration>10</duration></build>",
+                        timestamp, result));
+    }
+}
@@ -0,0 +1,181 @@
+package jenkins.plugins.mttr;
+
+import com.cloudbees.hudson.plugins.folder.AbstractFolder;
+import hudson.model.Item;
+import hudson.model.ItemGroup;
+import hudson.model.Job;
+import hudson.model.Result;
+import jenkins.plugins.model.BuildMessage;
+import jenkins.plugins.model.BuildMetricState;
+import jenkins.plugins.model.MetricAccumulator;
+import jenkins.plugins.util.StoreUtil;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mockito;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class MetricsRollupTest {
+
+    private static final long NOW = System.currentTimeMillis();
+
+    @TempDir
+    private File temporaryFolder;
+
+    @AfterEach
+    void tearDown() {
+        MetricsRollup.invalidate();
+    }
+
+    @Test
+    void should_combine_the_jobs_of_a_folder_and_its_folders() throws Exception {
+        ItemGroup root = Mockito.mock(ItemGroup.class);
+        ItemGroup team = createMockFolder("team", root);
+        ItemGroup multibranch = createMockFolder("team/app", team);
+        // recoveries of 1000 and 3000 ms
+        Job first = createMockJob("first", team, 1000);
+        Job second = createMockJob("second", team, 3000);
+        Job branch = createMockJob("main", multibranch, 5000);
+        Mockito.when(team.getItems()).thenReturn(Arrays.asList(first, second, multibranch));
+        Mockito.when(multibranch.getItems()).thenReturn(Arrays.asList(branch));
+
+        MetricsRollup.Totals totals = MetricsRollup.get(team);
+
+        assertEquals(3, totals.getJobCount(), "Job Count");
+        MetricAccumulator allBuilds = totals.getAllBuilds();
+        assertEquals(3000, allBuilds.toMTTRMetric("test").calculateMetric(), "MTTR of the folder");
+        assertEquals(3, allBuilds.toMTTRMetric("test").getOccurences(), "Recoveries");
+        assertEquals(6, allBuilds.getCount(), "Builds");
+        assertEquals(1, MetricsRollup.get(multibranch).getJobCount(), "Job Count of the multibranch project");
+    }
+
+    @Test
+    void should_only_update_the_folders_above_the_job() throws Exception {
+        ItemGroup root = Mockito.mock(ItemGroup.class);
+        ItemGroup team = createMockFolder("team", root);
+        ItemGroup multibranch = createMockFolder("team/app", team);
+        ItemGroup other = createMockFolder("other", root);
+        Job first = createMockJob("first", team, 1000);
+        Job branch = createMockJob("main", multibranch, 5000);
+        Mockito.when(team.getItems()).thenReturn(Arrays.asList(first, multibranch));
+        Mockito.when(multibranch.getItems()).thenReturn(Arrays.asList(branch));
+        Mockito.when(other.getItems()).thenReturn(new ArrayList());
+        assertEquals(3000, MetricsRollup.get(team).getAllBuilds().toMTTRMetric("test").calculateMetric(), "MTTR");
+        assertNull(MetricsRollup.get(other), "A folder without jobs has no metrics");
+        Mockito.clearInvocations(team, multibranch, other);
+
+        MetricsRollup.update(branch, createState(9000).getAllBuilds());
+
+        assertEquals(5000, MetricsRollup.get(team).getAllBuilds().toMTTRMetric("test").calculateMetric(), "MTTR");
+        Mockito.verify(team, Mockito.never()).getItems();
+        Mockito.verify(multibranch, Mockito.never()).getItems();
+        Mockito.verifyNoInteractions(other);
+    }
+
+    @Test
+    void should_take_an_update_that_comes_while_the_folder_is_loading() throws Exception {
+        ItemGroup root = Mockito.mock(ItemGroup.class);
+        final ItemGroup team = createMockFolder("team", root);
+        final Job first = createMockJob("first", team, 1000);
+        Job second = createMockJob("second", team, 3000);
+        final List<Item> items = Arrays.<Item>asList(first, second);
+        Mockito.when(team.getItems()).thenAnswer(invocation -> {
+            // the updater stores the state, then updates the folders, on a thread of its own
+            Thread update = new Thread(() -> {
+                BuildMetricState state = createState(7000);
+                StoreUtil.storeMetricState(new File(first.getRootDir(), StoreUtil.METRIC_STATE_FILE), state);
+                MetricsRollup.update(first, state.getAllBuilds());
+            });
+            update.start();
+            update.join(10000);
+            assertFalse(update.isAlive(), "The update should not wait for the folder to be loaded");
+            return items;
+        });
+
+        MetricsRollup.Totals totals = MetricsRollup.get(team);
+
+        assertEquals(2, totals.getJobCount(), "Job Count");
+        assertEquals(5000, totals.getAllBuilds().toMTTRMetric("test").calculateMetric(), "MTTR");
+    }
+
+    @Test
+    void should_keep_the_totals_of_a_job_updated_twice_from_the_same_state() throws Exception {
+        ItemGroup root = Mockito.mock(ItemGroup.class);
+        ItemGroup team = createMockFolder("team", root);
+        Job first = createMockJob("first", team, 1000);
+        Job second = createMockJob("second", team, 3000);
+        Mockito.when(team.getItems()).thenReturn(Arrays.asList(first, second));
+        assertEquals(4, MetricsRollup.get(team).getAllBuilds().getCount(), "Builds");
+
+        // while a bootstrap runs, the updater keeps adding the job's builds to the one state
+        BuildMetricState state = createState(1000);
+        MetricsRollup.update(first, state.getAllBuilds());
+        for (int i = 0; i <= BuildMetricState.REORDER_BUILDS; i++) {
+            state.add(new BuildMessage(3 + i, NOW - 1800000L + i * 1000L, 10, Result.SUCCESS.toString()), NOW);
+        }
+        MetricsRollup.update(first, state.getAllBuilds());
+
+        MetricAccumulator allBuilds = MetricsRollup.get(team).getAllBuilds();
+        assertEquals(2 + BuildMetricState.REORDER_BUILDS + 1 + 2, allBuilds.getCount(), "Builds");
+        assertEquals(2000, allBuilds.toMTTRMetric("test").calculateMetric(), "MTTR");
+        assertEquals(2, allBuilds.toMTTRMetric("test").getOccurences(), "Recoveries");
+    }
+
+    @Test
+    void should_only_show_the_folder_metrics_to_users_who_can_configure_the_folder() {
+        AbstractFolder folder = Mockito.mock(AbstractFolder.class);
+        RollupAction action = new RollupAction(folder);
+
+        assertNull(action.getUrlName(), "Hidden without Configure");
+        assertNull(action.getIconFileName(), "Hidden without Configure");
+        Mockito.when(folder.hasPermission(Item.CONFIGURE)).thenReturn(true);
+        assertEquals(MetricsAction.URL_NAME, action.getUrlName(), "Shown with Configure");
+    }
+
+    @Test
+    void should_only_show_all_builds_for_a_folder() {
+        RollupAction action = new RollupAction(Mockito.mock(AbstractFolder.class));
+
+        // the day windows of idle jobs would go stale in the folder
+        assertEquals(Arrays.asList(MetricWindow.ALL_BUILDS), action.getWindows(), "Windows");
+    }
+
+    private ItemGroup createMockFolder(String fullName, ItemGroup parent) {
+        ItemGroup folder = Mockito.mock(ItemGroup.class, Mockito.withSettings().extraInterfaces(Item.class));
+        Mockito.when(folder.getFullName()).thenReturn(fullName);
+        Mockito.when(((Item) folder).getFullName()).thenReturn(fullName);
+        Mockito.when(((Item) folder).getName()).thenReturn(fullName.substring(fullName.lastIndexOf('/') + 1));
+        Mockito.when(((Item) folder).getParent()).thenReturn(parent);
+        return folder;
+    }
+
+    private Job createMockJob(String name, ItemGroup parent, long recovery) {
+        File rootDir = new File(temporaryFolder, parent.getFullName() + "/" + name);
+        rootDir.mkdirs();
+        StoreUtil.storeMetricState(new File(rootDir, StoreUtil.METRIC_STATE_FILE), createState(recovery));
+        Job job = Mockito.mock(Job.class);
+        Mockito.when(job.getRootDir()).thenReturn(rootDir);
+        Mockito.when(job.getName()).thenReturn(name);
+        Mockito.when(job.getParent()).thenReturn(parent);
+        return job;
+    }
+
+    /**
+     * A failure and the recovery {@code recovery} ms later, an hour ago.
+     */
+    private static BuildMetricState createState(long recovery) {
+        long start = NOW - 3600000L;
+        List<BuildMessage> builds = new ArrayList<BuildMessage>();
+        builds.add(new BuildMessage(1, start, 10, Result.FAILURE.toString()));
+        builds.add(new BuildMessage(2, start + recovery, 10, Result.SUCCESS.toString()));
+        return BuildMetricState.fromHistory(builds, MetricWindow.getConfiguredDays(), NOW);
+    }
+}
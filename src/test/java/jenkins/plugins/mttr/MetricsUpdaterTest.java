@@ -0,0 +1,281 @@
+package jenkins.plugins.mttr;
+
+import com.google.common.io.Files;
+import hudson.model.AbstractBuild;
+import hudson.model.AbstractProject;
+import hudson.model.Result;
+import jenkins.plugins.model.BuildHistory;
+import jenkins.plugins.model.BuildMessage;
+import jenkins.plugins.model.BuildMetricState;
+import jenkins.plugins.model.MetricsSnapshot;
+import jenkins.plugins.util.BuildDirectoryUtil;
+import jenkins.plugins.util.BuildHistoryUtil;
+import jenkins.plugins.util.ReadUtil;
+import jenkins.plugins.util.StoreUtil;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mockito;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MetricsUpdaterTest {
+
+    @TempDir
+    private File temporaryFolder;
+
+    @Test
+    void should_fold_builds_completed_together_into_one_update() throws Exception {
+        AbstractProject project = Mockito.mock(AbstractProject.class);
+        Mockito.when(project.getRootDir()).thenReturn(temporaryFolder);
+        Mockito.when(project.getFullName()).thenReturn("test");
+        File storeFile = new File(temporaryFolder, MetricsAction.BUILD_HISTORY_FILE_NAME);
+        BuildHistoryUtil.writeBuildMessages(storeFile, Collections.<BuildMessage>emptyList());
+
+        MetricsUpdater updater = new MetricsUpdater();
+        updater.submit(createMockBuild(project, 3, Result.SUCCESS));
+        updater.submit(createMockBuild(project, 1, Result.FAILURE));
+        updater.submit(createMockBuild(project, 2, Result.FAILURE));
+        updater.awaitIdle(30, TimeUnit.SECONDS);
+
+        List<BuildMessage> builds = BuildHistoryUtil.getBuildMessages(storeFile);
+        assertEquals(3, builds.size(), "The history should have 3 builds");
+        assertEquals("1\tFAILURE", builds.get(0).toString(), "The data for the first build is not correct");
+        assertEquals("3\tSUCCESS", builds.get(2).toString(), "The data for the third build is not correct");
+        assertTrue(new File(temporaryFolder, StoreUtil.MTTR_PROPERTY_FILE).exists(), "The mttr.properties file is missing");
+        assertTrue(new File(temporaryFolder, StoreUtil.METRIC_STATE_FILE).exists(), "The metrics.state file is missing");
+        assertTrue(new File(temporaryFolder, StoreUtil.PERCENTILE_PROPERTY_FILE).exists(), "The percentile.properties file is missing");
+    }
+
+    @Test
+    void should_count_the_occurrences_again_when_the_snapshot_is_read_back() throws Exception {
+        AbstractProject project = Mockito.mock(AbstractProject.class);
+        Mockito.when(project.getRootDir()).thenReturn(temporaryFolder);
+        Mockito.when(project.getFullName()).thenReturn("test");
+        BuildHistoryUtil.writeBuildMessages(new File(temporaryFolder, MetricsAction.BUILD_HISTORY_FILE_NAME),
+                Collections.<BuildMessage>emptyList());
+
+        MetricsUpdater updater = new MetricsUpdater();
+        updater.submit(createMockBuild(project, 1, Result.FAILURE));
+        updater.submit(createMockBuild(project, 2, Result.SUCCESS));
+        updater.awaitIdle(30, TimeUnit.SECONDS);
+        MetricsSnapshot computed = MetricsSnapshotCache.get(project);
+        MetricsSnapshotCache.invalidate(project);
+        MetricsSnapshot loaded = MetricsSnapshotCache.get(project);
+
+        assertEquals(1, computed.getOccurences(MetricsAction.MTTR_ALL_BUILDS), "Recoveries");
+        assertEquals(2, computed.getOccurences(MetricsAction.STDDEV_ALL_BUILDS), "Builds");
+        assertEquals(computed.getVersion(), loaded.getVersion(), "The snapshot read back should be the same");
+    }
+
+    @Test
+    void should_let_go_of_the_job_once_its_builds_are_folded_in() throws Exception {
+        AbstractProject project = Mockito.mock(AbstractProject.class);
+        Mockito.when(project.getRootDir()).thenReturn(temporaryFolder);
+        Mockito.when(project.getFullName()).thenReturn("test");
+        BuildHistoryUtil.writeBuildMessages(new File(temporaryFolder, MetricsAction.BUILD_HISTORY_FILE_NAME),
+                Collections.<BuildMessage>emptyList());
+
+        MetricsUpdater updater = new MetricsUpdater();
+        updater.submit(createMockBuild(project, 1, Result.SUCCESS));
+        assertTrue(updater.hasUpdate(project), "The build should be waiting");
+        updater.awaitIdle(30, TimeUnit.SECONDS);
+
+        assertFalse(updater.hasUpdate(project), "Nothing of the job should be kept once it is updated");
+        updater.submit(createMockBuild(project, 2, Result.SUCCESS));
+        updater.awaitIdle(30, TimeUnit.SECONDS);
+        assertEquals(2, BuildHistoryUtil.getBuildMessages(
+                new File(temporaryFolder, MetricsAction.BUILD_HISTORY_FILE_NAME)).size(), "Builds");
+    }
+
+    @Test
+    void should_update_the_job_again_after_an_error() throws Exception {
+        AbstractProject project = Mockito.mock(AbstractProject.class);
+        Mockito.when(project.getRootDir()).thenThrow(new NoClassDefFoundError("test")).thenReturn(temporaryFolder);
+        Mockito.when(project.getFullName()).thenReturn("test");
+        File storeFile = new File(temporaryFolder, MetricsAction.BUILD_HISTORY_FILE_NAME);
+        BuildHistoryUtil.writeBuildMessages(storeFile, Collections.<BuildMessage>emptyList());
+
+        MetricsUpdater updater = new MetricsUpdater();
+        updater.submit(createMockBuild(project, 1, Result.FAILURE));
+        updater.awaitIdle(30, TimeUnit.SECONDS);
+        updater.submit(createMockBuild(project, 2, Result.SUCCESS));
+        updater.awaitIdle(30, TimeUnit.SECONDS);
+
+        List<BuildMessage> builds = BuildHistoryUtil.getBuildMessages(storeFile);
+        assertEquals(1, builds.size(), "Only the build that failed to be folded in should be missing");
+        assertEquals(2, builds.get(0).getBuildNumber(), "Build Number");
+    }
+
+    @Test
+    void should_keep_every_build_when_many_complete_at_once() throws Exception {
+        final AbstractProject project = Mockito.mock(AbstractProject.class);
+        Mockito.when(project.getRootDir()).thenReturn(temporaryFolder);
+        Mockito.when(project.getFullName()).thenReturn("test");
+        File storeFile = new File(temporaryFolder, MetricsAction.BUILD_HISTORY_FILE_NAME);
+        BuildHistoryUtil.writeBuildMessages(storeFile, Collections.<BuildMessage>emptyList());
+
+        final List<AbstractBuild> builds = new ArrayList<AbstractBuild>();
+        for (int number = 1; number <= 200; number++) {
+            builds.add(createMockBuild(project, number, number % 3 == 0 ? Result.FAILURE : Result.SUCCESS));
+        }
+        final MetricsUpdater updater = new MetricsUpdater();
+        ExecutorService completions = Executors.newFixedThreadPool(8);
+        for (final AbstractBuild build : builds) {
+            completions.execute(() -> updater.submit(build));
+        }
+        completions.shutdown();
+        assertTrue(completions.awaitTermination(30, TimeUnit.SECONDS));
+        updater.awaitIdle(30, TimeUnit.SECONDS);
+
+        List<BuildMessage> history = BuildHistoryUtil.getBuildMessages(storeFile);
+        assertEquals(200, history.size(), "The history should have every build once");
+        for (int i = 0; i < history.size(); i++) {
+            assertEquals(i + 1, history.get(i).getBuildNumber(), "Build Number");
+        }
+        assertEquals(BuildHistoryUtil.HEADER_SIZE + 200 * BuildHistoryUtil.RECORD_SIZE, storeFile.length(), "File Size");
+    }
+
+    @Test
+    void should_read_the_older_builds_from_the_build_directories_when_there_is_no_history() throws Exception {
+        File buildsDir = new File(temporaryFolder, "builds");
+        createBuildDir(buildsDir, 1, 1000, Result.FAILURE);
+        createBuildDir(buildsDir, 2, 2000, Result.SUCCESS);
+        AbstractProject project = Mockito.mock(AbstractProject.class);
+        Mockito.when(project.getRootDir()).thenReturn(temporaryFolder);
+        Mockito.when(project.getBuildDir()).thenReturn(buildsDir);
+        Mockito.when(project.getFullName()).thenReturn("test");
+
+        MetricsUpdater updater = new MetricsUpdater();
+        updater.submit(createMockBuild(project, 3, Result.FAILURE));
+        updater.awaitIdle(30, TimeUnit.SECONDS);
+
+        File storeFile = new File(temporaryFolder, MetricsAction.BUILD_HISTORY_FILE_NAME);
+        List<BuildMessage> builds = BuildHistoryUtil.getBuildMessages(storeFile);
+        assertEquals(3, builds.size(), "The history should have 3 builds");
+        assertEquals("1\tFAILURE", builds.get(0).toString(), "The data for the first build is not correct");
+        assertEquals("2\tSUCCESS", builds.get(1).toString(), "The data for the second build is not correct");
+        assertFalse(new File(temporaryFolder, MetricsUpdater.BOOTSTRAP_PENDING_FILE_NAME).exists(),
+                "The history should be complete");
+        assertEquals(1000, MetricsSnapshotCache.get(project).getValue(MetricsAction.MTTR_ALL_BUILDS), "MTTR");
+        assertNull(updater.getBootstrapProgress(project));
+    }
+
+    @Test
+    void should_keep_the_all_time_metrics_of_the_builds_it_compacts() throws Exception {
+        AbstractProject project = Mockito.mock(AbstractProject.class);
+        Mockito.when(project.getFullName()).thenReturn("test");
+        File storeFile = new File(temporaryFolder, MetricsAction.BUILD_HISTORY_FILE_NAME);
+        File summaryFile = new File(temporaryFolder, StoreUtil.HISTORY_SUMMARY_FILE);
+        long now = System.currentTimeMillis();
+        List<BuildMessage> builds = new ArrayList<BuildMessage>();
+        for (int i = 1; i <= 500; i++) {
+            builds.add(new BuildMessage(i, now - (500 - i) * 60000L, i * 10L,
+                    (i % 7 < 2 ? Result.FAILURE : Result.SUCCESS).toString()));
+        }
+        BuildHistoryUtil.writeBuildMessages(storeFile, builds);
+        BuildMetricState expected = BuildMetricState.fromHistory(builds, now);
+
+        MetricsUpdater.compact(new HistoryRetention(150, 0), project, storeFile, summaryFile, now);
+
+        assertEquals(150, BuildHistoryUtil.getRecordCount(storeFile), "Builds kept");
+        assertEquals(351, BuildHistoryUtil.getBuildMessages(storeFile).get(0).getBuildNumber(), "First build kept");
+        BuildMetricState actual = MetricsUpdater.readState(storeFile, summaryFile, now);
+        assertEquals(500, actual.getLastBuildNumber(), "Last Build Number");
+        assertEquals(expected.getAllBuilds().toMTTRMetric("test").calculateMetric(),
+                actual.getAllBuilds().toMTTRMetric("test").calculateMetric(), "MTTR");
+        assertEquals(expected.getAllBuilds().toMTTFMetric("test").calculateMetric(),
+                actual.getAllBuilds().toMTTFMetric("test").calculateMetric(), "MTTF");
+        assertEquals(expected.getAllBuilds().toStandardDeviationMetric("test").calculateMetric(),
+                actual.getAllBuilds().toStandardDeviationMetric("test").calculateMetric(), "Standard Deviation");
+        assertEquals(expected.getAllBuilds().toPercentileMetric("test", 0.9).calculateMetric(),
+                actual.getAllBuilds().toPercentileMetric("test", 0.9).calculateMetric(), "90th Percentile");
+        assertEquals(500, actual.getAllBuilds().getCount(), "Build Count");
+    }
+
+    @Test
+    void should_wait_for_enough_builds_before_compacting_again() throws Exception {
+        AbstractProject project = Mockito.mock(AbstractProject.class);
+        Mockito.when(project.getFullName()).thenReturn("test");
+        File storeFile = new File(temporaryFolder, MetricsAction.BUILD_HISTORY_FILE_NAME);
+        File summaryFile = new File(temporaryFolder, StoreUtil.HISTORY_SUMMARY_FILE);
+        long now = System.currentTimeMillis();
+        List<BuildMessage> builds = new ArrayList<BuildMessage>();
+        for (int i = 1; i <= 150; i++) {
+            builds.add(new BuildMessage(i, now - (150 - i) * TimeUnit.HOURS.toMillis(1) - 1, 10L, Result.SUCCESS.toString()));
+        }
+        BuildHistoryUtil.writeBuildMessages(storeFile, builds);
+        HistoryRetention retention = new HistoryRetention(100, 0);
+
+        MetricsUpdater.compact(retention, project, storeFile, summaryFile, now);
+        assertEquals(150, BuildHistoryUtil.getRecordCount(storeFile), "Too few builds to compact");
+
+        HistoryRetention lastDay = new HistoryRetention(0, 1);
+        MetricsUpdater.compact(lastDay, project, storeFile, summaryFile, now);
+        assertEquals(24, BuildHistoryUtil.getRecordCount(storeFile), "Builds of the last day");
+    }
+
+    @Test
+    void should_keep_a_build_stored_while_the_rebuild_merges() throws Exception {
+        final File storeFile = new File(temporaryFolder, MetricsAction.BUILD_HISTORY_FILE_NAME);
+        BuildHistoryUtil.writeBuildMessages(storeFile,
+                Collections.singletonList(new BuildMessage(2, 5000, 10, Result.SUCCESS.toString())));
+        AbstractProject project = Mockito.mock(AbstractProject.class);
+        Mockito.when(project.getRootDir()).thenReturn(temporaryFolder);
+        final int[] calls = new int[1];
+        Mockito.when(project.getFullName()).thenAnswer(invocation -> {
+            // the rebuild asks again for the job's lock once it has merged the history
+            if (++calls[0] == 2) {
+                BuildHistoryUtil.appendBuildMessages(storeFile,
+                        Collections.singletonList(new BuildMessage(3, 6000, 10, Result.FAILURE.toString())));
+            }
+            return "test";
+        });
+        BuildHistory readBuilds = new BuildHistory();
+        readBuilds.add(new BuildMessage(1, 1000, 10, Result.FAILURE.toString()));
+        readBuilds.add(new BuildMessage(2, 3000, 10, Result.SUCCESS.toString()));
+
+        assertTrue(new MetricsUpdater().rebuild(project, readBuilds), "Rebuilt");
+
+        List<BuildMessage> builds = BuildHistoryUtil.getBuildMessages(storeFile);
+        assertEquals(3, builds.size(), "The build stored meanwhile should be kept");
+        assertEquals(5000, builds.get(1).getStartTime(), "The stored build should win");
+        BuildMetricState state = ReadUtil.getMetricState(new File(temporaryFolder, StoreUtil.METRIC_STATE_FILE));
+        assertEquals(3, state.getAllBuilds().getCount(), "Builds in the metrics");
+        assertEquals(4000, MetricsSnapshotCache.get(project).getValue(MetricsAction.MTTR_ALL_BUILDS), "MTTR");
+    }
+
+    private void createBuildDir(File buildsDir, int number, long timestamp, Result result) throws IOException {
+        File buildDir = new File(buildsDir, String.valueOf(number));
+        buildDir.mkdirs();
+        Files.asCharSink(new File(buildDir, BuildDirectoryUtil.BUILD_FILE_NAME), StandardCharsets.UTF_8)
+                .write(String.format("<build><timestamp>%d</timestamp><result>%s</result><duration>10</duration></build>",
+                        timestamp, result));
+    }
+
+    private AbstractBuild createMockBuild(AbstractProject project, int number, Result result) throws IOException {
+        Calendar timestamp = Calendar.getInstance();
+        timestamp.setTimeInMillis(number * 1000L);
+
+        AbstractBuild build = Mockito.mock(AbstractBuild.class);
+        Mockito.when(build.getParent()).thenReturn(project);
+        Mockito.when(build.getNumber()).thenReturn(number);
+        Mockito.when(build.getTimestamp()).thenReturn(timestamp);
+        Mockito.when(build.getDuration()).thenReturn(10L);
+        Mockito.when(build.getResult()).thenReturn(result);
+        return build;
+    }
+}
@@ -0,0 +1,106 @@
+package jenkins.plugins.mttr;
+
+import hudson.model.AbstractBuild;
+import hudson.model.AbstractProject;
+import hudson.model.Result;
+import jenkins.plugins.model.BuildMessage;
+import jenkins.plugins.util.BuildHistoryUtil;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mockito;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PluginStatsTest {
+
+    @TempDir
+    private File temporaryFolder;
+
+    @AfterEach
+    void tearDown() {
+        PluginStats.INSTANCE.reset();
+    }
+
+    @Test
+    void should_summarize_the_recorded_values() {
+        PluginStats.Distribution distribution = new PluginStats.Distribution();
+        for (int i = 1; i <= 100; i++) {
+            distribution.record(i * 1000L);
+        }
+
+        PluginStats.Summary summary = distribution.getSummary();
+
+        assertEquals(100, summary.getCount(), "Count");
+        assertEquals(50500, summary.getMean(), "Mean");
+        assertEquals(50000, summary.getP50(), 50000 * 0.02, "Median");
+        assertEquals(99000, summary.getP99(), 99000 * 0.02, "99th percentile");
+        assertEquals(100000, summary.getMax(), "Maximum");
+    }
+
+    @Test
+    void should_record_the_time_and_bytes_of_an_update() throws Exception {
+        AbstractProject project = Mockito.mock(AbstractProject.class);
+        Mockito.when(project.getRootDir()).thenReturn(temporaryFolder);
+        Mockito.when(project.getFullName()).thenReturn("test");
+        BuildHistoryUtil.writeBuildMessages(new File(temporaryFolder, MetricsAction.BUILD_HISTORY_FILE_NAME),
+                Collections.<BuildMessage>emptyList());
+        PluginStats.INSTANCE.reset();
+
+        MetricsUpdater updater = new MetricsUpdater();
+        updater.submit(createMockBuild(project, 1, Result.FAILURE));
+        updater.submit(createMockBuild(project, 2, Result.SUCCESS));
+        updater.awaitIdle(30, TimeUnit.SECONDS);
+
+        PluginStats stats = PluginStats.INSTANCE;
+        assertEquals(1, stats.getUpdateNanos().getCount(), "Updates");
+        assertEquals(2, stats.getUpdatedBuilds(), "Builds updated");
+        assertTrue(stats.getUpdateNanos().getMax() > 0, "The update should have been timed");
+        assertTrue(stats.getUpdateBytesRead().getMax() > 0, "The update should have read the history");
+        assertTrue(stats.getUpdateBytesWritten().getMax() > 0, "The update should have written the metrics");
+        assertTrue(stats.getBytesWritten() >= stats.getUpdateBytesWritten().getMax(), "Bytes written in total");
+        assertEquals(BuildHistoryUtil.HEADER_SIZE + 2 * BuildHistoryUtil.RECORD_SIZE,
+                stats.getHistoryFileBytes().getMax(), "History size");
+    }
+
+    @Test
+    void should_expose_the_stats_over_jmx() throws Exception {
+        PluginStats.register();
+        PluginStats.CHART_HITS.add(3);
+        PluginStats.CHART_MISSES.increment();
+        PluginStats.CHART_RENDER.record(2000000L);
+
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName(PluginStats.OBJECT_NAME);
+        CompositeData render = (CompositeData) server.getAttribute(name, "ChartRenderNanos");
+
+        assertEquals(1L, render.get("count"), "Charts drawn");
+        assertEquals(2000000L, render.get("max"), "Longest chart");
+        assertEquals(0.75, (Double) server.getAttribute(name, "ChartCacheHitRate"), 0.001, "Chart hit rate");
+        server.invoke(name, "reset", new Object[0], new String[0]);
+        assertEquals(0L, server.getAttribute(name, "ChartCacheHits"), "Chart hits after a reset");
+    }
+
+    private AbstractBuild createMockBuild(AbstractProject project, int number, Result result) {
+        Calendar timestamp = Calendar.getInstance();
+        timestamp.setTimeInMillis(number * 1000L);
+
+        AbstractBuild build = Mockito.mock(AbstractBuild.class);
+        Mockito.when(build.getParent()).thenReturn(project);
+        Mockito.when(build.getNumber()).thenReturn(number);
+        Mockito.when(build.getTimestamp()).thenReturn(timestamp);
+        Mockito.when(build.getDuration()).thenReturn(10L);
+        Mockito.when(build.getResult()).thenReturn(result);
+        return build;
+    }
+}
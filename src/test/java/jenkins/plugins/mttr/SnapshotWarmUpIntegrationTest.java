@@ -0,0 +1,37 @@
+package jenkins.plugins.mttr;
+
+import hudson.model.FreeStyleProject;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.jvnet.hudson.test.junit.jupiter.JenkinsSessionExtension;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SnapshotWarmUpIntegrationTest {
+
+    @RegisterExtension
+    private final JenkinsSessionExtension sessions = new JenkinsSessionExtension();
+
+    @Test
+    void should_load_the_metrics_of_every_job_once_the_jobs_are_loaded() throws Throwable {
+        sessions.then(r -> {
+            FreeStyleProject project = r.createFreeStyleProject("test");
+            r.buildAndAssertSuccess(project);
+            MetricsUpdater.get().awaitIdle(30, TimeUnit.SECONDS);
+            // the cache outlives the restart in this JVM, so only the warm-up can load it again
+            MetricsSnapshotCache.invalidate(project);
+        });
+        sessions.then(r -> {
+            FreeStyleProject project = r.jenkins.getItemByFullName("test", FreeStyleProject.class);
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+            while (!MetricsSnapshotCache.isLoaded(project)) {
+                assertTrue(System.nanoTime() < deadline, "The warm-up should have loaded the metrics of the job");
+                Thread.sleep(10);
+            }
+            assertEquals(1, MetricsSnapshotCache.get(project).getLastBuildNumber(), "Last Build Number");
+        });
+    }
+}
@@ -0,0 +1,58 @@
+package jenkins.plugins.mttr;
+
+import hudson.model.Job;
+import jenkins.plugins.model.MetricsSnapshot;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mockito;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SnapshotWarmUpTest {
+
+    @TempDir
+    private File temporaryFolder;
+
+    @Test
+    void should_load_the_jobs_that_are_not_loaded_up_to_the_limit() throws Exception {
+        Job loaded = createMockJob("loaded");
+        MetricsSnapshot snapshot = MetricsSnapshot.fromProperties(1, new Properties());
+        MetricsSnapshotCache.put(loaded, snapshot);
+        List<Job> jobs = new ArrayList<Job>();
+        jobs.add(loaded);
+        for (int i = 0; i < 4; i++) {
+            Job job = createMockJob("job" + i);
+            MetricsSnapshotCache.invalidate(job);
+            jobs.add(job);
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        new SnapshotWarmUp(jobs, 3, null).runOn(executor, 2);
+        assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS), "The warm-up should finish");
+
+        assertSame(snapshot, MetricsSnapshotCache.getIfLoaded(loaded), "A loaded job should be left alone");
+        for (int i = 1; i <= 3; i++) {
+            assertTrue(MetricsSnapshotCache.isLoaded(jobs.get(i)), jobs.get(i).getFullName() + " should be loaded");
+        }
+        assertFalse(MetricsSnapshotCache.isLoaded(jobs.get(4)), "Jobs beyond the limit should be left out");
+    }
+
+    private Job createMockJob(String name) {
+        File rootDir = new File(temporaryFolder, name);
+        rootDir.mkdirs();
+        Job job = Mockito.mock(Job.class);
+        Mockito.when(job.getRootDir()).thenReturn(rootDir);
+        Mockito.when(job.getFullName()).thenReturn(name);
+        return job;
+    }
+}
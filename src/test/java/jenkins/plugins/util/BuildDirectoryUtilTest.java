@@ -0,0 +1,67 @@
+package jenkins.plugins.util;
+
+import com.google.common.io.Files;
+import jenkins.plugins.model.BuildMessage;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class BuildDirectoryUtilTest {
+
+    @TempDir
+    private File temporaryFolder;
+
+    @Test
+    void should_read_the_fields_of_the_build_and_not_of_its_actions() throws IOException {
+        File buildDir = createBuildDir("7", "<?xml version='1.1' encoding='UTF-8'?>\n"
+                + "<build>\n"
+                + "  <actions>\n"
+                + "    <hudson.model.CauseAction><timestamp>1</timestamp><result>ABORTED</result></hudson.model.CauseAction>\n"
+                + "  </actions>\n"
+                + "  <queueId>3</queueId>\n"
+                + "  <timestamp>1000</timestamp>\n"
+                + "  <startTime>1010</startTime>\n"
+                + "  <result>FAILURE</result>\n"
+                + "  <duration>1500</duration>\n"
+                + "</build>\n");
+
+        BuildMessage build = BuildDirectoryUtil.readBuildMessage(buildDir, 7);
+
+        assertEquals(new BuildMessage(7, 1000, 1500, "FAILURE").toString(), build.toString());
+        assertEquals(1000, build.getStartTime(), "Start Time");
+        assertEquals(1500, build.getDuration(), "Duration");
+    }
+
+    @Test
+    void should_skip_builds_without_a_result() throws IOException {
+        File buildDir = createBuildDir("8", "<build><timestamp>1000</timestamp><duration>0</duration></build>");
+
+        assertNull(BuildDirectoryUtil.readBuildMessage(buildDir, 8));
+        assertNull(BuildDirectoryUtil.readBuildMessage(new File(temporaryFolder, "9"), 9));
+    }
+
+    @Test
+    void should_list_only_the_numbered_build_directories() throws IOException {
+        createBuildDir("10", "<build/>");
+        createBuildDir("2", "<build/>");
+        createBuildDir("lastSuccessfulBuild", "<build/>");
+        Files.asCharSink(new File(temporaryFolder, "3"), StandardCharsets.UTF_8).write("not a directory");
+
+        assertArrayEquals(new int[]{2, 10}, BuildDirectoryUtil.getBuildNumbers(temporaryFolder));
+        assertArrayEquals(new int[0], BuildDirectoryUtil.getBuildNumbers(new File(temporaryFolder, "missing")));
+    }
+
+    private File createBuildDir(String name, String buildXml) throws IOException {
+        File buildDir = new File(temporaryFolder, name);
+        buildDir.mkdirs();
+        Files.asCharSink(new File(buildDir, BuildDirectoryUtil.BUILD_FILE_NAME), StandardCharsets.UTF_8).write(buildXml);
+        return buildDir;
+    }
+}
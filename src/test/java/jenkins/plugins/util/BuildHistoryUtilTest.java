@@ -0,0 +1,133 @@
+package jenkins.plugins.util;
+
+import com.google.common.collect.Lists;
+import com.google.common.io.Files;
+import hudson.model.Result;
+import jenkins.plugins.model.BuildHistory;
+import jenkins.plugins.model.BuildMessage;
+import jenkins.plugins.model.ResultCode;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BuildHistoryUtilTest {
+
+    @TempDir
+    private File temporaryFolder;
+
+    private static final BuildMessage FIRST_BUILD = new BuildMessage(1, 1000, 1500, Result.SUCCESS.toString());
+    private static final BuildMessage SECOND_BUILD = new BuildMessage(2, 2000, 2500, Result.FAILURE.toString());
+    private static final BuildMessage THIRD_BUILD = new BuildMessage(3, 3000, 3500, Result.ABORTED.toString());
+    private static final BuildMessage FOURTH_BUILD = new BuildMessage(4, 4000, 4500, "null");
+
+    @Test
+    void should_read_back_every_field_that_was_appended() throws IOException {
+        File storeFile = new File(temporaryFolder, "all_builds.bin");
+        BuildHistoryUtil.appendBuildMessages(storeFile, Lists.newArrayList(FIRST_BUILD, SECOND_BUILD));
+        BuildHistoryUtil.appendBuildMessages(storeFile, Lists.newArrayList(THIRD_BUILD, FOURTH_BUILD));
+
+        final List<String> records = new ArrayList<String>();
+        int count = BuildHistoryUtil.forEachRecord(storeFile, new BuildHistoryUtil.RecordVisitor() {
+            @Override
+            public void visit(long buildNumber, long startTime, long duration, String result) {
+                records.add(buildNumber + "," + startTime + "," + duration + "," + result);
+            }
+        });
+
+        assertEquals(4, count, "Record Count");
+        assertEquals(Lists.newArrayList("1,1000,1500,SUCCESS", "2,2000,2500,FAILURE", "3,3000,3500,ABORTED",
+                "4,4000,4500,null"), records);
+        assertEquals(BuildHistoryUtil.HEADER_SIZE + 4 * BuildHistoryUtil.RECORD_SIZE, storeFile.length(), "File Size");
+    }
+
+    @Test
+    void should_drop_a_half_written_record_before_appending() throws IOException {
+        File storeFile = new File(temporaryFolder, "all_builds.bin");
+        BuildHistoryUtil.appendBuildMessages(storeFile, Lists.newArrayList(FIRST_BUILD));
+        try (RandomAccessFile file = new RandomAccessFile(storeFile, "rw")) {
+            file.setLength(file.length() + 5);
+        }
+
+        BuildHistoryUtil.appendBuildMessages(storeFile, Lists.newArrayList(SECOND_BUILD));
+
+        assertEquals(Lists.newArrayList(FIRST_BUILD, SECOND_BUILD), BuildHistoryUtil.getBuildMessages(storeFile));
+    }
+
+    @Test
+    void should_sort_builds_that_were_stored_out_of_order() throws IOException {
+        File storeFile = new File(temporaryFolder, "all_builds.bin");
+        BuildHistoryUtil.appendBuildMessages(storeFile, Lists.newArrayList(SECOND_BUILD, FIRST_BUILD));
+
+        assertEquals(Lists.newArrayList(FIRST_BUILD, SECOND_BUILD), BuildHistoryUtil.getBuildMessages(storeFile));
+    }
+
+    @Test
+    void should_read_the_history_into_sorted_columns() throws IOException {
+        File storeFile = new File(temporaryFolder, "all_builds.bin");
+        BuildHistoryUtil.appendBuildMessages(storeFile, Lists.newArrayList(SECOND_BUILD, FIRST_BUILD, FOURTH_BUILD));
+
+        BuildHistory history = BuildHistoryUtil.readBuildHistory(storeFile);
+
+        assertEquals(3, history.size(), "Build Count");
+        assertEquals(1, history.getBuildNumber(0), "Build Number");
+        assertEquals(2000, history.getStartTime(1), "Start Time");
+        assertEquals(4500, history.getDuration(2), "Duration");
+        assertEquals(ResultCode.UNKNOWN, history.getResult(2), "Result");
+    }
+
+    @Test
+    void should_only_read_the_first_record_for_the_first_start_time() throws IOException {
+        File storeFile = new File(temporaryFolder, "all_builds.bin");
+        BuildHistoryUtil.appendBuildMessages(storeFile, Lists.newArrayList(SECOND_BUILD, THIRD_BUILD, FOURTH_BUILD));
+        long bytesRead = IoStats.getThreadBytesRead();
+
+        assertEquals(2000, BuildHistoryUtil.getFirstStartTime(storeFile), "First Start Time");
+        assertEquals(BuildHistoryUtil.HEADER_SIZE + BuildHistoryUtil.RECORD_SIZE,
+                IoStats.getThreadBytesRead() - bytesRead, "Bytes Read");
+    }
+
+    @Test
+    void should_replace_a_history_right_after_reading_it() throws IOException {
+        File storeFile = new File(temporaryFolder, "all_builds.bin");
+        BuildHistoryUtil.appendBuildMessages(storeFile, Lists.newArrayList(FIRST_BUILD, SECOND_BUILD, THIRD_BUILD));
+
+        BuildHistory history = BuildHistoryUtil.readBuildHistory(storeFile);
+        BuildHistoryUtil.writeBuildHistory(storeFile, history, 1);
+        List<BuildMessage> builds = BuildHistoryUtil.getBuildMessages(storeFile);
+        BuildHistoryUtil.writeBuildMessages(storeFile, builds.subList(1, builds.size()));
+
+        assertEquals(Lists.newArrayList(THIRD_BUILD), BuildHistoryUtil.getBuildMessages(storeFile));
+    }
+
+    @Test
+    void should_migrate_the_text_history_once() throws IOException {
+        File legacyFile = new File(temporaryFolder, "all_builds.mr");
+        File storeFile = new File(temporaryFolder, "all_builds.bin");
+        Files.asCharSink(legacyFile, StandardCharsets.UTF_8).write("2,2000,2500,FAILURE\n1,1000,1500,SUCCESS\n");
+
+        assertTrue(BuildHistoryUtil.migrate(legacyFile, storeFile), "The text history should be migrated");
+        assertFalse(legacyFile.exists(), "The text history should be removed");
+        assertEquals(Lists.newArrayList(FIRST_BUILD, SECOND_BUILD), BuildHistoryUtil.getBuildMessages(storeFile));
+        assertFalse(BuildHistoryUtil.migrate(legacyFile, storeFile), "There is nothing left to migrate");
+    }
+
+    @Test
+    void should_refuse_files_that_are_not_build_histories() throws IOException {
+        File legacyFile = new File(temporaryFolder, "all_builds.mr");
+        Files.asCharSink(legacyFile, StandardCharsets.UTF_8).write("2,2000,2500,FAILURE\n");
+
+        assertThrows(IOException.class, () -> BuildHistoryUtil.readBuildHistory(legacyFile));
+        assertTrue(BuildHistoryUtil.getBuildMessages(legacyFile).isEmpty());
+    }
+}
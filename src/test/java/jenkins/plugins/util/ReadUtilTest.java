@@ -0,0 +1,106 @@
+package jenkins.plugins.util;
+
+import com.google.common.collect.Lists;
+import com.google.common.io.Files;
+import hudson.model.Job;
+import hudson.model.Result;
+import jenkins.plugins.model.BuildMessage;
+import jenkins.plugins.model.MTTRMetric;
+import jenkins.plugins.model.MetricsSnapshot;
+import jenkins.plugins.model.StandardDeviationMetric;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mockito;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class ReadUtilTest {
+
+    @TempDir
+    private File temporaryFolder;
+
+    @Test
+    void should_skip_and_count_the_malformed_lines() throws IOException {
+        File storeFile = write("1,1000,1500,SUCCESS\n"
+                + "2,2000,x,FAILURE\n"
+                + "3,3000,3500\n"
+                + "\n"
+                + "4,4000,,FAILURE\n"
+                + "5,5000,5500,\n"
+                + "6,-6000,6500,ABORTED,extra\n"
+                + "12345678901234567890,7000,7500,SUCCESS\n");
+
+        List<String> records = new ArrayList<String>();
+        int malformedLines = ReadUtil.forEachBuildMessage(storeFile, collect(records));
+
+        assertEquals(5, malformedLines, "Malformed Lines");
+        assertEquals(Lists.newArrayList("1,1000,1500,SUCCESS", "6,-6000,6500,ABORTED"), records);
+    }
+
+    @Test
+    void should_read_windows_line_endings_and_a_last_line_without_one() throws IOException {
+        File storeFile = write("1,1000,1500,SUCCESS\r\n2,2000,2500,null\r\n3,3000,3500,UNKNOWN");
+
+        List<String> records = new ArrayList<String>();
+        int malformedLines = ReadUtil.forEachBuildMessage(storeFile, collect(records));
+
+        assertEquals(0, malformedLines, "Malformed Lines");
+        assertEquals(Lists.newArrayList("1,1000,1500,SUCCESS", "2,2000,2500,null", "3,3000,3500,UNKNOWN"), records);
+    }
+
+    @Test
+    void should_return_the_builds_in_build_number_order() throws IOException {
+        File storeFile = write("3,3000,3500,FAILURE\n1,1000,1500,SUCCESS\nbroken\n2,2000,2500,SUCCESS\n");
+
+        List<BuildMessage> builds = ReadUtil.getBuildMessageFrom(storeFile);
+
+        assertEquals(3, builds.size(), "Build Count");
+        for (int i = 0; i < builds.size(); i++) {
+            assertEquals(i + 1, builds.get(i).getBuildNumber(), "Build Number");
+        }
+        assertSame("SUCCESS", builds.get(0).getResult(), "Result");
+    }
+
+    @Test
+    void should_read_a_snapshot_from_the_property_files_alone() {
+        Job job = Mockito.mock(Job.class);
+        Mockito.when(job.getRootDir()).thenReturn(temporaryFolder);
+        List<BuildMessage> builds = Lists.newArrayList(
+                new BuildMessage(1, 1000, 10, Result.FAILURE.toString()),
+                new BuildMessage(2, 4000, 30, Result.SUCCESS.toString()));
+        StoreUtil.storeBuildMetric(MTTRMetric.class, job, 2, new MTTRMetric("mttr", builds));
+        StoreUtil.storeBuildMetric(StandardDeviationMetric.class, job, 2, new StandardDeviationMetric("stddev", builds));
+
+        MetricsSnapshot snapshot = ReadUtil.getMetricsSnapshot(job);
+
+        assertFalse(new File(temporaryFolder, StoreUtil.METRIC_STATE_FILE).exists(), "No state should be needed");
+        assertEquals(2, snapshot.getLastBuildNumber(), "Last Build Number");
+        assertEquals(3000, snapshot.getValue("mttr"), "MTTR");
+        assertEquals(1, snapshot.getOccurences("mttr"), "Recoveries");
+        assertEquals(2, snapshot.getOccurences("stddev"), "Builds");
+        assertEquals(2, snapshot.getValues().size(), "Values");
+    }
+
+    private File write(String content) throws IOException {
+        File storeFile = new File(temporaryFolder, "all_builds.mr");
+        Files.asCharSink(storeFile, StandardCharsets.UTF_8).write(content);
+        return storeFile;
+    }
+
+    private static BuildHistoryUtil.RecordVisitor collect(final List<String> records) {
+        return new BuildHistoryUtil.RecordVisitor() {
+            @Override
+            public void visit(long buildNumber, long startTime, long duration, String result) {
+                records.add(buildNumber + "," + startTime + "," + duration + "," + result);
+            }
+        };
+    }
+}